@@ -0,0 +1,93 @@
+package io.realworld;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Runs the benchmarks with the GC profiler and compares them to a baseline measured earlier on the same machine.
+ *
+ * <p>
+ * Every benchmark reports its average time and the bytes it allocates per operation. A benchmark more than
+ * {@value #TOLERANCE_PERCENT}% slower, or allocating more, than in the baseline is reported as a regression and the
+ * run fails. No baseline is checked in, since timings do not carry over between machines: without one the run only
+ * reports its results, and copying the result file to the baseline path makes it the baseline of later runs.
+ *
+ * <p>
+ * Arguments: result file, baseline file, benchmark regex.
+ */
+public final class BenchmarkRunner {
+    private static final int TOLERANCE_PERCENT = 20;
+    private static final String ALLOCATION = "gc.alloc.rate.norm";
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    private BenchmarkRunner() {
+    }
+
+    public static void main(final String[] args) throws Exception {
+        final File result = new File(args[0]);
+        final File baseline = new File(args[1]);
+        new Runner(new OptionsBuilder()
+                .include(args.length > 2 ? args[2] : ".*")
+                .addProfiler(GCProfiler.class)
+                .resultFormat(ResultFormatType.JSON)
+                .result(result.getPath())
+                .build())
+                .run();
+
+        if (!baseline.exists()) {
+            System.out.printf("No baseline at %s, copy %s there to compare later runs to this one%n", baseline, result);
+            return;
+        }
+        final Map<String, double[]> before = read(baseline);
+        int regressions = 0;
+        for (final Map.Entry<String, double[]> now : read(result).entrySet()) {
+            final double[] then = before.get(now.getKey());
+            if (then == null) {
+                System.out.printf("%-80s new%n", now.getKey());
+                continue;
+            }
+            final boolean slower = now.getValue()[0] > then[0] * (100 + TOLERANCE_PERCENT) / 100;
+            final boolean allocates = now.getValue()[1] > then[1] * (100 + TOLERANCE_PERCENT) / 100 + 16;
+            System.out.printf("%-80s %10.1f -> %10.1f ns/op %10.0f -> %10.0f B/op%s%n", now.getKey(),
+                    then[0], now.getValue()[0], then[1], now.getValue()[1], slower || allocates ? "  REGRESSION" : "");
+            if (slower || allocates) {
+                regressions++;
+            }
+        }
+        if (regressions > 0) {
+            System.out.printf("%d benchmarks regressed against %s%n", regressions, baseline);
+            System.exit(1);
+        }
+    }
+
+    /*
+     * Benchmark (with its parameters) to {average time, allocated bytes per operation}.
+     */
+    private static Map<String, double[]> read(final File file) throws IOException {
+        final Map<String, double[]> scores = new LinkedHashMap<>();
+        for (final JsonNode benchmark : MAPPER.readTree(file)) {
+            final String key = benchmark.path("benchmark").asText()
+                    + (benchmark.has("params") ? " " + benchmark.get("params") : "");
+            double allocated = 0;
+            final Iterator<Map.Entry<String, JsonNode>> secondary = benchmark.path("secondaryMetrics").fields();
+            while (secondary.hasNext()) {
+                final Map.Entry<String, JsonNode> metric = secondary.next();
+                if (metric.getKey().endsWith(ALLOCATION)) {
+                    allocated = metric.getValue().path("score").asDouble();
+                }
+            }
+            scores.put(key, new double[]{benchmark.path("primaryMetric").path("score").asDouble(), allocated});
+        }
+        return scores;
+    }
+}
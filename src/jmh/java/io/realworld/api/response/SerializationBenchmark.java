@@ -0,0 +1,99 @@
+package io.realworld.api.response;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.dropwizard.jackson.Jackson;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A default sized page of reviews and of movies written by the object mapper Dropwizard serves responses with.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class SerializationBenchmark {
+    private static final int PAGE = 20;
+
+    private final ObjectMapper mapper = Jackson.newObjectMapper();
+    private MovieReviewList reviews;
+    private MovieList movies;
+
+    @Setup
+    public void setUp() {
+        final Instant now = Instant.now();
+        final List<MovieReview> reviewPage = new ArrayList<>();
+        final List<Movie> moviePage = new ArrayList<>();
+        for (long i = 1; i <= PAGE; i++) {
+            final Profile author = new Profile();
+            author.setId(i);
+            author.setUsername("critic" + i);
+            author.setBio("Watches movies");
+            author.setImage("https://example.com/critic" + i + ".png");
+            author.setFollowing(i % 2 == 0);
+
+            final MovieReview review = new MovieReview();
+            review.setId(i);
+            review.setSlug("review-" + i);
+            review.setTitle("Review " + i);
+            review.setDescription("Fifty years later");
+            review.setBody("A long review body ".repeat(20));
+            review.setTagList(Set.of("drama", "crime", "classic"));
+            review.setFavorited(i % 3 == 0);
+            review.setFavoritesCount(i * 7);
+            review.setCreatedAt(now);
+            review.setUpdatedAt(now);
+            review.setAuthor(author);
+            reviewPage.add(review);
+
+            final Movie movie = new Movie();
+            movie.setId(i);
+            movie.setTitle("Movie " + i);
+            movie.setDescription("A movie");
+            movie.setBody("A long synopsis ".repeat(20));
+            movie.setYearReleased("1972");
+            movie.setLanguages("English, Italian");
+            movie.setActorList(Set.of("Marlon Brando", "Al Pacino", "James Caan"));
+            movie.setLiked(i % 2 == 0);
+            movie.setLikesCount(i * 11);
+            movie.setReviewsCount(i * 3);
+            movie.setLastReviewedAt(now);
+            movie.setCreatedAt(now);
+            movie.setUpdatedAt(now);
+            moviePage.add(movie);
+        }
+        reviews = new MovieReviewList();
+        reviews.setArticles(reviewPage);
+        reviews.setReviewsCount(1_000);
+        movies = new MovieList();
+        movies.setMovies(moviePage);
+        movies.setMoviesCount(1_000);
+    }
+
+    @Benchmark
+    public byte[] reviewList() throws JsonProcessingException {
+        return mapper.writeValueAsBytes(reviews);
+    }
+
+    @Benchmark
+    public byte[] movieList() throws JsonProcessingException {
+        return mapper.writeValueAsBytes(movies);
+    }
+}
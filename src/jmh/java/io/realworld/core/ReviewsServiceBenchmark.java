@@ -0,0 +1,113 @@
+package io.realworld.core;
+
+import com.codahale.metrics.MetricRegistry;
+import io.realworld.db.NameId;
+import io.realworld.db.NameSource;
+import io.realworld.db.UserRepository;
+import io.realworld.db.mapper.ArticleTagsMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.LongStream;
+
+/**
+ * The in-memory part of hydrating a page of 20 reviews in {@link ReviewsService}: grouping the tag rows into tag names
+ * per review and flagging the followed authors. Plus the slug derivation of a new review.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ReviewsServiceBenchmark {
+    private static final int PAGE = 20;
+    private static final int TAGS = 500;
+
+    private NameDictionary tagNames;
+    private FollowGraph followGraph;
+    private List<ArticleTagsMapper.ArticleIdTag> tagRows;
+    private Set<Long> authorIds;
+
+    @Setup
+    public void setUp() {
+        final List<NameId> tags = LongStream.rangeClosed(1, TAGS).mapToObj(id -> new NameId(id, "tag" + id))
+                .collect(Collectors.toList());
+        tagNames = new NameDictionary("tags", new NameSource() {
+            @Override
+            public List<NameId> findAll() {
+                return tags;
+            }
+
+            @Override
+            public List<NameId> findByIds(final Collection<Long> ids) {
+                return List.of();
+            }
+
+            @Override
+            public List<NameId> findByNames(final Collection<String> names) {
+                return List.of();
+            }
+
+            @Override
+            public List<NameId> insert(final Collection<String> names) {
+                return List.of();
+            }
+        }, new MetricRegistry());
+        tagNames.start();
+
+        tagRows = new ArrayList<>();
+        for (long review = 1; review <= PAGE; review++) {
+            for (long k = 0; k < 3; k++) {
+                final ArticleTagsMapper.ArticleIdTag row = new ArticleTagsMapper.ArticleIdTag();
+                row.setArticleId(review);
+                row.setTagId(1 + (review * 7 + k) % TAGS);
+                tagRows.add(row);
+            }
+        }
+
+        followGraph = new FollowGraph((UserRepository) Proxy.newProxyInstance(UserRepository.class.getClassLoader(),
+                new Class<?>[]{UserRepository.class}, (proxy, method, args) -> List.of()), 1_000_000, new MetricRegistry());
+        followGraph.start();
+        for (long followed = 1; followed <= 200; followed++) {
+            followGraph.follow(followed * 3, 1L);
+        }
+        authorIds = new HashSet<>();
+        for (long author = 1; author <= PAGE; author++) {
+            authorIds.add(author * 5);
+        }
+    }
+
+    @Benchmark
+    public Map<Long, Set<String>> groupTags() {
+        return tagNames.group(tagRows, ArticleTagsMapper.ArticleIdTag::getArticleId,
+                ArticleTagsMapper.ArticleIdTag::getTagId);
+    }
+
+    @Benchmark
+    public Set<Long> followedAuthors() {
+        return followGraph.followedAmong(1L, authorIds);
+    }
+
+    @Benchmark
+    public String slug() {
+        return ReviewsService.slugOf("  The Godfather: Part II, fifty years later!  ");
+    }
+}
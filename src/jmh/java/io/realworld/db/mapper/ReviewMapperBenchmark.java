@@ -0,0 +1,61 @@
+package io.realworld.db.mapper;
+
+import io.realworld.api.response.MovieReview;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.lang.reflect.Proxy;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * One review row mapped by {@link ReviewMapper}, read from an in-memory result set so only the mapping is measured.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ReviewMapperBenchmark {
+
+    private final ReviewMapper mapper = new ReviewMapper();
+    private ResultSet row;
+
+    @Setup
+    public void setUp() {
+        final LocalDateTime now = LocalDateTime.now();
+        final Map<String, Object> columns = Map.ofEntries(
+                Map.entry("ID", 42L),
+                Map.entry("SLUG", "the-godfather-is-still-the-best"),
+                Map.entry("TITLE", "The Godfather is still the best"),
+                Map.entry("DESCRIPTION", "Fifty years later"),
+                Map.entry("BODY", "A long review body ".repeat(20)),
+                Map.entry("MOVIE_ID", 7L),
+                Map.entry("FAVORITES_COUNT", 12),
+                Map.entry("CREATED_AT", now),
+                Map.entry("UPDATED_AT", now),
+                Map.entry("AUTHOR_ID", 3L),
+                Map.entry("USERNAME", "critic"),
+                Map.entry("BIO", "Watches movies"),
+                Map.entry("IMAGE", "https://example.com/critic.png"));
+        row = (ResultSet) Proxy.newProxyInstance(ResultSet.class.getClassLoader(), new Class<?>[]{ResultSet.class},
+                (proxy, method, args) -> columns.get((String) args[0]));
+    }
+
+    @Benchmark
+    public MovieReview map() throws SQLException {
+        return mapper.map(row, null);
+    }
+}
@@ -0,0 +1,87 @@
+package io.realworld.security;
+
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.SignatureAlgorithm;
+import io.jsonwebtoken.security.Keys;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import javax.crypto.spec.SecretKeySpec;
+import java.time.Duration;
+import java.util.Base64;
+import java.util.Date;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Password checks on login and token handling on every authenticated request.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class SecurityBenchmark {
+
+    private final PasswordEncoder passwordEncoder = new PasswordEncoder();
+    private JwtConfiguration jwtConfig;
+    private JwtTokenService jwtTokenService;
+    private String encodedPassword;
+    private JwtToken token;
+
+    @Setup
+    public void setUp() {
+        final String secret = Base64.getEncoder()
+                .encodeToString(Keys.secretKeyFor(SignatureAlgorithm.HS256).getEncoded());
+        jwtConfig = new JwtConfiguration(secret, Duration.ofHours(1));
+        jwtTokenService = new JwtTokenService(jwtConfig);
+        encodedPassword = passwordEncoder.encode("correct horse battery staple");
+        token = jwtTokenService.generateJwt(42L, "critic", "user");
+    }
+
+    @Benchmark
+    public boolean passwordMatches() {
+        return passwordEncoder.matches("correct horse battery staple", encodedPassword);
+    }
+
+    @Benchmark
+    public Optional<UserPrincipal> authenticate() {
+        return jwtTokenService.authenticate(token);
+    }
+
+    @Benchmark
+    public JwtToken generateJwt() {
+        return jwtTokenService.generateJwt(42L, "critic", "user");
+    }
+
+    @Benchmark
+    public JwtToken currentJwt() {
+        return jwtTokenService.currentJwt(42L, "critic", "user");
+    }
+
+    /**
+     * How tokens were signed before {@link TokenMinter}: a new key and a full JJWT builder per token.
+     */
+    @Benchmark
+    public String generateJwtWithJjwtBuilder() {
+        final Date issuedAt = new Date();
+        return Jwts.builder()
+                .setSubject("critic")
+                .claim("profiles", "user")
+                .claim("uid", 42L)
+                .setIssuedAt(issuedAt)
+                .setExpiration(new Date(issuedAt.getTime() + jwtConfig.getTokenExpiration().toMillis()))
+                .signWith(new SecretKeySpec(jwtConfig.getSecret(), SignatureAlgorithm.HS256.getJcaName()),
+                        SignatureAlgorithm.HS256)
+                .compact();
+    }
+}
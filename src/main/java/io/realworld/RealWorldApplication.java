@@ -4,12 +4,8 @@ import com.fasterxml.jackson.databind.DeserializationFeature;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.SerializationFeature;
 import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
-import com.github.isopropylcyanide.jdbiunitofwork.core.JdbiHandleManager;
-import com.github.isopropylcyanide.jdbiunitofwork.core.LinkedRequestScopedJdbiHandleManager;
-import com.github.isopropylcyanide.jdbiunitofwork.core.ManagedHandleInvocationHandler;
-import com.github.isopropylcyanide.jdbiunitofwork.core.RequestScopedJdbiHandleManager;
-import com.github.isopropylcyanide.jdbiunitofwork.listener.JdbiUnitOfWorkApplicationEventListener;
 import com.google.common.collect.ImmutableMap;
+import com.google.common.base.Throwables;
 import com.google.common.collect.ImmutableSet;
 import com.google.common.reflect.Reflection;
 import io.dropwizard.Application;
@@ -19,6 +15,7 @@ import io.dropwizard.auth.basic.BasicCredentialAuthFilter;
 import io.dropwizard.configuration.EnvironmentVariableSubstitutor;
 import io.dropwizard.configuration.SubstitutingSourceProvider;
 import io.dropwizard.db.DataSourceFactory;
+import io.dropwizard.db.PooledDataSourceFactory;
 import io.dropwizard.jdbi3.JdbiFactory;
 import io.dropwizard.jersey.setup.JerseyEnvironment;
 import io.dropwizard.migrations.MigrationsBundle;
@@ -27,15 +24,29 @@ import io.dropwizard.setup.Environment;
 import io.realworld.api.response.User;
 import io.realworld.core.*;
 import io.realworld.db.*;
+import io.realworld.db.unitofwork.LazyHandleInvocationHandler;
+import io.realworld.db.unitofwork.LazyJdbiHandleManager;
+import io.realworld.db.unitofwork.UnitOfWorkListener;
 import io.realworld.resources.*;
 import io.realworld.resources.exceptionhandling.ApplicationExceptionMapper;
 import io.realworld.resources.exceptionhandling.GeneralExceptionMapper;
 import io.realworld.security.*;
+import io.realworld.tasks.RebuildMovieReviewStatsTask;
+import io.realworld.tasks.ReloadTagPopularityTask;
 import org.glassfish.jersey.internal.inject.AbstractBinder;
 import org.glassfish.jersey.server.filter.RolesAllowedDynamicFeature;
 import org.jdbi.v3.core.Jdbi;
+import org.jdbi.v3.core.statement.SqlStatements;
 
-import java.util.HashSet;
+import java.lang.reflect.InvocationTargetException;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
 
 import static io.realworld.security.JwtAuthFilter.TOKEN_PREFIX;
 
@@ -64,11 +75,12 @@ public class RealWorldApplication extends Application<RealWorldConfiguration> {
 
     @Override
     public void run(final RealWorldConfiguration config, final Environment env) {
-        final Jdbi jdbi = new JdbiFactory().build(env, config.getDataSourceFactory(), "database");
-        final JdbiHandleManager jdbiHandleManager = new RequestScopedJdbiHandleManager(jdbi);
+        final Jdbi jdbi = new JdbiFactory().build(env, pooledDataSourceFactory(config.getDataSourceFactory(), config), "database");
+        final Jdbi replica = createReplicaJdbi(config, env);
+        final LazyJdbiHandleManager jdbiHandleManager = new LazyJdbiHandleManager(jdbi, replica, env.metrics());
 
-        final PasswordEncoder passwordEncoder = new PasswordEncoder();
-        final JwtTokenService jwtTokenService = new JwtTokenService(config.getJwt());
+        final PasswordEncoder passwordEncoder = createPasswordEncoder(config.getPasswordHashing(), env);
+        final JwtTokenService jwtTokenService = new JwtTokenService(config.getJwt(), env.metrics());
 
 
 //        final ReviewRepository reviewRepository = jdbi.onDemand(ReviewRepository.class);
@@ -85,32 +97,166 @@ public class RealWorldApplication extends Application<RealWorldConfiguration> {
         final TagRepository tagRepository = createNewProxy (TagRepository.class, jdbiHandleManager);
         final MoviesRepository moviesRepository = createNewProxy(MoviesRepository.class, jdbiHandleManager);
         final ActorRepository actorRepository = createNewProxy(ActorRepository.class, jdbiHandleManager);
+        final MovieReviewStatsRepository movieReviewStats = createNewProxy(MovieReviewStatsRepository.class, jdbiHandleManager);
+        final UserFeedRepository userFeedRepository = createNewProxy(UserFeedRepository.class, jdbiHandleManager);
 //        final TransactionalMovieRepository transactionalMovieRepository = jdbi.onDemand(TransactionalMovieRepository.class);
 
 
-        final ReviewsService reviewsService = new ReviewsService(reviewRepository, userRepository, commentRepository, tagRepository);
-        final MoviesService moviesService = new MoviesService(userRepository, moviesRepository, actorRepository);
-        final CommentService commentService = new CommentService(commentRepository, reviewRepository, userRepository);
-        final ProfileService profileService = new ProfileService(userRepository);
-        final UserService userService = new UserService(userRepository, passwordEncoder, jwtTokenService);
+        final UserIdResolver userIds = new UserIdResolver(userRepository);
+        final ChangeVersions changeVersions = new ChangeVersions(jdbiHandleManager, jdbiHandleManager::readsFromReplica);
+        final ReviewCountCache reviewCounts = new ReviewCountCache(config.getReviewCounts(), jdbiHandleManager);
+        final ReviewCache reviewCache = new ReviewCache(config.getReviewCache(), jdbiHandleManager);
+        final ReviewRepository flushReviewRepository = jdbi.onDemand(ReviewRepository.class);
+        final ScheduledExecutorService countersFlush = env.lifecycle().scheduledExecutorService("counters-flush").build();
+        // the flushed deltas leave pending() before their write commits, so lists read in between are outdated
+        final BufferedCounters favoritesCounts = bufferedCounters("favorites", deltas -> {
+            flushReviewRepository.applyFavoritesDeltas(deltas);
+            reviewCache.invalidateIds(deltas.stream().map(CounterDelta::getId).collect(Collectors.toSet()));
+            changeVersions.bumpReviews(null);
+        }, countersFlush, config.getCounters(), env);
+        final MoviesRepository flushMoviesRepository = jdbi.onDemand(MoviesRepository.class);
+        final BufferedCounters likesCounts = bufferedCounters("likes", deltas -> {
+            flushMoviesRepository.applyLikesDeltas(deltas);
+            changeVersions.bump(ChangeVersions.Scope.MOVIES);
+        }, countersFlush, config.getCounters(), env);
+        final NameDictionary tagNames = nameDictionary("tags", jdbi.onDemand(TagRepository.class).tagNames(), env);
+        final NameDictionary actorNames = nameDictionary("actors", jdbi.onDemand(ActorRepository.class).actorNames(), env);
+        final TagPopularity tagPopularity = new TagPopularity(jdbi.onDemand(TagRepository.class), jdbiHandleManager);
+        env.lifecycle().manage(tagPopularity);
+        final UserFeed userFeed = new UserFeed(userFeedRepository, jdbi.onDemand(UserFeedRepository.class),
+                env.lifecycle().scheduledExecutorService("user-feed-trim").build(), config.getFeed(), env.metrics());
+        env.lifecycle().manage(userFeed);
+        final FollowGraph followGraph = new FollowGraph(jdbi.onDemand(UserRepository.class),
+                config.getFollowGraph().getMaxEdges(), env.metrics());
+        env.lifecycle().manage(followGraph);
+        final ReviewsService reviewsService = new ReviewsService(reviewRepository, userRepository, commentRepository, tagRepository, tagNames, tagPopularity, reviewCounts, userIds, movieReviewStats, favoritesCounts, reviewCache, userFeed, followGraph, changeVersions);
+        final MovieEnrichment movieEnrichment = createMovieEnrichment(config.getMovieEnrichment(), jdbi, actorNames, env);
+        final MoviesService moviesService = new MoviesService(userRepository, moviesRepository, actorRepository, actorNames, userIds, movieEnrichment, likesCounts, changeVersions);
+        final CommentService commentService = new CommentService(commentRepository, reviewRepository, userIds, changeVersions);
+        final ProfileService profileService = new ProfileService(userRepository, userIds, userFeed, followGraph, reviewCounts, changeVersions);
+        final UserService userService = new UserService(userRepository, passwordEncoder,
+                new CredentialCache(config.getCredentialCache(), env.metrics()), jwtTokenService, userIds, changeVersions);
 
-        env.jersey().register(new ReviewsResorce(reviewsService));
-        env.jersey().register(new CommentResource(commentService));
+        env.jersey().register(new ReviewsResorce(reviewsService, changeVersions));
+        env.jersey().register(new CommentResource(commentService, changeVersions));
         env.jersey().register(new ProfileResource(profileService));
-        env.jersey().register(new MoviesResource(userService, moviesService, reviewsService));
+        env.jersey().register(new MoviesResource(userService, moviesService, reviewsService, changeVersions));
         env.jersey().register(new UsersResource(userService, reviewsService));
-        env.jersey().register(new TagsResource(tagRepository));
+        env.jersey().register(new TagsResource(tagPopularity));
+
+        env.admin().addTask(new RebuildMovieReviewStatsTask(jdbi.onDemand(MovieReviewStatsRepository.class)));
+        env.admin().addTask(new ReloadTagPopularityTask(tagPopularity));
 
         env.jersey().register(new ApplicationExceptionMapper());
         env.jersey().register(new GeneralExceptionMapper());
 
         // Register Application Even Listener for Unit Of Work
-        env.jersey().register(new JdbiUnitOfWorkApplicationEventListener(jdbiHandleManager, new HashSet<String>()));
+        env.jersey().register(new UnitOfWorkListener(jdbiHandleManager, config.getReadReplica().getPrimaryAfterWrite()));
 
         configureJsonMapper(env.getObjectMapper());
         configureAuth(env.jersey(), jwtTokenService, userService);
     }
 
+    private PooledDataSourceFactory pooledDataSourceFactory(final DataSourceFactory dataSource,
+                                                            final RealWorldConfiguration config) {
+        if (config.getConnectionPool().getImplementation() == ConnectionPoolConfiguration.Implementation.HIKARI) {
+            return new HikariDataSourceFactory(dataSource, config.getConnectionPool());
+        }
+        return dataSource;
+    }
+
+    /*
+     * Only request scoped repositories are routed to the replica; the on-demand ones used by background work and
+     * start-up loading always run on the primary.
+     */
+    private Jdbi createReplicaJdbi(final RealWorldConfiguration config, final Environment env) {
+        final DataSourceFactory replica = config.getReadReplica().getDataSourceFactory();
+        if (replica == null) {
+            return null;
+        }
+        return new JdbiFactory().build(env, pooledDataSourceFactory(replica, config), "readReplica");
+    }
+
+    /*
+     * Enrichment steps run off the request thread, so they use on-demand repositories that take a pooled handle per
+     * call instead of the request scoped proxies.
+     */
+    private MovieEnrichment createMovieEnrichment(final EnrichmentConfiguration config,
+                                                  final Jdbi jdbi,
+                                                  final NameDictionary actorNames,
+                                                  final Environment env) {
+        final ExecutorService executor = env.lifecycle().executorService("movie-enrichment-%d")
+                .minThreads(config.getThreads())
+                .maxThreads(config.getThreads())
+                .workQueue(new ArrayBlockingQueue<>(config.getQueueCapacity()))
+                .rejectedExecutionHandler(new ThreadPoolExecutor.AbortPolicy())
+                .build();
+        return new MovieEnrichment(
+                onDemandWithQueryTimeout(jdbi, ActorRepository.class, config.getStepTimeout()),
+                actorNames,
+                onDemandWithQueryTimeout(jdbi, MoviesRepository.class, config.getStepTimeout()),
+                executor, config.getStepTimeout(), env.metrics());
+    }
+
+    /*
+     * Like Jdbi.onDemand, with statements the driver cancels after the timeout. JDBC counts it in whole seconds.
+     */
+    private static <T> T onDemandWithQueryTimeout(final Jdbi jdbi, final Class<T> type, final Duration timeout) {
+        final int seconds = (int) Math.max(1, (timeout.toMillis() + 999) / 1000);
+        return Reflection.newProxy(type, (proxy, method, args) -> jdbi.withHandle(handle -> {
+            handle.getConfig(SqlStatements.class).setQueryTimeout(seconds);
+            try {
+                return method.invoke(handle.attach(type), args);
+            } catch (final InvocationTargetException e) {
+                Throwables.throwIfUnchecked(e.getCause());
+                throw new IllegalStateException(e.getCause());
+            }
+        }));
+    }
+
+    /*
+     * Calibrated before the application accepts requests, so the first logins already use the final cost.
+     */
+    private PasswordEncoder createPasswordEncoder(final PasswordHashingConfiguration config, final Environment env) {
+        final Pbkdf2PasswordHash passwordHash = new Pbkdf2PasswordHash(config.getAlgorithm(), config.getMinIterations());
+        if (config.isCalibrate()) {
+            passwordHash.calibrate(config.getTargetLatency(), config.getMinIterations());
+        }
+        final ExecutorService executor = env.lifecycle().executorService("password-hashing-%d")
+                .minThreads(config.getThreads())
+                .maxThreads(config.getThreads())
+                .workQueue(new ArrayBlockingQueue<>(config.getQueueCapacity()))
+                .rejectedExecutionHandler(new ThreadPoolExecutor.AbortPolicy())
+                .build();
+        return new PasswordEncoder(passwordHash, executor, env.metrics());
+    }
+
+    /*
+     * Loaded when the application starts; the source is an on-demand repository so names inserted by a request are
+     * committed independently of it.
+     */
+    private NameDictionary nameDictionary(final String name,
+                                          final NameSource source,
+                                          final Environment env) {
+        final NameDictionary dictionary = new NameDictionary(name, source, env.metrics());
+        env.lifecycle().manage(dictionary);
+        return dictionary;
+    }
+
+    /*
+     * Managed objects are stopped in reverse order, so the final flush runs before the scheduler and the data source
+     * registered ahead of it are shut down.
+     */
+    private BufferedCounters bufferedCounters(final String name,
+                                              final Consumer<List<CounterDelta>> writer,
+                                              final ScheduledExecutorService scheduler,
+                                              final CountersConfiguration config,
+                                              final Environment env) {
+        final BufferedCounters counters = new BufferedCounters(name, writer, scheduler, config.getFlushInterval(), env.metrics());
+        env.lifecycle().manage(counters);
+        return counters;
+    }
+
     private void configureAuth (final JerseyEnvironment env, final JwtTokenService jwtTokenService, UserService userSvc) {
 
         // Use Polymorphic Auth
@@ -149,8 +295,8 @@ public class RealWorldApplication extends Application<RealWorldConfiguration> {
         bootstrap.setConfigurationSourceProvider(provider);
     }
 
-    private <T> T createNewProxy(Class<T> daoClass, JdbiHandleManager handleManager) {
-        Object proxiedInstance = Reflection.newProxy(daoClass, new ManagedHandleInvocationHandler<>(handleManager, daoClass));
+    private <T> T createNewProxy(Class<T> daoClass, LazyJdbiHandleManager handleManager) {
+        Object proxiedInstance = Reflection.newProxy(daoClass, new LazyHandleInvocationHandler<>(handleManager, daoClass));
         return daoClass.cast(proxiedInstance);
     }
 }
@@ -3,26 +3,106 @@ package io.realworld;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import io.dropwizard.Configuration;
 import io.dropwizard.db.DataSourceFactory;
+import io.realworld.core.CountCacheConfiguration;
+import io.realworld.core.CountersConfiguration;
+import io.realworld.core.EnrichmentConfiguration;
+import io.realworld.core.FeedConfiguration;
+import io.realworld.core.FollowGraphConfiguration;
+import io.realworld.core.ReviewCacheConfiguration;
+import io.realworld.db.ConnectionPoolConfiguration;
+import io.realworld.db.ReadReplicaConfiguration;
+import io.realworld.security.CredentialCacheConfiguration;
 import io.realworld.security.JwtConfiguration;
+import io.realworld.security.PasswordHashingConfiguration;
 
 import javax.validation.Valid;
 import javax.validation.constraints.NotNull;
 
 public class RealWorldConfiguration extends Configuration {
     private final DataSourceFactory dataSourceFactory;
+    private final ConnectionPoolConfiguration connectionPool;
+    private final ReadReplicaConfiguration readReplica;
     private final JwtConfiguration jwt;
+    private final CountCacheConfiguration reviewCounts;
+    private final EnrichmentConfiguration movieEnrichment;
+    private final CountersConfiguration counters;
+    private final ReviewCacheConfiguration reviewCache;
+    private final FeedConfiguration feed;
+    private final FollowGraphConfiguration followGraph;
+    private final PasswordHashingConfiguration passwordHashing;
+    private final CredentialCacheConfiguration credentialCache;
 
     public RealWorldConfiguration(@JsonProperty("datasource") @Valid @NotNull final DataSourceFactory dataSourceFactory,
-                                  @JsonProperty("jwt") @Valid @NotNull final JwtConfiguration jwt) {
+                                  @JsonProperty("jwt") @Valid @NotNull final JwtConfiguration jwt,
+                                  @JsonProperty("reviewCounts") @Valid final CountCacheConfiguration reviewCounts,
+                                  @JsonProperty("movieEnrichment") @Valid final EnrichmentConfiguration movieEnrichment,
+                                  @JsonProperty("counters") @Valid final CountersConfiguration counters,
+                                  @JsonProperty("reviewCache") @Valid final ReviewCacheConfiguration reviewCache,
+                                  @JsonProperty("feed") @Valid final FeedConfiguration feed,
+                                  @JsonProperty("followGraph") @Valid final FollowGraphConfiguration followGraph,
+                                  @JsonProperty("passwordHashing") @Valid final PasswordHashingConfiguration passwordHashing,
+                                  @JsonProperty("credentialCache") @Valid final CredentialCacheConfiguration credentialCache,
+                                  @JsonProperty("connectionPool") @Valid final ConnectionPoolConfiguration connectionPool,
+                                  @JsonProperty("readReplica") @Valid final ReadReplicaConfiguration readReplica) {
         this.dataSourceFactory = dataSourceFactory;
         this.jwt = jwt;
+        this.reviewCounts = reviewCounts != null ? reviewCounts : CountCacheConfiguration.defaults();
+        this.movieEnrichment = movieEnrichment != null ? movieEnrichment : EnrichmentConfiguration.defaults();
+        this.counters = counters != null ? counters : CountersConfiguration.defaults();
+        this.reviewCache = reviewCache != null ? reviewCache : ReviewCacheConfiguration.defaults();
+        this.feed = feed != null ? feed : FeedConfiguration.defaults();
+        this.followGraph = followGraph != null ? followGraph : FollowGraphConfiguration.defaults();
+        this.passwordHashing = passwordHashing != null ? passwordHashing : PasswordHashingConfiguration.defaults();
+        this.credentialCache = credentialCache != null ? credentialCache : CredentialCacheConfiguration.defaults();
+        this.connectionPool = connectionPool != null ? connectionPool : ConnectionPoolConfiguration.defaults();
+        this.readReplica = readReplica != null ? readReplica : ReadReplicaConfiguration.defaults();
     }
 
     public DataSourceFactory getDataSourceFactory() {
         return dataSourceFactory;
     }
 
+    public ConnectionPoolConfiguration getConnectionPool() {
+        return connectionPool;
+    }
+
+    public ReadReplicaConfiguration getReadReplica() {
+        return readReplica;
+    }
+
     public JwtConfiguration getJwt() {
         return jwt;
     }
+
+    public CountCacheConfiguration getReviewCounts() {
+        return reviewCounts;
+    }
+
+    public EnrichmentConfiguration getMovieEnrichment() {
+        return movieEnrichment;
+    }
+
+    public CountersConfiguration getCounters() {
+        return counters;
+    }
+
+    public ReviewCacheConfiguration getReviewCache() {
+        return reviewCache;
+    }
+
+    public FeedConfiguration getFeed() {
+        return feed;
+    }
+
+    public FollowGraphConfiguration getFollowGraph() {
+        return followGraph;
+    }
+
+    public PasswordHashingConfiguration getPasswordHashing() {
+        return passwordHashing;
+    }
+
+    public CredentialCacheConfiguration getCredentialCache() {
+        return credentialCache;
+    }
 }
@@ -0,0 +1,22 @@
+package io.realworld.api.request;
+
+import com.fasterxml.jackson.annotation.JsonRootName;
+
+import javax.validation.constraints.NotEmpty;
+import javax.validation.constraints.Size;
+import java.util.Set;
+
+@JsonRootName("favorites")
+public class NewFavorites {
+    @NotEmpty
+    @Size(max = 100)
+    private Set<String> slugs;
+
+    public Set<String> getSlugs() {
+        return slugs;
+    }
+
+    public void setSlugs(final Set<String> slugs) {
+        this.slugs = slugs;
+    }
+}
@@ -17,6 +17,8 @@ public class Movie {
     private Instant updatedAt;
     private Boolean liked;
     private long likesCount;
+    private long reviewsCount;
+    private Instant lastReviewedAt;
 
     public String getTitle() {
         return title;
@@ -98,6 +100,22 @@ public class Movie {
         this.likesCount = likesCount;
     }
 
+    public long getReviewsCount() {
+        return reviewsCount;
+    }
+
+    public void setReviewsCount(long reviewsCount) {
+        this.reviewsCount = reviewsCount;
+    }
+
+    public Instant getLastReviewedAt() {
+        return lastReviewedAt;
+    }
+
+    public void setLastReviewedAt(Instant lastReviewedAt) {
+        this.lastReviewedAt = lastReviewedAt;
+    }
+
     public Long getId() {
         return id;
     }
@@ -1,10 +1,14 @@
 package io.realworld.api.response;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
 import java.util.List;
 
 public class MovieList {
     private List<Movie> movies;
     private int moviesCount;
+    @JsonIgnore
+    private boolean partial;
 
     public List<Movie> getMovies() {
         return movies;
@@ -21,4 +25,15 @@ public class MovieList {
     public void setMoviesCount(final int moviesCount) {
         this.moviesCount = moviesCount;
     }
+
+    /**
+     * Whether some movies miss fields an enrichment step could not load in time; such a list must not be cached.
+     */
+    public boolean isPartial() {
+        return partial;
+    }
+
+    public void setPartial(final boolean partial) {
+        this.partial = partial;
+    }
 }
@@ -17,6 +17,8 @@ public class MovieReview {
     private Instant createdAt;
     private Instant updatedAt;
     private Set<String> tagList;
+    @JsonIgnore
+    private Set<Long> tagIds;
     private Profile author;
     private Long movieId;
 
@@ -100,6 +102,14 @@ public class MovieReview {
         this.tagList = tagList;
     }
 
+    public Set<Long> getTagIds() {
+        return tagIds;
+    }
+
+    public void setTagIds(final Set<Long> tagIds) {
+        this.tagIds = tagIds;
+    }
+
     public Profile getAuthor() {
         return author;
     }
@@ -1,10 +1,15 @@
 package io.realworld.api.response;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
+
 import java.util.List;
 
 public class MovieReviewList {
     private List<MovieReview> movieReviews;
-    private int reviewsCount;
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private Integer reviewsCount;
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private String nextCursor;
 
     public List<MovieReview> getArticles() {
         return movieReviews;
@@ -14,11 +19,19 @@ public class MovieReviewList {
         this.movieReviews = movieReviews;
     }
 
-    public int getReviewsCount() {
+    public Integer getReviewsCount() {
         return reviewsCount;
     }
 
-    public void setReviewsCount(final int reviewsCount) {
+    public void setReviewsCount(final Integer reviewsCount) {
         this.reviewsCount = reviewsCount;
     }
+
+    public String getNextCursor() {
+        return nextCursor;
+    }
+
+    public void setNextCursor(final String nextCursor) {
+        this.nextCursor = nextCursor;
+    }
 }
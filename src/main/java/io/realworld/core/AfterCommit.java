@@ -0,0 +1,20 @@
+package io.realworld.core;
+
+/**
+ * Defers in-memory bookkeeping that must not be seen before the write it follows is visible to other requests, such
+ * as dropping cache entries: a request reading in between would otherwise load and keep the old rows again.
+ */
+@FunctionalInterface
+public interface AfterCommit {
+
+    /**
+     * For callers that are never part of a transaction.
+     */
+    AfterCommit IMMEDIATELY = Runnable::run;
+
+    /**
+     * Runs the action once the current unit of work has committed, or right away outside of one. Actions of a unit of
+     * work that rolls back are dropped.
+     */
+    void run(Runnable action);
+}
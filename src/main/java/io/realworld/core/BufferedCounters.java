@@ -0,0 +1,151 @@
+package io.realworld.core;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.Histogram;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
+import io.dropwizard.lifecycle.Managed;
+import io.realworld.db.CounterDelta;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+import static com.codahale.metrics.MetricRegistry.name;
+
+/**
+ * Write-behind buffer for a denormalized counter column such as articles.FAVORITES_COUNT.
+ *
+ * <p>
+ * Increments land in a {@link LongAdder} per row id instead of an {@code UPDATE ... + 1} per request, which queues
+ * every writer of a popular row behind the same row lock. The deltas are written on a schedule in one multi-row
+ * statement and once more when the application stops. A failed flush puts its deltas back for the next attempt.
+ *
+ * <p>
+ * The column lags behind by up to one flush interval; {@link #pending(long)} gives the not yet written part for
+ * responses that must reflect the caller's own change. A flush takes its deltas out of {@link #pending(long)} before
+ * the writer commits them, so reads in between miss them: writers must outdate what such reads may have cached, e.g.
+ * by bumping {@link ChangeVersions}, once the write succeeded.
+ */
+public class BufferedCounters implements Managed {
+    private static final Logger LOG = LoggerFactory.getLogger(BufferedCounters.class);
+
+    private final String name;
+    private final Consumer<List<CounterDelta>> writer;
+    private final ScheduledExecutorService scheduler;
+    private final Duration flushInterval;
+    private final Map<Long, LongAdder> counters = new ConcurrentHashMap<>();
+    /*
+     * Adders removed from the map while a writer may still hold them, drained one flush later.
+     */
+    private final Queue<Map.Entry<Long, LongAdder>> retired = new ConcurrentLinkedQueue<>();
+    private final AtomicLong oldestPendingNanos = new AtomicLong();
+    private final Histogram batchSize;
+    private final Timer flushes;
+    private ScheduledFuture<?> flushTask;
+
+    public BufferedCounters(final String name,
+                            final Consumer<List<CounterDelta>> writer,
+                            final ScheduledExecutorService scheduler,
+                            final Duration flushInterval,
+                            final MetricRegistry metrics) {
+        this.name = name;
+        this.writer = writer;
+        this.scheduler = scheduler;
+        this.flushInterval = flushInterval;
+        this.batchSize = metrics.histogram(name(BufferedCounters.class, name, "batchSize"));
+        this.flushes = metrics.timer(name(BufferedCounters.class, name, "flush"));
+        metrics.register(name(BufferedCounters.class, name, "flushLagMillis"), (Gauge<Long>) this::flushLagMillis);
+        metrics.register(name(BufferedCounters.class, name, "pendingIds"), (Gauge<Integer>) counters::size);
+    }
+
+    public void add(final long id, final long delta) {
+        counters.computeIfAbsent(id, key -> new LongAdder()).add(delta);
+        oldestPendingNanos.compareAndSet(0, System.nanoTime());
+    }
+
+    public long pending(final long id) {
+        final LongAdder counter = counters.get(id);
+        return counter == null ? 0 : counter.sum();
+    }
+
+    public synchronized void flush() {
+        final long pendingSince = oldestPendingNanos.getAndSet(0);
+        final List<CounterDelta> deltas = new ArrayList<>();
+        Map.Entry<Long, LongAdder> late;
+        while ((late = retired.poll()) != null) {
+            collect(deltas, late.getKey(), late.getValue());
+        }
+        for (final Map.Entry<Long, LongAdder> counter : counters.entrySet()) {
+            if (!collect(deltas, counter.getKey(), counter.getValue())
+                    && counters.remove(counter.getKey(), counter.getValue())) {
+                retired.add(Map.entry(counter.getKey(), counter.getValue()));
+            }
+        }
+        if (deltas.isEmpty()) {
+            return;
+        }
+
+        // a stable row order keeps concurrent flushes of the same table from deadlocking
+        deltas.sort(Comparator.comparingLong(CounterDelta::getId));
+        batchSize.update(deltas.size());
+        try (Timer.Context ignored = flushes.time()) {
+            writer.accept(deltas);
+        } catch (final RuntimeException e) {
+            LOG.error("Flushing {} {} counters failed, retrying on the next flush", deltas.size(), name, e);
+            deltas.forEach(delta -> add(delta.getId(), delta.getDelta()));
+            if (pendingSince != 0) {
+                oldestPendingNanos.accumulateAndGet(pendingSince, Math::min);
+            }
+        }
+    }
+
+    @Override
+    public void start() {
+        final long interval = flushInterval.toMillis();
+        flushTask = scheduler.scheduleWithFixedDelay(this::flushQuietly, interval, interval, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public void stop() {
+        if (flushTask != null) {
+            flushTask.cancel(false);
+        }
+        flush();
+    }
+
+    private boolean collect(final List<CounterDelta> deltas, final long id, final LongAdder counter) {
+        final long delta = counter.sumThenReset();
+        if (delta != 0) {
+            deltas.add(new CounterDelta(id, delta));
+            return true;
+        }
+        return false;
+    }
+
+    private void flushQuietly() {
+        try {
+            flush();
+        } catch (final RuntimeException e) {
+            LOG.error("Flushing {} counters failed", name, e);
+        }
+    }
+
+    private long flushLagMillis() {
+        final long since = oldestPendingNanos.get();
+        return since == 0 ? 0 : TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - since);
+    }
+}
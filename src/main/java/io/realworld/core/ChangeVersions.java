@@ -0,0 +1,108 @@
+package io.realworld.core;
+
+import com.google.common.hash.Hashing;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Monotonic change counters the write services bump after every change, so list endpoints can tell from a few
+ * numbers whether their payload can have changed and answer a conditional GET without running the list query.
+ *
+ * <p>
+ * Review changes are counted twice: in {@link Scope#REVIEWS}, which every review list depends on, and in the counter
+ * of their movie, which is all a list restricted to that movie depends on. A review change whose movie is not known
+ * at the call site bumps the shared {@link Scope#MOVIE_REVIEWS} counter instead, which every per-movie list includes.
+ *
+ * <p>
+ * Bumps go through {@link AfterCommit}, so a tag never moves on before the change it stands for is visible: a list
+ * read in between would otherwise be served under the new tag with the old rows.
+ *
+ * <p>
+ * The counters live in memory and start over with a new random epoch on every start, so tags handed out by a
+ * previous process, or by another instance, never match. They only count the writes of this process, which makes the
+ * tags correct for a single instance only: with several instances behind a load balancer, a write served by one of
+ * them is not seen by the tags of the others.
+ */
+public class ChangeVersions {
+
+    public enum Scope {
+        MOVIES, REVIEWS, MOVIE_REVIEWS, COMMENTS, PROFILES
+    }
+
+    private final String epoch = Long.toHexString(ThreadLocalRandom.current().nextLong());
+    private final Map<Scope, AtomicLong> versions = new ConcurrentHashMap<>();
+    private final Map<Long, AtomicLong> movieReviews = new ConcurrentHashMap<>();
+    private final AfterCommit afterCommit;
+    private final BooleanSupplier replicaReads;
+
+    public ChangeVersions() {
+        this(AfterCommit.IMMEDIATELY, () -> false);
+    }
+
+    /**
+     * @param replicaReads whether the current request reads its lists from a replica
+     */
+    public ChangeVersions(final AfterCommit afterCommit, final BooleanSupplier replicaReads) {
+        this.afterCommit = afterCommit;
+        this.replicaReads = replicaReads;
+        for (final Scope scope : Scope.values()) {
+            versions.put(scope, new AtomicLong());
+        }
+    }
+
+    public void bump(final Scope scope) {
+        afterCommit.run(() -> versions.get(scope).incrementAndGet());
+    }
+
+    public void bumpReviews(final Long movieId) {
+        afterCommit.run(() -> {
+            versions.get(Scope.REVIEWS).incrementAndGet();
+            if (movieId != null) {
+                movieReviews.computeIfAbsent(movieId, id -> new AtomicLong()).incrementAndGet();
+            } else {
+                versions.get(Scope.MOVIE_REVIEWS).incrementAndGet();
+            }
+        });
+    }
+
+    public long version(final Scope scope) {
+        return versions.get(scope).get();
+    }
+
+    public long reviewsVersion(final Long movieId) {
+        if (movieId == null) {
+            return version(Scope.REVIEWS);
+        }
+        final AtomicLong movie = movieReviews.get(movieId);
+        // unscoped changes and the movie's own ones only ever grow, so their sum does too
+        return version(Scope.MOVIE_REVIEWS) + (movie == null ? 0 : movie.get());
+    }
+
+    /**
+     * Whether the lists of the current request may be tagged: not when they are read from a replica, whose rows can
+     * still miss writes the counters already include.
+     */
+    public boolean canTag() {
+        return !replicaReads.getAsBoolean();
+    }
+
+    /**
+     * Weak entity tag value for a list as seen by the given viewer, {@code null} for anonymous requests. The viewer
+     * part is a SHA-256 digest of the username, so two viewers never share a tag.
+     */
+    public String tag(final String viewer, final long... versions) {
+        final StringBuilder tag = new StringBuilder(epoch);
+        for (final long version : versions) {
+            tag.append('.').append(version);
+        }
+        if (viewer != null) {
+            tag.append('-').append(Hashing.sha256().hashString(viewer, StandardCharsets.UTF_8));
+        }
+        return tag.toString();
+    }
+}
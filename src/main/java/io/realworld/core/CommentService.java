@@ -5,9 +5,9 @@ import io.realworld.api.response.MovieReview;
 import io.realworld.api.response.Comment;
 import io.realworld.db.ReviewRepository;
 import io.realworld.db.CommentRepository;
-import io.realworld.db.UserRepository;
 import io.realworld.exceptions.ApplicationException;
 import io.realworld.exceptions.ErrorCode;
+import io.realworld.security.UserPrincipal;
 
 import java.util.List;
 import java.util.Objects;
@@ -17,23 +17,27 @@ import static io.realworld.exceptions.ErrorCode.NOT_FOUND;
 public class CommentService {
     private final CommentRepository commentRepository;
     private final ReviewRepository articleRepository;
-    private final UserRepository userRepository;
+    private final UserIdResolver userIds;
+    private final ChangeVersions changeVersions;
 
     public CommentService(final CommentRepository commentRepository,
                           final ReviewRepository articleRepository,
-                          final UserRepository userRepository) {
+                          final UserIdResolver userIds,
+                          final ChangeVersions changeVersions) {
         this.commentRepository = commentRepository;
         this.articleRepository = articleRepository;
-        this.userRepository = userRepository;
+        this.userIds = userIds;
+        this.changeVersions = changeVersions;
     }
 
-    public Comment saveComment(final String username, final String slug, final NewComment newComment) {
+    public Comment saveComment(final UserPrincipal user, final String slug, final NewComment newComment) {
         final Long articleId = articleRepository.findReviewIdBySlug(slug);
         if (articleId == null) {
             throw new ApplicationException(NOT_FOUND, "Could not find article [" + slug + "]");
         }
-        final Long userId = userRepository.findUserIdByUsername(username);
+        final Long userId = userIds.resolve(user);
         final long newCommentId = commentRepository.saveComment(userId, articleId, newComment.getBody());
+        changeVersions.bump(ChangeVersions.Scope.COMMENTS);
 
         return commentRepository.findCommentById(newCommentId);
     }
@@ -49,6 +53,7 @@ public class CommentService {
             throw new ApplicationException(ErrorCode.FORBIDDEN, "Not allowed to delete comment with id [" + commentId + "]");
         }
         commentRepository.deleteComment(slug, commentId);
+        changeVersions.bump(ChangeVersions.Scope.COMMENTS);
     }
 
     public List<Comment> findArticleComments(final String slug) {
@@ -0,0 +1,31 @@
+package io.realworld.core;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import java.time.Duration;
+
+public class CountCacheConfiguration {
+    private static final Duration DEFAULT_TTL = Duration.ofSeconds(30);
+    private static final long DEFAULT_MAXIMUM_SIZE = 10_000;
+
+    private final Duration ttl;
+    private final long maximumSize;
+
+    public CountCacheConfiguration(@JsonProperty("ttl") final Duration ttl,
+                                   @JsonProperty("maximumSize") final Long maximumSize) {
+        this.ttl = ttl != null ? ttl : DEFAULT_TTL;
+        this.maximumSize = maximumSize != null ? maximumSize : DEFAULT_MAXIMUM_SIZE;
+    }
+
+    public static CountCacheConfiguration defaults() {
+        return new CountCacheConfiguration(null, null);
+    }
+
+    public Duration getTtl() {
+        return ttl;
+    }
+
+    public long getMaximumSize() {
+        return maximumSize;
+    }
+}
@@ -0,0 +1,25 @@
+package io.realworld.core;
+
+import java.util.Locale;
+
+/**
+ * How the total of a paged list is computed.
+ */
+public enum CountMode {
+    /**
+     * Exact count, served from a short lived cache when possible.
+     */
+    EXACT,
+    /**
+     * Planner statistics when no filter is applied, otherwise the same as {@link #EXACT}.
+     */
+    ESTIMATED,
+    /**
+     * No total at all, the count query is skipped.
+     */
+    NONE;
+
+    public static CountMode fromString(final String value) {
+        return valueOf(value.toUpperCase(Locale.ROOT));
+    }
+}
@@ -0,0 +1,23 @@
+package io.realworld.core;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import java.time.Duration;
+
+public class CountersConfiguration {
+    private static final Duration DEFAULT_FLUSH_INTERVAL = Duration.ofSeconds(1);
+
+    private final Duration flushInterval;
+
+    public CountersConfiguration(@JsonProperty("flushInterval") final Duration flushInterval) {
+        this.flushInterval = flushInterval != null ? flushInterval : DEFAULT_FLUSH_INTERVAL;
+    }
+
+    public static CountersConfiguration defaults() {
+        return new CountersConfiguration(null);
+    }
+
+    public Duration getFlushInterval() {
+        return flushInterval;
+    }
+}
@@ -0,0 +1,39 @@
+package io.realworld.core;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import java.time.Duration;
+
+public class EnrichmentConfiguration {
+    private static final Duration DEFAULT_STEP_TIMEOUT = Duration.ofMillis(500);
+    private static final int DEFAULT_THREADS = 8;
+    private static final int DEFAULT_QUEUE_CAPACITY = 64;
+
+    private final Duration stepTimeout;
+    private final int threads;
+    private final int queueCapacity;
+
+    public EnrichmentConfiguration(@JsonProperty("stepTimeout") final Duration stepTimeout,
+                                   @JsonProperty("threads") final Integer threads,
+                                   @JsonProperty("queueCapacity") final Integer queueCapacity) {
+        this.stepTimeout = stepTimeout != null ? stepTimeout : DEFAULT_STEP_TIMEOUT;
+        this.threads = threads != null ? threads : DEFAULT_THREADS;
+        this.queueCapacity = queueCapacity != null ? queueCapacity : DEFAULT_QUEUE_CAPACITY;
+    }
+
+    public static EnrichmentConfiguration defaults() {
+        return new EnrichmentConfiguration(null, null, null);
+    }
+
+    public Duration getStepTimeout() {
+        return stepTimeout;
+    }
+
+    public int getThreads() {
+        return threads;
+    }
+
+    public int getQueueCapacity() {
+        return queueCapacity;
+    }
+}
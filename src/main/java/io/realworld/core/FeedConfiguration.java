@@ -0,0 +1,47 @@
+package io.realworld.core;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import java.time.Duration;
+
+public class FeedConfiguration {
+    private static final int DEFAULT_CELEBRITY_FOLLOWERS = 10_000;
+    private static final int DEFAULT_FAN_OUT_BATCH_SIZE = 1000;
+    private static final int DEFAULT_MAX_ENTRIES = 1000;
+    private static final Duration DEFAULT_TRIM_INTERVAL = Duration.ofMinutes(1);
+
+    private final int celebrityFollowers;
+    private final int fanOutBatchSize;
+    private final int maxEntries;
+    private final Duration trimInterval;
+
+    public FeedConfiguration(@JsonProperty("celebrityFollowers") final Integer celebrityFollowers,
+                             @JsonProperty("fanOutBatchSize") final Integer fanOutBatchSize,
+                             @JsonProperty("maxEntries") final Integer maxEntries,
+                             @JsonProperty("trimInterval") final Duration trimInterval) {
+        this.celebrityFollowers = celebrityFollowers != null ? celebrityFollowers : DEFAULT_CELEBRITY_FOLLOWERS;
+        this.fanOutBatchSize = fanOutBatchSize != null ? fanOutBatchSize : DEFAULT_FAN_OUT_BATCH_SIZE;
+        this.maxEntries = maxEntries != null ? maxEntries : DEFAULT_MAX_ENTRIES;
+        this.trimInterval = trimInterval != null ? trimInterval : DEFAULT_TRIM_INTERVAL;
+    }
+
+    public static FeedConfiguration defaults() {
+        return new FeedConfiguration(null, null, null, null);
+    }
+
+    public int getCelebrityFollowers() {
+        return celebrityFollowers;
+    }
+
+    public int getFanOutBatchSize() {
+        return fanOutBatchSize;
+    }
+
+    public int getMaxEntries() {
+        return maxEntries;
+    }
+
+    public Duration getTrimInterval() {
+        return trimInterval;
+    }
+}
@@ -0,0 +1,189 @@
+package io.realworld.core;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.MetricRegistry;
+import io.dropwizard.lifecycle.Managed;
+import io.realworld.db.FollowEdge;
+import io.realworld.db.UserRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static com.codahale.metrics.MetricRegistry.name;
+
+/**
+ * In-memory copy of the followers table: for every user the ids of the users they follow, as a sorted
+ * {@code long[]}, so follow checks are a binary search instead of a query.
+ *
+ * <p>
+ * The graph is loaded on start and kept current by {@link ProfileService}. It holds at most {@code maxEdges} follows;
+ * past that it drops its content and reports itself unavailable, and callers go back to the followers table.
+ *
+ * <p>
+ * Only the follows and unfollows of this process reach the graph, so it is exact for a single instance only. With
+ * several instances the following flags it answers can lag behind the other instances' writes until a restart; the
+ * follow write path therefore checks the followers table itself before inserting.
+ *
+ * <p>
+ * Arrays are never changed in place: a follow or unfollow swaps in a copy, so readers need no locking. Updates to the
+ * same user are serialized by {@link ConcurrentHashMap#compute}.
+ */
+public class FollowGraph implements Managed {
+    private static final Logger LOG = LoggerFactory.getLogger(FollowGraph.class);
+    private static final int LOAD_BATCH_SIZE = 50_000;
+    private static final long[] NONE = new long[0];
+    /*
+     * Rough per-user cost besides the array itself: map node, boxed key, table slot and the array header.
+     */
+    private static final long USER_OVERHEAD_BYTES = 32 + 16 + 8 + 16;
+
+    private final UserRepository userRepository;
+    private final long maxEdges;
+    private final Map<Long, long[]> following = new ConcurrentHashMap<>();
+    private final AtomicLong edges = new AtomicLong();
+    private volatile boolean available;
+
+    /**
+     * @param userRepository an on-demand repository, used to load the graph on start
+     */
+    public FollowGraph(final UserRepository userRepository, final long maxEdges, final MetricRegistry metrics) {
+        this.userRepository = userRepository;
+        this.maxEdges = maxEdges;
+        metrics.register(name(FollowGraph.class, "edges"), (Gauge<Long>) edges::get);
+        metrics.register(name(FollowGraph.class, "users"), (Gauge<Integer>) following::size);
+        metrics.register(name(FollowGraph.class, "estimatedBytes"), (Gauge<Long>) this::estimatedBytes);
+        metrics.register(name(FollowGraph.class, "available"), (Gauge<Boolean>) this::isAvailable);
+    }
+
+    @Override
+    public void start() {
+        long afterFollower = 0;
+        long afterUser = 0;
+        long currentFollower = -1;
+        long[] current = new long[16];
+        int size = 0;
+        List<FollowEdge> page;
+        do {
+            page = userRepository.findFollowEdges(afterFollower, afterUser, LOAD_BATCH_SIZE);
+            for (final FollowEdge edge : page) {
+                if (edge.getFollowerId() != currentFollower) {
+                    store(currentFollower, current, size);
+                    currentFollower = edge.getFollowerId();
+                    size = 0;
+                }
+                if (size == current.length) {
+                    current = Arrays.copyOf(current, size * 2);
+                }
+                current[size++] = edge.getUserId();
+                afterFollower = edge.getFollowerId();
+                afterUser = edge.getUserId();
+            }
+            if (edges.get() + size > maxEdges) {
+                disable("loading");
+                return;
+            }
+        } while (page.size() == LOAD_BATCH_SIZE);
+        store(currentFollower, current, size);
+        available = true;
+        LOG.info("Loaded {} follows of {} users, about {} bytes", edges.get(), following.size(), estimatedBytes());
+    }
+
+    private void store(final long followerId, final long[] followed, final int size) {
+        if (size > 0) {
+            following.put(followerId, Arrays.copyOf(followed, size));
+            edges.addAndGet(size);
+        }
+    }
+
+    @Override
+    public void stop() {
+    }
+
+    public boolean isAvailable() {
+        return available;
+    }
+
+    public boolean isFollowing(final long followedId, final long followerId) {
+        return Arrays.binarySearch(following.getOrDefault(followerId, NONE), followedId) >= 0;
+    }
+
+    /**
+     * The ones among {@code userIds} that {@code followerId} follows.
+     */
+    public Set<Long> followedAmong(final long followerId, final Collection<Long> userIds) {
+        final long[] followed = following.getOrDefault(followerId, NONE);
+        final Set<Long> result = new HashSet<>();
+        for (final Long userId : userIds) {
+            if (Arrays.binarySearch(followed, userId) >= 0) {
+                result.add(userId);
+            }
+        }
+        return result;
+    }
+
+    public void follow(final long followedId, final long followerId) {
+        if (!available) {
+            return;
+        }
+        following.compute(followerId, (id, followed) -> {
+            final long[] current = followed == null ? NONE : followed;
+            final int index = Arrays.binarySearch(current, followedId);
+            if (index >= 0) {
+                return current;
+            }
+            final int at = -index - 1;
+            final long[] updated = new long[current.length + 1];
+            System.arraycopy(current, 0, updated, 0, at);
+            updated[at] = followedId;
+            System.arraycopy(current, at, updated, at + 1, current.length - at);
+            edges.incrementAndGet();
+            return updated;
+        });
+        if (edges.get() > maxEdges) {
+            disable("following");
+        }
+    }
+
+    public void unfollow(final long followedId, final long followerId) {
+        if (!available) {
+            return;
+        }
+        following.computeIfPresent(followerId, (id, current) -> {
+            final int index = Arrays.binarySearch(current, followedId);
+            if (index < 0) {
+                return current;
+            }
+            edges.decrementAndGet();
+            if (current.length == 1) {
+                return null;
+            }
+            final long[] updated = new long[current.length - 1];
+            System.arraycopy(current, 0, updated, 0, index);
+            System.arraycopy(current, index + 1, updated, index, current.length - index - 1);
+            return updated;
+        });
+    }
+
+    public long estimatedBytes() {
+        long bytes = 0;
+        for (final long[] followed : following.values()) {
+            bytes += USER_OVERHEAD_BYTES + 8L * followed.length;
+        }
+        return bytes;
+    }
+
+    private void disable(final String reason) {
+        available = false;
+        following.clear();
+        edges.set(0);
+        LOG.warn("More than {} follows while {}, follow checks go to the database", maxEdges, reason);
+    }
+}
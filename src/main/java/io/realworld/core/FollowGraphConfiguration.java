@@ -0,0 +1,21 @@
+package io.realworld.core;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+public class FollowGraphConfiguration {
+    private static final long DEFAULT_MAX_EDGES = 10_000_000;
+
+    private final long maxEdges;
+
+    public FollowGraphConfiguration(@JsonProperty("maxEdges") final Long maxEdges) {
+        this.maxEdges = maxEdges != null ? maxEdges : DEFAULT_MAX_EDGES;
+    }
+
+    public static FollowGraphConfiguration defaults() {
+        return new FollowGraphConfiguration(null);
+    }
+
+    public long getMaxEdges() {
+        return maxEdges;
+    }
+}
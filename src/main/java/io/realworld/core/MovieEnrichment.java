@@ -0,0 +1,134 @@
+package io.realworld.core;
+
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
+import io.realworld.api.response.Movie;
+import io.realworld.db.ActorRepository;
+import io.realworld.db.MoviesRepository;
+import io.realworld.db.mapper.MovieActorsMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+
+import static com.codahale.metrics.MetricRegistry.name;
+import static java.util.stream.Collectors.toSet;
+
+/**
+ * Loads the actors and the viewer's likes of a page of movies in parallel.
+ *
+ * <p>
+ * Every step runs on the enrichment executor with its own short-lived handle, so the repositories passed in must be
+ * on-demand ones and not the request scoped proxies, whose handle belongs to the request thread. For the same reason
+ * the steps cannot see uncommitted rows of the calling request and must only be used on read paths.
+ *
+ * <p>
+ * A step that fails, does not finish within the step timeout or finds the executor's queue full is abandoned: its
+ * field is left {@code null}, the movies are returned without it and {@link #enrich} reports them as partial.
+ * Cancelling a step does not stop its query, so the repositories should also be given a query timeout of about the
+ * step timeout.
+ */
+public class MovieEnrichment {
+    private static final Logger LOG = LoggerFactory.getLogger(MovieEnrichment.class);
+
+    private final ActorRepository actorRepository;
+    private final NameDictionary actorNames;
+    private final MoviesRepository moviesRepository;
+    private final ExecutorService executor;
+    private final Duration stepTimeout;
+    private final Timer actorsTimer;
+    private final Timer likesTimer;
+    private final Meter fallbacks;
+    private final Meter rejections;
+
+    public MovieEnrichment(final ActorRepository actorRepository,
+                           final NameDictionary actorNames,
+                           final MoviesRepository moviesRepository,
+                           final ExecutorService executor,
+                           final Duration stepTimeout,
+                           final MetricRegistry metrics) {
+        this.actorRepository = actorRepository;
+        this.actorNames = actorNames;
+        this.moviesRepository = moviesRepository;
+        this.executor = executor;
+        this.stepTimeout = stepTimeout;
+        this.actorsTimer = metrics.timer(name(MovieEnrichment.class, "actors"));
+        this.likesTimer = metrics.timer(name(MovieEnrichment.class, "likes"));
+        this.fallbacks = metrics.meter(name(MovieEnrichment.class, "fallbacks"));
+        this.rejections = metrics.meter(name(MovieEnrichment.class, "rejections"));
+    }
+
+    /**
+     * @return {@code false} when a step was abandoned and its field left out, so the movies must not be cached
+     */
+    public boolean enrich(final List<Movie> movies, final Long userId) {
+        final Set<Long> movieIds = movies.stream().map(Movie::getId).collect(toSet());
+        if (movieIds.isEmpty()) {
+            return true;
+        }
+
+        final long deadline = System.nanoTime() + stepTimeout.toNanos();
+        final CompletableFuture<Map<Long, Set<String>>> actors = step(actorsTimer, () -> findMovieActors(movieIds));
+        final CompletableFuture<Set<Long>> likes = userId == null
+                ? null
+                : step(likesTimer, () -> moviesRepository.findFavouriteMovies(userId, movieIds));
+
+        final Map<Long, Set<String>> movieActors = await(actors, deadline, "actors");
+        final Set<Long> likedIds = likes == null ? null : await(likes, deadline, "likes");
+        for (final Movie movie : movies) {
+            if (movieActors != null) {
+                movie.setActorList(movieActors.get(movie.getId()));
+            }
+            if (likedIds != null) {
+                movie.setLiked(likedIds.contains(movie.getId()));
+            }
+        }
+        return movieActors != null && (likes == null || likedIds != null);
+    }
+
+    private <T> CompletableFuture<T> step(final Timer timer, final Supplier<T> step) {
+        try {
+            return CompletableFuture.supplyAsync(() -> {
+                try (Timer.Context ignored = timer.time()) {
+                    return step.get();
+                }
+            }, executor);
+        } catch (final RejectedExecutionException e) {
+            rejections.mark();
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    private <T> T await(final CompletableFuture<T> step, final long deadline, final String name) {
+        try {
+            return step.get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+        } catch (final TimeoutException e) {
+            step.cancel(true);
+            LOG.warn("Movie enrichment step [{}] timed out after {}", name, stepTimeout);
+        } catch (final ExecutionException e) {
+            if (!(e.getCause() instanceof RejectedExecutionException)) {
+                LOG.warn("Movie enrichment step [{}] failed", name, e.getCause());
+            }
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        fallbacks.mark();
+        return null;
+    }
+
+    private Map<Long, Set<String>> findMovieActors(final Set<Long> movieIds) {
+        return actorNames.group(actorRepository.findMovieActorIds(movieIds),
+                MovieActorsMapper.MovieIdActor::getMovieId, MovieActorsMapper.MovieIdActor::getActorId);
+    }
+}
@@ -1,11 +1,11 @@
 package io.realworld.core;
 
-import com.google.common.collect.Sets;
 import io.realworld.api.request.NewMovie;
 import io.realworld.api.response.Movie;
 import io.realworld.api.response.MovieList;
 import io.realworld.db.*;
 import io.realworld.db.mapper.MovieActorsMapper;
+import io.realworld.security.UserPrincipal;
 import org.jdbi.v3.core.transaction.TransactionException;
 import org.jdbi.v3.sqlobject.transaction.Transaction;
 
@@ -18,16 +18,31 @@ public class MoviesService {
     private final UserRepository userRepository;
     private final MoviesRepository moviesRepository;
     private final ActorRepository actorRepository;
+    private final NameDictionary actorNames;
+    private final UserIdResolver userIds;
+    private final MovieEnrichment enrichment;
+    private final BufferedCounters likesCounts;
+    private final ChangeVersions changeVersions;
 
     public MoviesService( final UserRepository userRepository,
-                          final MoviesRepository moviesRepository, final ActorRepository actorRepository) {
+                          final MoviesRepository moviesRepository, final ActorRepository actorRepository,
+                          final NameDictionary actorNames,
+                          final UserIdResolver userIds,
+                          final MovieEnrichment enrichment,
+                          final BufferedCounters likesCounts,
+                          final ChangeVersions changeVersions) {
         this.userRepository = userRepository;
         this.moviesRepository = moviesRepository;
         this.actorRepository = actorRepository;
+        this.actorNames = actorNames;
+        this.userIds = userIds;
+        this.enrichment = enrichment;
+        this.likesCounts = likesCounts;
+        this.changeVersions = changeVersions;
     }
 
     @Transaction
-    public Movie createMovie (final String username, final NewMovie newMovie) {
+    public Movie createMovie (final UserPrincipal user, final NewMovie newMovie) {
         final Long movieID = moviesRepository.saveMovie(newMovie.getTitle(),
                 newMovie.getDescription(),
                 newMovie.getBody(),
@@ -37,34 +52,40 @@ public class MoviesService {
         if (newMovie.getActorList() != null) {
             updateMovieActors(movieID, newMovie.getActorList());
         }
+        changeVersions.bump(ChangeVersions.Scope.MOVIES);
 
-        return findMovieDetails(username, movieID);
+        return findMovieDetails(userIds.resolve(user), movieID);
     }
 
-    public Movie starMovie(final String username, final String movieId) {
-        final Long userId = userRepository.findUserIdByUsername(username);
+    public Movie starMovie(final UserPrincipal user, final String movieId) {
+        final Long userId = userIds.resolve(user);
         final Long articleId = Long.parseLong(movieId);
 
 //        transactionalMovieRepository.likeMovie(userId, articleId);
 
-        moviesRepository.likeMovie(userId, articleId);
-        moviesRepository.incrementFavoritesCount(articleId);
-        return findMovieDetails(username, articleId);
+        if (moviesRepository.likeMovie(userId, articleId)) {
+            likesCounts.add(articleId, 1);
+            changeVersions.bump(ChangeVersions.Scope.MOVIES);
+        }
+        return findMovieDetails(userId, articleId);
     }
 
     @Transaction
-    public Movie unStarMovie(final String username, final String movieId) {
-        final Long userId = userRepository.findUserIdByUsername(username);
+    public Movie unStarMovie(final UserPrincipal user, final String movieId) {
+        final Long userId = userIds.resolve(user);
         final Long articleId = Long.parseLong(movieId);
 
-        moviesRepository.unLikeMovie(userId, articleId);
-        moviesRepository.decrementFavoritesCount(articleId);
-        return findMovieDetails(username, articleId);
+        if (moviesRepository.unLikeMovie(userId, articleId)) {
+            likesCounts.add(articleId, -1);
+            changeVersions.bump(ChangeVersions.Scope.MOVIES);
+        }
+        return findMovieDetails(userId, articleId);
     }
 
     public Movie findById(final String username, final String id) {
         final Movie movie = moviesRepository.findMovieById(Long.parseLong(id));
-        fillAdditionalData(List.of(movie), username);
+        enrichment.enrich(List.of(movie), userIds.resolve(username));
+        fillPendingLikes(List.of(movie));
         return movie;
     }
     public MovieList findMovies(final String username,
@@ -73,32 +94,44 @@ public class MoviesService {
                                 final String favorite,
                                 final Integer offset,
                                 final int limit) {
-        final Long favoriteBy = favorite != null ? userRepository.findUserIdByUsername(favorite) : null;
+        final Long favoriteBy = userIds.resolve(favorite);
         final int count = moviesRepository.countMovies(author, tag, favoriteBy);
         final List<Movie> movies = moviesRepository.findMovies(author, tag, favoriteBy, offset, limit);
-        fillAdditionalData(movies, username);
-        return movieList(movies, count);
+        final boolean complete = enrichment.enrich(movies, userIds.resolve(username));
+        fillPendingLikes(movies);
+        final MovieList movieList = movieList(movies, count);
+        movieList.setPartial(!complete);
+        return movieList;
     }
 
 
-    private Movie findMovieDetails (final String username, final Long movieId) {
+    private Movie findMovieDetails (final Long userId, final Long movieId) {
         final Movie movie = moviesRepository.findMovieById(movieId);
-        fillAdditionalData(List.of(movie), username);
+        fillAdditionalData(List.of(movie), userId);
         return movie;
     }
 
 
-    private void fillAdditionalData(final List<Movie> movieList, final String username) {
+    /*
+     * Write paths read the movie back on the request handle so they see their own, possibly uncommitted, changes;
+     * read paths go through the parallel MovieEnrichment.
+     */
+    private void fillAdditionalData(final List<Movie> movieList, final Long userId) {
         final Set<Long> movieIds = movieList.stream().map(Movie::getId).collect(toSet());
         fillActors(movieList, movieIds);
-        fillLikes(movieList, username, movieIds);
+        fillLikes(movieList, userId, movieIds);
+        fillPendingLikes(movieList);
+    }
+
+    private void fillPendingLikes(final List<Movie> movieList) {
+        for (final Movie movie : movieList) {
+            movie.setLikesCount(movie.getLikesCount() + likesCounts.pending(movie.getId()));
+        }
     }
 
     private void updateMovieActors (final long movieId, final Set<String> actors) {
-        final Set<String> existingActors = actorRepository.findActors(actors);
-        final Set<String> missingTags = Sets.difference(actors, existingActors);
-        actorRepository.saveActors(missingTags);
-        actorRepository.addActorsToMovies(Collections.nCopies(actors.size(), movieId), actors);
+        final Collection<Long> actorIds = actorNames.idsOf(actors).values();
+        actorRepository.addActorsToMovies(Collections.nCopies(actorIds.size(), movieId), actorIds);
     }
 
     private void fillActors(final List<Movie> movieList, final Set<Long> movieIds) {
@@ -108,9 +141,9 @@ public class MoviesService {
         }
     }
 
-    private void fillLikes(final List<Movie> movieList, final String username, final Set<Long> movieIds) {
-        if (username != null && movieIds != null && !movieIds.isEmpty()) {
-            final Set<Long> favouriteMovieIds = moviesRepository.findFavouriteMovies(username, movieIds);
+    private void fillLikes(final List<Movie> movieList, final Long userId, final Set<Long> movieIds) {
+        if (userId != null && movieIds != null && !movieIds.isEmpty()) {
+            final Set<Long> favouriteMovieIds = moviesRepository.findFavouriteMovies(userId, movieIds);
             for (final Movie movie : movieList) {
                 movie.setLiked(favouriteMovieIds.contains(movie.getId()));
             }
@@ -129,13 +162,8 @@ public class MoviesService {
             return Collections.emptyMap();
         }
 
-        final List<MovieActorsMapper.MovieIdActor> movieActors = actorRepository.findMovieActors(movieIds);
-        return movieActors
-                .stream()
-                .collect(groupingBy(
-                        MovieActorsMapper.MovieIdActor::getMovieId,
-                        mapping(MovieActorsMapper.MovieIdActor::getActor, toSet())
-                ));
+        return actorNames.group(actorRepository.findMovieActorIds(movieIds),
+                MovieActorsMapper.MovieIdActor::getMovieId, MovieActorsMapper.MovieIdActor::getActorId);
     }
 
 }
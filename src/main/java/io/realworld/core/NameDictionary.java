@@ -0,0 +1,186 @@
+package io.realworld.core;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.MetricRegistry;
+import io.dropwizard.lifecycle.Managed;
+import io.realworld.db.NameId;
+import io.realworld.db.NameSource;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+import static com.codahale.metrics.MetricRegistry.name;
+import static java.util.stream.Collectors.toSet;
+
+/**
+ * Process-wide bidirectional name / id dictionary of a small, append-only table such as tags or actors.
+ *
+ * <p>
+ * The whole table is loaded on start. Write paths turn names into ids here and bind the ids directly, read paths
+ * select only the ids and turn them back into names without joining the name table. Ids come from a serial column,
+ * so they are dense and the id to name direction is a plain array indexed by id.
+ *
+ * <p>
+ * Names the process has not seen, e.g. inserted by another instance, are looked up in the table on a miss and
+ * remembered. Missing names are inserted through the source given here, which must be an on-demand repository: the
+ * new rows are committed at once so every id handed out exists, even if the request that created them rolls back.
+ */
+public class NameDictionary implements Managed {
+    private static final Logger LOG = LoggerFactory.getLogger(NameDictionary.class);
+    /*
+     * Ids above this are kept in a map rather than growing the array to match a sequence that jumped.
+     */
+    private static final long MAX_ARRAY_ID = 1 << 20;
+
+    private final String name;
+    private final NameSource source;
+    private final Map<String, Long> idsByName = new ConcurrentHashMap<>();
+    private final Map<Long, String> sparseNamesById = new ConcurrentHashMap<>();
+    private volatile String[] namesById = new String[0];
+    private final Meter misses;
+
+    public NameDictionary(final String name,
+                          final NameSource source,
+                          final MetricRegistry metrics) {
+        this.name = name;
+        this.source = source;
+        this.misses = metrics.meter(name(NameDictionary.class, name, "misses"));
+        metrics.register(name(NameDictionary.class, name, "size"), (Gauge<Integer>) idsByName::size);
+    }
+
+    @Override
+    public void start() {
+        final List<NameId> all = source.findAll();
+        remember(all);
+        LOG.info("Loaded {} {}", all.size(), name);
+    }
+
+    @Override
+    public void stop() {
+    }
+
+    public String nameOf(final long id) {
+        final String[] names = namesById;
+        if (id >= 0 && id < names.length) {
+            return names[(int) id];
+        }
+        return sparseNamesById.get(id);
+    }
+
+    /**
+     * Names of the given ids, ids that are not in the table are left out.
+     */
+    public Map<Long, String> namesOf(final Collection<Long> ids) {
+        final Map<Long, String> names = new HashMap<>();
+        final Set<Long> missing = new HashSet<>();
+        for (final Long id : ids) {
+            final String name = nameOf(id);
+            if (name == null) {
+                missing.add(id);
+            } else {
+                names.put(id, name);
+            }
+        }
+        if (!missing.isEmpty()) {
+            misses.mark(missing.size());
+            for (final NameId row : remember(source.findByIds(missing))) {
+                names.put(row.getId(), row.getName());
+            }
+        }
+        return names;
+    }
+
+    /**
+     * Groups (owner id, name id) rows such as the ones of articles_tags into the names of every owner.
+     */
+    public <T> Map<Long, Set<String>> group(final List<T> rows,
+                                           final Function<T, Long> ownerId,
+                                           final Function<T, Long> nameId) {
+        if (rows.isEmpty()) {
+            return Collections.emptyMap();
+        }
+        final Map<Long, String> names = namesOf(rows.stream().map(nameId).collect(toSet()));
+        final Map<Long, Set<String>> grouped = new HashMap<>();
+        for (final T row : rows) {
+            final String name = names.get(nameId.apply(row));
+            if (name != null) {
+                grouped.computeIfAbsent(ownerId.apply(row), id -> new HashSet<>()).add(name);
+            }
+        }
+        return grouped;
+    }
+
+    /**
+     * Ids of the given names, inserting the ones that are not in the table yet.
+     */
+    public Map<String, Long> idsOf(final Collection<String> names) {
+        final Map<String, Long> ids = new HashMap<>();
+        final Set<String> missing = new HashSet<>();
+        for (final String name : names) {
+            final Long id = idsByName.get(name);
+            if (id == null) {
+                missing.add(name);
+            } else {
+                ids.put(name, id);
+            }
+        }
+        if (missing.isEmpty()) {
+            return ids;
+        }
+
+        misses.mark(missing.size());
+        resolve(source.findByNames(missing), ids, missing);
+        if (!missing.isEmpty()) {
+            resolve(source.insert(missing), ids, missing);
+        }
+        if (!missing.isEmpty()) {
+            // inserted concurrently by someone else
+            resolve(source.findByNames(missing), ids, missing);
+        }
+        return ids;
+    }
+
+    private void resolve(final List<NameId> rows, final Map<String, Long> ids, final Set<String> missing) {
+        remember(rows);
+        for (final NameId row : rows) {
+            if (missing.remove(row.getName())) {
+                ids.put(row.getName(), idsByName.get(row.getName()));
+            }
+        }
+    }
+
+    /*
+     * Readers never lock: the array is replaced, not resized in place, and a name is published by id before its id
+     * is published by name. When a name has several ids the first one remembered wins.
+     */
+    private synchronized List<NameId> remember(final List<NameId> rows) {
+        String[] names = namesById;
+        for (final NameId row : rows) {
+            final long id = row.getId();
+            if (id < 0 || id >= MAX_ARRAY_ID) {
+                sparseNamesById.put(id, row.getName());
+                continue;
+            }
+            if (id >= names.length) {
+                names = Arrays.copyOf(names, (int) Math.max(id + 1, Math.min(names.length * 2L, MAX_ARRAY_ID)));
+            }
+            names[(int) id] = row.getName();
+        }
+        namesById = names;
+        for (final NameId row : rows) {
+            idsByName.putIfAbsent(row.getName(), row.getId());
+        }
+        return rows;
+    }
+}
@@ -0,0 +1,71 @@
+package io.realworld.core;
+
+import io.realworld.exceptions.ApplicationException;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+
+import static io.realworld.exceptions.ErrorCode.INVALID_CURSOR;
+
+/**
+ * Opaque keyset pagination cursor pointing at the last row of a page, identified by its (created_at, id) pair.
+ * Lists are ordered by {@code CREATED_AT DESC, ID DESC}, so the next page is everything strictly below that pair.
+ */
+public class PageCursor {
+
+    private static final String SEPARATOR = ",";
+
+    private final Instant createdAt;
+    private final long id;
+
+    public PageCursor(final Instant createdAt, final long id) {
+        this.createdAt = createdAt;
+        this.id = id;
+    }
+
+    public static PageCursor decode(final String cursor) {
+        try {
+            final String decoded = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            final String[] split = decoded.split(SEPARATOR);
+            if (split.length != 2) {
+                throw new ApplicationException(INVALID_CURSOR, "Invalid cursor [" + cursor + "]");
+            }
+            return new PageCursor(Instant.parse(split[0]), Long.parseLong(split[1]));
+        } catch (final IllegalArgumentException | DateTimeParseException e) {
+            throw new ApplicationException(INVALID_CURSOR, "Invalid cursor [" + cursor + "]", e);
+        }
+    }
+
+    /**
+     * A list is paged either by cursor or by offset: a cursor sent along an offset would silently win over it.
+     */
+    public static void checkNotCombined(final String cursor, final Integer offset) {
+        if (cursor != null && offset != null) {
+            throw new ApplicationException(INVALID_CURSOR, "A cursor cannot be combined with an offset");
+        }
+    }
+
+    public String encode() {
+        final String raw = createdAt.toString() + SEPARATOR + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public Instant getCreatedAt() {
+        return createdAt;
+    }
+
+    /**
+     * CREATED_AT columns are stored as timestamps without time zone in UTC, see the row mappers.
+     */
+    public LocalDateTime getCreatedAtUtc() {
+        return LocalDateTime.ofInstant(createdAt, ZoneOffset.UTC);
+    }
+
+    public long getId() {
+        return id;
+    }
+}
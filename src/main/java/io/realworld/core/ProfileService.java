@@ -4,46 +4,77 @@ import io.realworld.api.response.Profile;
 import io.realworld.db.UserRepository;
 import io.realworld.exceptions.ApplicationException;
 import io.realworld.exceptions.ErrorCode;
+import io.realworld.security.UserPrincipal;
 
 import static io.realworld.exceptions.ErrorCode.NOT_FOUND;
 
 public class ProfileService {
 
     private final UserRepository userRepository;
+    private final UserIdResolver userIds;
+    private final UserFeed userFeed;
+    private final FollowGraph followGraph;
+    private final ReviewCountCache reviewCounts;
+    private final ChangeVersions changeVersions;
 
-    public ProfileService(final UserRepository userRepository) {
+    public ProfileService(final UserRepository userRepository, final UserIdResolver userIds,
+                          final UserFeed userFeed,
+                          final FollowGraph followGraph,
+                          final ReviewCountCache reviewCounts,
+                          final ChangeVersions changeVersions) {
         this.userRepository = userRepository;
+        this.userIds = userIds;
+        this.userFeed = userFeed;
+        this.followGraph = followGraph;
+        this.reviewCounts = reviewCounts;
+        this.changeVersions = changeVersions;
     }
 
-    public Profile findProfileByUsername(final String username, final String followedBy) {
+    public Profile findProfileByUsername(final String username, final UserPrincipal followedBy) {
         final Profile profile = findProfile(username);
-        profile.setFollowing(userRepository.isFollowing(profile.getId(), followedBy));
+        final Long followerId = userIds.resolve(followedBy);
+        profile.setFollowing(followerId != null && isFollowing(profile.getId(), followerId));
         return profile;
     }
 
-    public Profile followProfile(final String username, final String authenticatedUsername) {
+    public Profile followProfile(final String username, final UserPrincipal authenticatedUser) {
         final Profile profileToFollow = findProfile(username);
-        final Long authenticatedUserId = findUserId(authenticatedUsername);
+        final Long authenticatedUserId = findUserId(authenticatedUser);
+        // not the graph, which misses the follows and unfollows of other instances: the insert must not hit the unique key
         if (userRepository.isFollowing(profileToFollow.getId(), authenticatedUserId)) {
             throw new ApplicationException(ErrorCode.USER_ALREADY_FOLLOWED, "User [" + username + "] is already followed");
         }
         userRepository.followProfile(profileToFollow.getId(), authenticatedUserId);
+        userFeed.followed(authenticatedUserId, profileToFollow.getId());
+        followGraph.follow(profileToFollow.getId(), authenticatedUserId);
+        reviewCounts.invalidate(ReviewCountCache.feed(authenticatedUser.getUsername()));
+        changeVersions.bump(ChangeVersions.Scope.PROFILES);
         profileToFollow.setFollowing(true);
         return profileToFollow;
     }
 
-    public Profile unfollowProfile(final String username, final String authenticatedUsername) {
+    public Profile unfollowProfile(final String username, final UserPrincipal authenticatedUser) {
         final Profile profileToUnfollow = findProfile(username);
-        final Long authenticatedUserId = findUserId(authenticatedUsername);
+        final Long authenticatedUserId = findUserId(authenticatedUser);
         userRepository.unfollowProfile(profileToUnfollow.getId(), authenticatedUserId);
+        userFeed.unfollowed(authenticatedUserId, profileToUnfollow.getId());
+        followGraph.unfollow(profileToUnfollow.getId(), authenticatedUserId);
+        reviewCounts.invalidate(ReviewCountCache.feed(authenticatedUser.getUsername()));
+        changeVersions.bump(ChangeVersions.Scope.PROFILES);
         profileToUnfollow.setFollowing(false);
         return profileToUnfollow;
     }
 
-    private Long findUserId(final String username) {
-        final Long followedUserId = userRepository.findUserIdByUsername(username);
+    private boolean isFollowing(final long followedId, final long followerId) {
+        return followGraph.isAvailable()
+                ? followGraph.isFollowing(followedId, followerId)
+                : userRepository.isFollowing(followedId, followerId);
+    }
+
+    private Long findUserId(final UserPrincipal user) {
+        final Long followedUserId = userIds.resolve(user);
         if (followedUserId == null) {
-            throw new ApplicationException(NOT_FOUND, "User [" + username + "] does not exists");
+            throw new ApplicationException(NOT_FOUND, "User [" + user.getUsername() + "] does not exists");
         }
         return followedUserId;
     }
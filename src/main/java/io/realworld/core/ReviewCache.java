@@ -0,0 +1,139 @@
+package io.realworld.core;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.util.concurrent.UncheckedExecutionException;
+import io.realworld.api.response.MovieReview;
+import io.realworld.api.response.Profile;
+
+import java.util.Collection;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+/**
+ * Read-through cache of single reviews by slug, holding only the part of a review that is the same for every viewer:
+ * the review itself, its tags and the author profile. The favorited and following flags are never cached.
+ *
+ * <p>
+ * Callers get a copy they are free to complete with the viewer's flags. Entries are dropped when the review is
+ * updated, deleted or favorited and when its buffered favorites count is flushed; author profile changes are only
+ * picked up when the entry expires.
+ *
+ * <p>
+ * Invalidations run after the commit of the write, and every entry remembers when its load started: an entry whose
+ * load started before the last invalidation of its slug may hold rows read before that write and is loaded again.
+ *
+ * <p>
+ * Entries live in memory and only the writes of this process invalidate them, which makes the cache correct for a
+ * single instance only: with several instances behind a load balancer, a write served by one of them is not seen by
+ * the others until their entries expire. Updates therefore never start from a cached copy, see
+ * {@link ReviewsService#findReviewForUpdate(String)}.
+ */
+public class ReviewCache {
+
+    private final Cache<String, Entry> reviews;
+    private final Cache<String, Long> invalidatedAt;
+    private final AtomicLong invalidations = new AtomicLong();
+    private final AfterCommit afterCommit;
+
+    public ReviewCache(final ReviewCacheConfiguration config) {
+        this(config, AfterCommit.IMMEDIATELY);
+    }
+
+    public ReviewCache(final ReviewCacheConfiguration config, final AfterCommit afterCommit) {
+        this.reviews = CacheBuilder.newBuilder()
+                .expireAfterWrite(config.getTtl())
+                .maximumSize(config.getMaximumSize())
+                .build();
+        // written after any entry it can outdate was loaded, so it outlives that entry
+        this.invalidatedAt = CacheBuilder.newBuilder()
+                .expireAfterWrite(config.getTtl())
+                .maximumSize(config.getMaximumSize())
+                .build();
+        this.afterCommit = afterCommit;
+    }
+
+    public MovieReview get(final String slug, final Function<String, MovieReview> loader) {
+        while (true) {
+            final Entry entry = load(slug, loader);
+            final Long invalidated = invalidatedAt.getIfPresent(slug);
+            if (invalidated == null || entry.loadedAt >= invalidated) {
+                return copy(entry.review);
+            }
+            reviews.asMap().remove(slug, entry);
+        }
+    }
+
+    public void invalidate(final String slug) {
+        afterCommit.run(() -> invalidateNow(slug));
+    }
+
+    public void invalidateAll(final Collection<String> slugs) {
+        afterCommit.run(() -> slugs.forEach(this::invalidateNow));
+    }
+
+    /*
+     * Scans the entries, which the maximum size keeps cheap enough for the once per flush interval it is called.
+     */
+    public void invalidateIds(final Collection<Long> reviewIds) {
+        afterCommit.run(() -> reviews.asMap().forEach((slug, entry) -> {
+            if (reviewIds.contains(entry.review.getId())) {
+                invalidateNow(slug);
+            }
+        }));
+    }
+
+    private void invalidateNow(final String slug) {
+        invalidatedAt.put(slug, invalidations.incrementAndGet());
+        reviews.invalidate(slug);
+    }
+
+    private Entry load(final String slug, final Function<String, MovieReview> loader) {
+        try {
+            return reviews.get(slug, () -> {
+                final long loadedAt = invalidations.get();
+                return new Entry(loadedAt, loader.apply(slug));
+            });
+        } catch (final UncheckedExecutionException e) {
+            throw (RuntimeException) e.getCause();
+        } catch (final ExecutionException e) {
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    private static MovieReview copy(final MovieReview review) {
+        final MovieReview copy = new MovieReview();
+        copy.setId(review.getId());
+        copy.setSlug(review.getSlug());
+        copy.setTitle(review.getTitle());
+        copy.setDescription(review.getDescription());
+        copy.setBody(review.getBody());
+        copy.setMovieId(review.getMovieId());
+        copy.setFavoritesCount(review.getFavoritesCount());
+        copy.setCreatedAt(review.getCreatedAt());
+        copy.setUpdatedAt(review.getUpdatedAt());
+        copy.setTagList(review.getTagList());
+        copy.setAuthor(copy(review.getAuthor()));
+        return copy;
+    }
+
+    private static Profile copy(final Profile author) {
+        final Profile copy = new Profile();
+        copy.setId(author.getId());
+        copy.setUsername(author.getUsername());
+        copy.setBio(author.getBio());
+        copy.setImage(author.getImage());
+        return copy;
+    }
+
+    private static final class Entry {
+        private final long loadedAt;
+        private final MovieReview review;
+
+        private Entry(final long loadedAt, final MovieReview review) {
+            this.loadedAt = loadedAt;
+            this.review = review;
+        }
+    }
+}
@@ -0,0 +1,132 @@
+package io.realworld.core;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.util.concurrent.UncheckedExecutionException;
+
+import java.util.Objects;
+import java.util.concurrent.ExecutionException;
+import java.util.function.Supplier;
+
+/**
+ * Short lived cache of exact review list totals keyed by the filter tuple of the request.
+ *
+ * <p>
+ * Creating or deleting a review and changing its tags drop the whole cache: a single review is counted by many filter
+ * combinations and tracking them individually is not worth it for a TTL of seconds. A favorite only changes the totals
+ * filtered by the user who favorited, so only those are dropped.
+ *
+ * <p>
+ * Invalidations run after the commit of the write, so a list counted in between cannot cache the old total again.
+ */
+public class ReviewCountCache {
+
+    private final Cache<Key, Integer> counts;
+    private final AfterCommit afterCommit;
+
+    public ReviewCountCache(final CountCacheConfiguration config) {
+        this(config, AfterCommit.IMMEDIATELY);
+    }
+
+    public ReviewCountCache(final CountCacheConfiguration config, final AfterCommit afterCommit) {
+        this.counts = CacheBuilder.newBuilder()
+                .expireAfterWrite(config.getTtl())
+                .maximumSize(config.getMaximumSize())
+                .build();
+        this.afterCommit = afterCommit;
+    }
+
+    /**
+     * @param estimate {@code null} when the list has no estimate, the supplier returns {@code null} when it has none
+     *                 at the moment; both fall back to the exact count
+     */
+    public Integer count(final CountMode mode, final Key key, final Supplier<Integer> exact, final Supplier<Integer> estimate) {
+        switch (mode) {
+            case NONE:
+                return null;
+            case ESTIMATED:
+                final Integer estimated = estimate != null ? estimate.get() : null;
+                if (estimated != null) {
+                    return estimated;
+                }
+                return cachedExact(key, exact);
+            case EXACT:
+            default:
+                return cachedExact(key, exact);
+        }
+    }
+
+    public void invalidate(final Key key) {
+        afterCommit.run(() -> counts.invalidate(key));
+    }
+
+    /**
+     * Drops the totals of the lists filtered by the favorites of the given user.
+     */
+    public void invalidateFavoritesOf(final long userId) {
+        afterCommit.run(() -> counts.asMap().keySet().removeIf(key -> Objects.equals(key.favoritedBy, userId)));
+    }
+
+    public void invalidateAll() {
+        afterCommit.run(counts::invalidateAll);
+    }
+
+    private Integer cachedExact(final Key key, final Supplier<Integer> exact) {
+        try {
+            return counts.get(key, exact::get);
+        } catch (final UncheckedExecutionException e) {
+            throw (RuntimeException) e.getCause();
+        } catch (final ExecutionException e) {
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    public static Key reviews(final Long movieId, final String author, final String tag, final Long favoritedBy) {
+        return new Key("reviews", movieId, author, tag, favoritedBy);
+    }
+
+    public static Key feed(final String username) {
+        return new Key("feed", null, username, null, null);
+    }
+
+    public static final class Key {
+        private final String list;
+        private final Long movieId;
+        private final String username;
+        private final String tag;
+        private final Long favoritedBy;
+
+        private Key(final String list, final Long movieId, final String username, final String tag, final Long favoritedBy) {
+            this.list = list;
+            this.movieId = movieId;
+            this.username = username;
+            this.tag = tag;
+            this.favoritedBy = favoritedBy;
+        }
+
+        public boolean isUnfiltered() {
+            return movieId == null && username == null && tag == null && favoritedBy == null;
+        }
+
+        @Override
+        public boolean equals(final Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (o == null || getClass() != o.getClass()) {
+                return false;
+            }
+            final Key key = (Key) o;
+            return list.equals(key.list)
+                    && Objects.equals(movieId, key.movieId)
+                    && Objects.equals(username, key.username)
+                    && Objects.equals(tag, key.tag)
+                    && Objects.equals(favoritedBy, key.favoritedBy);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(list, movieId, username, tag, favoritedBy);
+        }
+    }
+}
@@ -1,67 +1,144 @@
 package io.realworld.core;
 
-import com.google.common.collect.Sets;
 import io.realworld.api.request.NewMovieReview;
 import io.realworld.api.request.UpdatedArticle;
 import io.realworld.api.response.MovieReview;
 import io.realworld.api.response.MovieReviewList;
+import io.realworld.db.ReviewQuery;
 import io.realworld.db.ReviewRepository;
 import io.realworld.db.CommentRepository;
+import io.realworld.db.MovieReviewStatsRepository;
 import io.realworld.db.TagRepository;
 import io.realworld.db.UserRepository;
 import io.realworld.db.mapper.ArticleTagsMapper;
 import io.realworld.exceptions.ApplicationException;
+import io.realworld.security.UserPrincipal;
 import org.jdbi.v3.sqlobject.transaction.Transaction;
 
 import java.util.*;
+import java.util.regex.Pattern;
 
 import static io.realworld.exceptions.ErrorCode.FORBIDDEN;
 import static io.realworld.exceptions.ErrorCode.NOT_FOUND;
 import static java.util.stream.Collectors.*;
 
 public class ReviewsService {
+    private static final Pattern SLUG_SEPARATORS = Pattern.compile("[^\\p{IsAlphabetic}^\\p{IsDigit}]+");
+
     private final ReviewRepository articleRepository;
     private final UserRepository userRepository;
     private final CommentRepository commentRepository;
     private final TagRepository tagRepository;
+    private final NameDictionary tagNames;
+    private final TagPopularity tagPopularity;
+    private final ReviewCountCache reviewCounts;
+    private final UserIdResolver userIds;
+    private final MovieReviewStatsRepository movieReviewStats;
+    private final BufferedCounters favoritesCounts;
+    private final ReviewCache reviewCache;
+    private final UserFeed userFeed;
+    private final FollowGraph followGraph;
+    private final ChangeVersions changeVersions;
 
     public ReviewsService(final ReviewRepository articleRepository,
                           final UserRepository userRepository,
-                          final CommentRepository commentRepository, final TagRepository tagRepository) {
+                          final CommentRepository commentRepository, final TagRepository tagRepository,
+                          final NameDictionary tagNames,
+                          final TagPopularity tagPopularity,
+                          final ReviewCountCache reviewCounts,
+                          final UserIdResolver userIds,
+                          final MovieReviewStatsRepository movieReviewStats,
+                          final BufferedCounters favoritesCounts,
+                          final ReviewCache reviewCache,
+                          final UserFeed userFeed,
+                          final FollowGraph followGraph,
+                          final ChangeVersions changeVersions) {
         this.articleRepository = articleRepository;
         this.userRepository = userRepository;
+        this.userIds = userIds;
         this.commentRepository = commentRepository;
         this.tagRepository = tagRepository;
+        this.tagNames = tagNames;
+        this.tagPopularity = tagPopularity;
+        this.reviewCounts = reviewCounts;
+        this.movieReviewStats = movieReviewStats;
+        this.favoritesCounts = favoritesCounts;
+        this.reviewCache = reviewCache;
+        this.userFeed = userFeed;
+        this.followGraph = followGraph;
+        this.changeVersions = changeVersions;
     }
 
     public MovieReview findBySlug(final String username, final String slug) {
-        final MovieReview movieReview = articleRepository.findReview(slug);
-        fillAdditionalData(List.of(movieReview), username);
+        return forViewer(username, findReview(slug));
+    }
+
+    /**
+     * The part of a review that is the same for every viewer, served from {@link ReviewCache}. Enough to answer a
+     * conditional GET without reading the database; updates use {@link #findReviewForUpdate(String)}.
+     */
+    public MovieReview findReview(final String slug) {
+        return reviewCache.get(slug, this::loadReview);
+    }
+
+    /**
+     * The review as stored in the database, locked until the unit of work ends: the base of an update, whose
+     * preconditions must not be evaluated against the per-process {@link ReviewCache} copy.
+     */
+    public MovieReview findReviewForUpdate(final String slug) {
+        final MovieReview movieReview = articleRepository.findReviewForUpdate(slug);
+        if (movieReview == null) {
+            throw new ApplicationException(NOT_FOUND, "Article [" + slug + "] not found");
+        }
+        fillTags(List.of(movieReview), Set.of(movieReview.getId()));
+        return movieReview;
+    }
+
+    /**
+     * The favorites count of a review returned by {@link #findReview(String)}, favorites not flushed yet included.
+     */
+    public long favoritesCount(final MovieReview movieReview) {
+        return movieReview.getFavoritesCount() + favoritesCounts.pending(movieReview.getId());
+    }
+
+    /**
+     * Completes a review returned by {@link #findReview(String)} with the viewer's flags.
+     */
+    public MovieReview forViewer(final String username, final MovieReview movieReview) {
+        fillViewerData(List.of(movieReview), userIds.resolve(username));
         return movieReview;
     }
 
     @Transaction
-    public MovieReview createReview(final String username, final String id, final NewMovieReview newMovieReview) {
-        final Long authorId = userRepository.findUserIdByUsername(username);
+    public MovieReview createReview(final UserPrincipal user, final String id, final NewMovieReview newMovieReview) {
+        final Long authorId = userIds.resolve(user);
         final Long articleId = articleRepository.saveArticle(authorId,
                 generateSlug(newMovieReview.getTitle()),
                 Long.parseLong(id),
                 newMovieReview.getTitle(),
                 newMovieReview.getDescription(),
                 newMovieReview.getBody());
+        movieReviewStats.reviewAdded(articleId);
+        userFeed.reviewCreated(articleId, authorId);
 
         if (newMovieReview.getTagList() != null) {
             updateArticleTags(articleId, newMovieReview.getTagList());
         }
+        reviewCounts.invalidateAll();
+        changeVersions.bumpReviews(Long.parseLong(id));
+        changeVersions.bump(ChangeVersions.Scope.MOVIES);
 
-        return findFullDetailsArticle(username, articleId);
+        return findFullDetailsArticle(authorId, articleId);
     }
 
+    /**
+     * @param old the review returned by {@link #findReviewForUpdate(String)} in the same unit of work
+     */
     @Transaction
-    public MovieReview updateReview(final String username, final MovieReview old, final UpdatedArticle update) {
+    public MovieReview updateReview(final UserPrincipal user, final MovieReview old, final UpdatedArticle update) {
         final Long articleId = old.getId();
 
-        if (!Objects.equals(old.getAuthor().getUsername(), username)) {
+        if (!Objects.equals(old.getAuthor().getUsername(), user.getUsername())) {
             throw new ApplicationException(FORBIDDEN, "User is not allowed to update article [" + old.getSlug() + "]");
         }
 
@@ -73,44 +150,89 @@ public class ReviewsService {
 
 
         if (update.getTagList() != null) {
+            final Set<String> oldTags = findArticlesTags(Set.of(articleId)).get(articleId);
             tagRepository.deleteArticleTags(articleId);
+            tagPopularity.tagsRemoved(oldTags);
             updateArticleTags(articleId, update.getTagList());
+            reviewCounts.invalidateAll();
         }
+        reviewCache.invalidate(old.getSlug());
+        changeVersions.bumpReviews(old.getMovieId());
 
-        return findFullDetailsArticle(username, articleId);
+        return findFullDetailsArticle(userIds.resolve(user), articleId);
     }
 
     @Transaction
     public void deleteReview(final String slug) {
+        final Long articleId = articleRepository.findReviewIdBySlug(slug);
+        final Set<String> oldTags = articleId == null ? null : findArticlesTags(Set.of(articleId)).get(articleId);
         tagRepository.deleteArticleTags(slug);
+        tagPopularity.tagsRemoved(oldTags);
         commentRepository.deleteArticleComments(slug);
+        movieReviewStats.reviewRemoved(slug);
         articleRepository.deleteReview(slug);
+        reviewCounts.invalidateAll();
+        reviewCache.invalidate(slug);
+        changeVersions.bumpReviews(null);
+        changeVersions.bump(ChangeVersions.Scope.MOVIES);
     }
 
     @Transaction
-    public MovieReview addArticleToFavourites(final String username, final String slug) {
-        final Long userId = userRepository.findUserIdByUsername(username);
+    public MovieReview addArticleToFavourites(final UserPrincipal user, final String slug) {
+        final Long userId = userIds.resolve(user);
         final Long articleId = findArticleId(slug);
 
-        articleRepository.addToFavorites(userId, articleId);
-        articleRepository.incrementFavoritesCount(articleId);
-        return findFullDetailsArticle(username, articleId);
+        final boolean added = articleRepository.addToFavorites(userId, articleId);
+        if (added) {
+            favoritesCounts.add(articleId, 1);
+            reviewCounts.invalidateFavoritesOf(userId);
+        }
+        return favoritesChanged(added, findFullDetailsArticle(userId, articleId));
+    }
+
+    /**
+     * @return the number of reviews that were not favorites of the user yet
+     */
+    public int addArticlesToFavourites(final UserPrincipal user, final Set<String> slugs) {
+        final Long userId = userIds.resolve(user);
+        final List<Long> articleIds = articleRepository.addAllToFavorites(userId, slugs);
+        if (!articleIds.isEmpty()) {
+            articleIds.forEach(articleId -> favoritesCounts.add(articleId, 1));
+            reviewCounts.invalidateFavoritesOf(userId);
+            changeVersions.bumpReviews(null);
+        }
+        return articleIds.size();
     }
 
     @Transaction
-    public MovieReview removeArticleFromFavourites(final String username, final String slug) {
-        final Long userId = userRepository.findUserIdByUsername(username);
+    public MovieReview removeArticleFromFavourites(final UserPrincipal user, final String slug) {
+        final Long userId = userIds.resolve(user);
         final Long articleId = findArticleId(slug);
 
-        articleRepository.removeFromFavorites(userId, articleId);
-        articleRepository.decrementFavoritesCount(articleId);
-        return findFullDetailsArticle(username, articleId);
+        final boolean removed = articleRepository.removeFromFavorites(userId, articleId);
+        if (removed) {
+            favoritesCounts.add(articleId, -1);
+            reviewCounts.invalidateFavoritesOf(userId);
+        }
+        return favoritesChanged(removed, findFullDetailsArticle(userId, articleId));
+    }
+
+    private MovieReview favoritesChanged(final boolean changed, final MovieReview movieReview) {
+        if (changed) {
+            changeVersions.bumpReviews(movieReview.getMovieId());
+        }
+        return movieReview;
     }
 
-    public MovieReviewList findFeed(final String username, final int offset, final int limit) {
-        final int count = articleRepository.countFeedSize(username);
-        final List<MovieReview> movieReviews = articleRepository.findReviewsOfAuthor(username, offset, limit);
-        fillAdditionalData(movieReviews, username);
+    public MovieReviewList findFeed(final UserPrincipal user, final CountMode countMode, final int offset, final int limit) {
+        final Long userId = userIds.resolve(user);
+        if (userId == null) {
+            throw new ApplicationException(NOT_FOUND, "User [" + user.getUsername() + "] not found");
+        }
+        final Integer count = reviewCounts.count(countMode, ReviewCountCache.feed(user.getUsername()),
+                () -> articleRepository.countReviews(ReviewQuery.reviews().feedOf(userId, null)), null);
+        final ReviewQuery query = ReviewQuery.reviews().feedOf(userId, offset + limit);
+        final List<MovieReview> movieReviews = articleRepository.findReviews(query, userId, offset, limit);
         return articleList(movieReviews, count);
     }
 
@@ -119,42 +241,112 @@ public class ReviewsService {
                                        final String author,
                                        final String tag,
                                        final String favorite,
+                                       final CountMode countMode,
                                        final Integer offset,
                                        final int limit) {
-        final Long favoriteBy = favorite != null ? userRepository.findUserIdByUsername(favorite) : null;
-        final int count = articleRepository.countReviews(movieId, author, tag, favoriteBy);
-        final List<MovieReview> movieReviews = articleRepository.findReviews(movieId, author, tag, favoriteBy, offset, limit);
-        fillAdditionalData(movieReviews, username);
-        return articleList(movieReviews, count);
+        final Long favoriteBy = userIds.resolve(favorite);
+        final Integer count = countReviews(countMode, movieId, author, tag, favoriteBy);
+        final ReviewQuery query = filters(movieId, author, tag, favoriteBy);
+        final List<MovieReview> movieReviews = articleRepository.findReviews(query, userIds.resolve(username),
+                offset, limit);
+        return articleList(movieReviews, count, limit);
+    }
+
+    public MovieReviewList findReviewsAfter(final String username,
+                                            final Long movieId,
+                                            final String author,
+                                            final String tag,
+                                            final String favorite,
+                                            final CountMode countMode,
+                                            final String cursor,
+                                            final int limit) {
+        final PageCursor pageCursor = PageCursor.decode(cursor);
+        final Long favoriteBy = userIds.resolve(favorite);
+        final Integer count = countReviews(countMode, movieId, author, tag, favoriteBy);
+        final ReviewQuery query = filters(movieId, author, tag, favoriteBy)
+                .after(pageCursor.getCreatedAtUtc(), pageCursor.getId());
+        final List<MovieReview> movieReviews = articleRepository.findReviews(query, userIds.resolve(username), 0, limit);
+        return articleList(movieReviews, count, limit);
+    }
+
+    private Integer countReviews(final CountMode countMode,
+                                 final Long movieId,
+                                 final String author,
+                                 final String tag,
+                                 final Long favoriteBy) {
+        final ReviewCountCache.Key key = ReviewCountCache.reviews(movieId, author, tag, favoriteBy);
+        if (movieId != null && author == null && tag == null && favoriteBy == null) {
+            return reviewCounts.count(countMode, key, () -> movieReviewsCount(movieId), null);
+        }
+        return reviewCounts.count(countMode, key,
+                () -> articleRepository.countReviews(filters(movieId, author, tag, favoriteBy)),
+                key.isUnfiltered() ? this::estimateReviewsCount : null);
+    }
+
+    private Integer estimateReviewsCount() {
+        final long estimate = articleRepository.estimateReviewsCount();
+        return estimate < 0 ? null : (int) estimate;
     }
 
+    private int movieReviewsCount(final long movieId) {
+        final Integer count = movieReviewStats.findReviewsCount(movieId);
+        return count == null ? 0 : count;
+    }
+
+    private ReviewQuery filters(final Long movieId, final String author, final String tag, final Long favoriteBy) {
+        return ReviewQuery.reviews()
+                .movie(movieId)
+                .author(author)
+                .tag(tag)
+                .favoritedBy(favoriteBy);
+    }
 
-    private MovieReview findFullDetailsArticle(final String username, final Long articleId) {
+    private MovieReview findFullDetailsArticle(final Long userId, final Long articleId) {
         final MovieReview movieReview = articleRepository.findReviewById(articleId);
-        fillAdditionalData(List.of(movieReview), username);
+        fillAdditionalData(List.of(movieReview), userId);
         return movieReview;
     }
 
-    private void fillAdditionalData(final List<MovieReview> movieReviewList, final String username) {
+    private void fillAdditionalData(final List<MovieReview> movieReviewList, final Long userId) {
         final Set<Long> articleIds = movieReviewList.stream().map(MovieReview::getId).collect(toSet());
-        final Set<String> authors = movieReviewList.stream().map(e -> e.getAuthor().getUsername()).collect(toSet());
         fillTags(movieReviewList, articleIds);
-        fillFavoritesFlags(movieReviewList, username, articleIds);
-        fillFollowing(movieReviewList, username, authors);
+        fillViewerData(movieReviewList, userId);
     }
 
-    private void fillFollowing(final List<MovieReview> movieReviewList, final String username, final Set<String> authors) {
-        if (username != null && authors != null && !authors.isEmpty()) {
-            final Set<String> usernames = userRepository.findFollowedAuthorUsernames(authors, username);
+    private void fillViewerData(final List<MovieReview> movieReviewList, final Long userId) {
+        final Set<Long> articleIds = movieReviewList.stream().map(MovieReview::getId).collect(toSet());
+        final Set<Long> authorIds = movieReviewList.stream().map(e -> e.getAuthor().getId()).collect(toSet());
+        fillFavoritesFlags(movieReviewList, userId, articleIds);
+        fillFollowing(movieReviewList, userId, authorIds);
+        fillPendingFavorites(movieReviewList);
+    }
+
+    private MovieReview loadReview(final String slug) {
+        final MovieReview movieReview = findArticle(slug);
+        fillTags(List.of(movieReview), Set.of(movieReview.getId()));
+        return movieReview;
+    }
+
+    private void fillPendingFavorites(final List<MovieReview> movieReviewList) {
+        for (final MovieReview movieReview : movieReviewList) {
+            movieReview.setFavoritesCount(favoritesCount(movieReview));
+        }
+    }
+
+    private void fillFollowing(final List<MovieReview> movieReviewList, final Long userId, final Set<Long> authorIds) {
+        if (userId != null && authorIds != null && !authorIds.isEmpty()) {
+            final Set<Long> followedIds = followGraph.isAvailable()
+                    ? followGraph.followedAmong(userId, authorIds)
+                    : userRepository.findFollowedAuthorIds(authorIds, userId);
             for (final MovieReview movieReview : movieReviewList) {
-                movieReview.getAuthor().setFollowing(usernames.contains(movieReview.getAuthor().getUsername()));
+                movieReview.getAuthor().setFollowing(followedIds.contains(movieReview.getAuthor().getId()));
             }
         }
     }
 
-    private void fillFavoritesFlags(final List<MovieReview> movieReviewList, final String username, final Set<Long> articleIds) {
-        if (username != null && articleIds != null && !articleIds.isEmpty()) {
-            final Set<Long> favoriteArticleIds = articleRepository.findFavoriteReviews(username, articleIds);
+    private void fillFavoritesFlags(final List<MovieReview> movieReviewList, final Long userId, final Set<Long> articleIds) {
+        if (userId != null && articleIds != null && !articleIds.isEmpty()) {
+            final Set<Long> favoriteArticleIds = articleRepository.findFavoriteReviews(userId, articleIds);
             for (final MovieReview movieReview : movieReviewList) {
                 movieReview.setFavorited(favoriteArticleIds.contains(movieReview.getId()));
             }
@@ -185,10 +377,9 @@ public class ReviewsService {
     }
 
     private void updateArticleTags(final long articleId, final Set<String> tags) {
-        final Set<String> existingTags = tagRepository.findTags(tags);
-        final Set<String> missingTags = Sets.difference(tags, existingTags);
-        tagRepository.saveTags(missingTags);
-        tagRepository.addTagsToArticle(Collections.nCopies(tags.size(), articleId), tags);
+        final Collection<Long> tagIds = tagNames.idsOf(tags).values();
+        tagRepository.addTagsToArticle(Collections.nCopies(tagIds.size(), articleId), tagIds);
+        tagPopularity.tagsAdded(tags);
     }
 
     private Map<Long, Set<String>> findArticlesTags(final Collection<Long> articleIds) {
@@ -196,30 +387,57 @@ public class ReviewsService {
             return Collections.emptyMap();
         }
 
-        final List<ArticleTagsMapper.ArticleIdTag> articleTags = tagRepository.findArticlesTags(articleIds);
-        return articleTags
-                .stream()
-                .collect(groupingBy(
-                        ArticleTagsMapper.ArticleIdTag::getArticleId,
-                        mapping(ArticleTagsMapper.ArticleIdTag::getTag, toSet())
-                ));
+        return tagNames.group(tagRepository.findArticlesTagIds(articleIds),
+                ArticleTagsMapper.ArticleIdTag::getArticleId, ArticleTagsMapper.ArticleIdTag::getTagId);
+    }
+
+    private void fillTagNames(final List<MovieReview> movieReviews) {
+        final Set<Long> tagIds = movieReviews.stream()
+                .map(MovieReview::getTagIds)
+                .filter(Objects::nonNull)
+                .flatMap(Set::stream)
+                .collect(toSet());
+        if (tagIds.isEmpty()) {
+            return;
+        }
+        final Map<Long, String> names = tagNames.namesOf(tagIds);
+        for (final MovieReview movieReview : movieReviews) {
+            if (movieReview.getTagIds() != null) {
+                movieReview.setTagList(movieReview.getTagIds().stream()
+                        .map(names::get)
+                        .filter(Objects::nonNull)
+                        .collect(toSet()));
+            }
+        }
     }
 
-    private MovieReviewList articleList(final List<MovieReview> movieReviews, final int count) {
+    private MovieReviewList articleList(final List<MovieReview> movieReviews, final Integer count) {
+        fillTagNames(movieReviews);
+        fillPendingFavorites(movieReviews);
         final MovieReviewList movieReviewList = new MovieReviewList();
         movieReviewList.setArticles(movieReviews);
         movieReviewList.setReviewsCount(count);
         return movieReviewList;
     }
 
-    private String generateSlug(final String title) {
-        final String slug = title.strip()
-                .replaceAll("[^\\p{IsAlphabetic}^\\p{IsDigit}]+", "-")
-                .toLowerCase();
+    private MovieReviewList articleList(final List<MovieReview> movieReviews, final Integer count, final int limit) {
+        final MovieReviewList movieReviewList = articleList(movieReviews, count);
+        if (limit > 0 && movieReviews.size() == limit) {
+            final MovieReview last = movieReviews.get(movieReviews.size() - 1);
+            movieReviewList.setNextCursor(new PageCursor(last.getCreatedAt(), last.getId()).encode());
+        }
+        return movieReviewList;
+    }
 
+    private String generateSlug(final String title) {
+        final String slug = slugOf(title);
         return isSlugUnique(slug) ? slug : UUID.randomUUID().toString();
     }
 
+    static String slugOf(final String title) {
+        return SLUG_SEPARATORS.matcher(title.strip()).replaceAll("-").toLowerCase();
+    }
+
     private boolean isSlugUnique(final String slug) {
         return articleRepository.findReviewIdBySlug(slug) == null;
     }
@@ -0,0 +1,179 @@
+package io.realworld.core;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.common.hash.Hashing;
+import io.dropwizard.lifecycle.Managed;
+import io.realworld.db.TagCount;
+import io.realworld.db.TagRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Predicate;
+
+import static java.util.stream.Collectors.toList;
+
+/**
+ * Number of reviews per tag, kept in memory so {@code /tags} never queries the database.
+ *
+ * <p>
+ * The counts are loaded on start and then maintained by {@link ReviewsService} as reviews gain and lose tags. The
+ * full {@code {"tags": [...]}} response, most used tag first, is serialized once per change and served as is; its
+ * entity tag is a hash of those bytes, so it is the same across restarts and instances holding the same counts.
+ *
+ * <p>
+ * Counts are adjusted through {@link AfterCommit}, once the change is committed; a rolled back change leaves them as
+ * they were.
+ */
+public class TagPopularity implements Managed {
+    private static final Logger LOG = LoggerFactory.getLogger(TagPopularity.class);
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+    private static final Comparator<Map.Entry<String, Long>> RANKING =
+            Comparator.<Map.Entry<String, Long>>comparingLong(tag -> -tag.getValue())
+                    .thenComparing(Map.Entry::getKey);
+
+    private final TagRepository tagRepository;
+    private final AfterCommit afterCommit;
+    private final Map<String, AtomicLong> counts = new ConcurrentHashMap<>();
+    private final AtomicLong changes = new AtomicLong();
+    private volatile Ranking ranking;
+
+    public TagPopularity(final TagRepository tagRepository) {
+        this(tagRepository, AfterCommit.IMMEDIATELY);
+    }
+
+    /**
+     * @param tagRepository an on-demand repository, the counts are also reloaded from admin tasks.
+     */
+    public TagPopularity(final TagRepository tagRepository, final AfterCommit afterCommit) {
+        this.tagRepository = tagRepository;
+        this.afterCommit = afterCommit;
+    }
+
+    @Override
+    public void start() {
+        reload();
+    }
+
+    @Override
+    public void stop() {
+    }
+
+    public synchronized void reload() {
+        final List<TagCount> tags = tagRepository.findTagPopularity();
+        counts.clear();
+        for (final TagCount tag : tags) {
+            counts.put(tag.getName(), new AtomicLong(tag.getReviewsCount()));
+        }
+        changes.incrementAndGet();
+        LOG.info("Loaded popularity of {} tags", tags.size());
+    }
+
+    public void tagsAdded(final Collection<String> tags) {
+        change(tags, 1);
+    }
+
+    public void tagsRemoved(final Collection<String> tags) {
+        change(tags, -1);
+    }
+
+    private void change(final Collection<String> tags, final long delta) {
+        if (tags == null || tags.isEmpty()) {
+            return;
+        }
+        final List<String> changed = List.copyOf(tags);
+        afterCommit.run(() -> {
+            for (final String tag : changed) {
+                counts.computeIfAbsent(tag, name -> new AtomicLong()).addAndGet(delta);
+            }
+            changes.incrementAndGet();
+        });
+    }
+
+    /**
+     * The full ranking, rebuilt on the first call after a change.
+     */
+    public Ranking ranking() {
+        final Ranking current = ranking;
+        return current != null && current.changes == changes.get() ? current : rank();
+    }
+
+    /*
+     * The change count is read before the counts, so a ranking that raced with a change is rebuilt on the next call.
+     * Counts are copied before sorting as they may move while the sort runs.
+     */
+    private synchronized Ranking rank() {
+        final long seen = changes.get();
+        if (ranking == null || ranking.changes != seen) {
+            final List<String> ranked = counts.entrySet().stream()
+                    .map(tag -> Map.entry(tag.getKey(), tag.getValue().get()))
+                    .sorted(RANKING)
+                    .map(Map.Entry::getKey)
+                    .collect(toList());
+            ranking = new Ranking(seen, ranked);
+        }
+        return ranking;
+    }
+
+    public static class Ranking {
+        private final long changes;
+        private final List<String> tags;
+        private final Rendered all;
+
+        private Ranking(final long changes, final List<String> tags) {
+            this.changes = changes;
+            this.tags = tags;
+            this.all = render(tags);
+        }
+
+        public Rendered all() {
+            return all;
+        }
+
+        /**
+         * The first {@code top} tags starting with {@code prefix}, either may be {@code null}.
+         */
+        public Rendered filter(final Integer top, final String prefix) {
+            if (top == null && (prefix == null || prefix.isEmpty())) {
+                return all;
+            }
+            final Predicate<String> matches = prefix == null ? tag -> true : tag -> tag.startsWith(prefix);
+            return render(tags.stream()
+                    .filter(matches)
+                    .limit(top == null ? Long.MAX_VALUE : top)
+                    .collect(toList()));
+        }
+
+        private static Rendered render(final List<String> tags) {
+            try {
+                return new Rendered(MAPPER.writeValueAsBytes(Map.of("tags", tags)));
+            } catch (final JsonProcessingException e) {
+                throw new IllegalStateException("Cannot serialize tags", e);
+            }
+        }
+    }
+
+    public static class Rendered {
+        private final byte[] body;
+        private final String etag;
+
+        private Rendered(final byte[] body) {
+            this.body = body;
+            this.etag = Hashing.murmur3_128().hashBytes(body).toString();
+        }
+
+        public byte[] getBody() {
+            return body;
+        }
+
+        public String getEtag() {
+            return etag;
+        }
+    }
+}
@@ -0,0 +1,157 @@
+package io.realworld.core;
+
+import com.codahale.metrics.Histogram;
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
+import io.dropwizard.lifecycle.Managed;
+import io.realworld.db.UserFeedRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+import static com.codahale.metrics.MetricRegistry.name;
+
+/**
+ * Keeps the user_feed timelines behind the home feed, fanning out on write.
+ *
+ * <p>
+ * A new review is inserted into the feed of every follower of its author, one batch of followers per statement, on
+ * the request's handle: POST /movies/{id}/reviews is a unit of work, so the fan-out commits or rolls back with the
+ * review. Authors with at least {@code celebrityFollowers}
+ * followers are not fanned out to; they are recorded in feed_celebrities and merged into the feeds at read time by
+ * {@link io.realworld.db.ReviewQuery#feedOf}.
+ *
+ * <p>
+ * Following an author backfills their latest reviews into the follower's feed and unfollowing removes them. Feeds
+ * that grew are trimmed to {@code maxEntries} rows in the background, so pages past that depth come out empty.
+ */
+public class UserFeed implements Managed {
+    private static final Logger LOG = LoggerFactory.getLogger(UserFeed.class);
+    private static final int TRIM_BATCH_SIZE = 500;
+
+    private final UserFeedRepository feeds;
+    private final UserFeedRepository trimRepository;
+    private final ScheduledExecutorService scheduler;
+    private final FeedConfiguration config;
+    private final Set<Long> grown = ConcurrentHashMap.newKeySet();
+    private final Histogram fanOutSize;
+    private final Timer fanOuts;
+    private final Meter celebrityReviews;
+    private final Timer trims;
+    private ScheduledFuture<?> trimTask;
+
+    /**
+     * @param feeds          the request scoped repository, used by the write paths
+     * @param trimRepository an on-demand repository, used by the background trimming
+     */
+    public UserFeed(final UserFeedRepository feeds,
+                    final UserFeedRepository trimRepository,
+                    final ScheduledExecutorService scheduler,
+                    final FeedConfiguration config,
+                    final MetricRegistry metrics) {
+        this.feeds = feeds;
+        this.trimRepository = trimRepository;
+        this.scheduler = scheduler;
+        this.config = config;
+        this.fanOutSize = metrics.histogram(name(UserFeed.class, "fanOutSize"));
+        this.fanOuts = metrics.timer(name(UserFeed.class, "fanOut"));
+        this.celebrityReviews = metrics.meter(name(UserFeed.class, "celebrityReviews"));
+        this.trims = metrics.timer(name(UserFeed.class, "trim"));
+    }
+
+    public void reviewCreated(final long articleId, final long authorId) {
+        if (isCelebrity(authorId)) {
+            celebrityReviews.mark();
+            return;
+        }
+        try (Timer.Context ignored = fanOuts.time()) {
+            long after = 0;
+            int reached = 0;
+            List<Long> batch;
+            do {
+                // paged on the followers themselves: feeds that already had the review insert nothing
+                batch = feeds.findFollowerIds(authorId, after, config.getFanOutBatchSize());
+                if (!batch.isEmpty()) {
+                    reached += feeds.fanOut(articleId, batch);
+                    grown.addAll(batch);
+                    after = batch.get(batch.size() - 1);
+                }
+            } while (batch.size() == config.getFanOutBatchSize());
+            fanOutSize.update(reached);
+        }
+    }
+
+    public void followed(final long followerId, final long authorId) {
+        if (!feeds.isCelebrity(authorId) && feeds.backfill(followerId, authorId, config.getMaxEntries()) > 0) {
+            grown.add(followerId);
+        }
+    }
+
+    public void unfollowed(final long followerId, final long authorId) {
+        feeds.removeAuthor(followerId, authorId);
+    }
+
+    private boolean isCelebrity(final long authorId) {
+        if (feeds.isCelebrity(authorId)) {
+            return true;
+        }
+        if (feeds.countFollowers(authorId) >= config.getCelebrityFollowers()) {
+            feeds.addCelebrity(authorId);
+            return true;
+        }
+        return false;
+    }
+
+    @Override
+    public void start() {
+        final long interval = config.getTrimInterval().toMillis();
+        trimTask = scheduler.scheduleWithFixedDelay(this::trimSafely, interval, interval, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public void stop() {
+        if (trimTask != null) {
+            trimTask.cancel(false);
+        }
+    }
+
+    public void trim() {
+        final Iterator<Long> pending = grown.iterator();
+        List<Long> batch = new ArrayList<>(TRIM_BATCH_SIZE);
+        while (pending.hasNext()) {
+            batch.add(pending.next());
+            pending.remove();
+            if (batch.size() == TRIM_BATCH_SIZE || !pending.hasNext()) {
+                trimBatch(batch);
+                batch = new ArrayList<>(TRIM_BATCH_SIZE);
+            }
+        }
+    }
+
+    private void trimBatch(final Collection<Long> userIds) {
+        try (Timer.Context ignored = trims.time()) {
+            trimRepository.trim(userIds, config.getMaxEntries());
+        } catch (final RuntimeException e) {
+            grown.addAll(userIds);
+            throw e;
+        }
+    }
+
+    private void trimSafely() {
+        try {
+            trim();
+        } catch (final RuntimeException e) {
+            LOG.warn("Trimming the user feeds failed, retrying on the next run", e);
+        }
+    }
+}
@@ -0,0 +1,53 @@
+package io.realworld.core;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import io.realworld.db.UserRepository;
+import io.realworld.security.UserPrincipal;
+
+/**
+ * Process wide username to user id cache, so services do not look the same user up on every request.
+ *
+ * <p>
+ * Usernames only change through {@link UserService#updateUser}, which invalidates the old name. Unknown usernames
+ * are not cached. Authenticated users are not looked up at all when their token carries their id.
+ */
+public class UserIdResolver {
+
+    private static final long MAXIMUM_SIZE = 100_000;
+
+    private final UserRepository userRepository;
+    private final Cache<String, Long> ids = CacheBuilder.newBuilder()
+            .maximumSize(MAXIMUM_SIZE)
+            .build();
+
+    public UserIdResolver(final UserRepository userRepository) {
+        this.userRepository = userRepository;
+    }
+
+    public Long resolve(final String username) {
+        if (username == null) {
+            return null;
+        }
+        final Long cached = ids.getIfPresent(username);
+        if (cached != null) {
+            return cached;
+        }
+        final Long id = userRepository.findUserIdByUsername(username);
+        if (id != null) {
+            ids.put(username, id);
+        }
+        return id;
+    }
+
+    /**
+     * The id carried by the user's token, looked up by username for tokens issued before the id claim.
+     */
+    public Long resolve(final UserPrincipal principal) {
+        return principal.getId() != null ? principal.getId() : resolve(principal.getUsername());
+    }
+
+    public void invalidate(final String username) {
+        ids.invalidate(username);
+    }
+}
@@ -7,6 +7,7 @@ import io.realworld.api.response.User;
 import io.realworld.db.UserRepository;
 import io.realworld.exceptions.ApplicationException;
 import io.realworld.exceptions.ErrorCode;
+import io.realworld.security.CredentialCache;
 import io.realworld.security.JwtTokenService;
 import io.realworld.security.PasswordEncoder;
 
@@ -18,38 +19,53 @@ import static io.realworld.exceptions.ErrorCode.NOT_FOUND;
 public class UserService {
     private final UserRepository userRepository;
     private final PasswordEncoder passwordEncoder;
+    private final CredentialCache credentialCache;
     private final JwtTokenService jwtTokenService;
+    private final UserIdResolver userIds;
+    private final ChangeVersions changeVersions;
 
     public UserService(final UserRepository userRepository,
                        final PasswordEncoder passwordEncoder,
-                       final JwtTokenService jwtTokenService) {
+                       final CredentialCache credentialCache,
+                       final JwtTokenService jwtTokenService,
+                       final UserIdResolver userIds,
+                       final ChangeVersions changeVersions) {
         this.userRepository = userRepository;
         this.passwordEncoder = passwordEncoder;
+        this.credentialCache = credentialCache;
         this.jwtTokenService = jwtTokenService;
+        this.userIds = userIds;
+        this.changeVersions = changeVersions;
     }
 
     public User login(final String email, final String password) {
-        final User user = userRepository.findUserByEmail(email);
-        if (user == null || !passwordEncoder.matches(password, user.getPassword())) {
-            throw new ApplicationException(INVALID_CREDENTIALS);
-        }
-        user.setToken(jwtTokenService.generateJwt(user.getUsername(), user.getProfiles()).getToken());
+        final User user = credentialCache.verified(email, password, () -> verifyCredentials(email, password));
+        user.setToken(jwtTokenService.generateJwt(user.getId(), user.getUsername(), user.getProfiles()).getToken());
         return user;
     }
 
     public User login(final Login login) {
-        final User user = userRepository.findUserByEmail(login.getEmail());
-        if (user == null || !passwordEncoder.matches(login.getPassword(), user.getPassword())) {
+        return login(login.getEmail(), login.getPassword());
+    }
+
+
+    /*
+     * Also upgrades a password stored with an outdated hash while its raw value is at hand.
+     */
+    private User verifyCredentials(final String email, final String password) {
+        final User user = userRepository.findUserByEmail(email);
+        if (user == null || !passwordEncoder.matches(password, user.getPassword())) {
             throw new ApplicationException(INVALID_CREDENTIALS);
         }
-        user.setToken(jwtTokenService.generateJwt(user.getUsername(), user.getProfiles()).getToken());
+        if (passwordEncoder.needsRehash(user.getPassword())) {
+            userRepository.rehashPassword(user.getId(), user.getPassword(), passwordEncoder.encode(password));
+        }
         return user;
     }
 
-
     public User findByUsername(final String username) {
         final User user = findUser(username);
-        user.setToken(jwtTokenService.generateJwt(user.getUsername(), user.getProfiles()).getToken());
+        user.setToken(jwtTokenService.currentJwt(user.getId(), user.getUsername(), user.getProfiles()).getToken());
         return user;
     }
 
@@ -62,7 +78,7 @@ public class UserService {
                 passwordEncoder.encode(user.getPassword()));
 
         final User createdUser = userRepository.findUserById(id);
-        createdUser.setToken(jwtTokenService.generateJwt(user.getUsername(), createdUser.getProfiles()).getToken());
+        createdUser.setToken(jwtTokenService.generateJwt(createdUser.getId(), user.getUsername(), createdUser.getProfiles()).getToken());
         return createdUser;
     }
 
@@ -85,6 +101,9 @@ public class UserService {
                 coalesce(updatedUser.getImage(), existingUser.getImage()),
                 coalesce(updatedUser.getBio(), existingUser.getBio())
         );
+        userIds.invalidate(existingUser.getUsername());
+        credentialCache.invalidateUser(existingUser.getId());
+        changeVersions.bump(ChangeVersions.Scope.PROFILES);
 
 
         return userRepository.findUserById(existingUser.getId());
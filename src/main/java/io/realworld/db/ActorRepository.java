@@ -1,7 +1,7 @@
 package io.realworld.db;
 
-import io.realworld.db.mapper.ArticleTagsMapper;
 import io.realworld.db.mapper.MovieActorsMapper;
+import io.realworld.db.mapper.NameIdMapper;
 import org.jdbi.v3.sqlobject.config.RegisterRowMapper;
 import org.jdbi.v3.sqlobject.customizer.Bind;
 import org.jdbi.v3.sqlobject.customizer.BindList;
@@ -11,22 +11,32 @@ import org.jdbi.v3.sqlobject.statement.SqlUpdate;
 
 import java.util.Collection;
 import java.util.List;
-import java.util.Set;
 
 public interface ActorRepository {
     @SqlQuery("SELECT NAME FROM actors")
     List<String> findAllTags();
 
-    @SqlQuery("SELECT distinct(NAME) FROM actors WHERE NAME IN (<names>)")
-    Set<String> findActors(@BindList("names") Collection<String> names);
+    /*
+     * Actor names are not unique, the lowest id is loaded first and wins.
+     */
+    @SqlQuery("SELECT ID, NAME FROM actors ORDER BY ID")
+    @RegisterRowMapper(NameIdMapper.class)
+    List<NameId> findAllActorIds();
 
-    @SqlBatch("INSERT INTO actors (NAME) VALUES (?)")
-    void saveActors(Set<String> names);
+    @SqlQuery("SELECT ID, NAME FROM actors WHERE ID IN (<ids>)")
+    @RegisterRowMapper(NameIdMapper.class)
+    List<NameId> findActorsByIds(@BindList("ids") Collection<Long> ids);
 
-    @SqlBatch("INSERT INTO movie_actors (MOVIE_ID, ACTOR_ID) " +
-            "VALUES (?, (SELECT ID FROM actors WHERE name = ?)) " +
-            "ON CONFLICT DO NOTHING")
-    void addActorsToMovies(Collection<Long> movieIds, Collection<String> actors);
+    @SqlQuery("SELECT ID, NAME FROM actors WHERE NAME IN (<names>) ORDER BY ID")
+    @RegisterRowMapper(NameIdMapper.class)
+    List<NameId> findActorsByNames(@BindList("names") Collection<String> names);
+
+    @SqlQuery("INSERT INTO actors (NAME) SELECT unnest(ARRAY[<names>]) RETURNING ID, NAME")
+    @RegisterRowMapper(NameIdMapper.class)
+    List<NameId> saveActors(@BindList("names") Collection<String> names);
+
+    @SqlBatch("INSERT INTO movie_actors (MOVIE_ID, ACTOR_ID) VALUES (?, ?) ON CONFLICT DO NOTHING")
+    void addActorsToMovies(Collection<Long> movieIds, Collection<Long> actorIds);
 
     @SqlUpdate("DELETE FROM movie_actors WHERE MOVIE_ID = :movieId")
     void deleteMovieActors(@Bind("movieId") long movieId);
@@ -34,10 +44,34 @@ public interface ActorRepository {
     @SqlUpdate("DELETE FROM movie_actors WHERE MOVIE_ID in (SELECT distinct(ID) FROM movies WHERE SLUG = :slug)")
     void deleteMovieActors(@Bind("slug") String slug);
 
-    @SqlQuery("SELECT mv.MOVIE_ID, t.NAME FROM movie_actors mv " +
-            "INNER JOIN actors t ON mv.ACTOR_ID = t.ID " +
-            "WHERE mv.MOVIE_ID in (<movieIds>)")
+    /*
+     * Actor names are resolved through the actors NameDictionary instead of a join.
+     */
+    @SqlQuery("SELECT MOVIE_ID, ACTOR_ID FROM movie_actors WHERE MOVIE_ID in (<movieIds>)")
     @RegisterRowMapper(MovieActorsMapper.class)
-    List<MovieActorsMapper.MovieIdActor> findMovieActors(@BindList("movieIds") Collection<Long> movieIds);
+    List<MovieActorsMapper.MovieIdActor> findMovieActorIds(@BindList("movieIds") Collection<Long> movieIds);
+
+    default NameSource actorNames() {
+        return new NameSource() {
+            @Override
+            public List<NameId> findAll() {
+                return findAllActorIds();
+            }
+
+            @Override
+            public List<NameId> findByIds(final Collection<Long> ids) {
+                return findActorsByIds(ids);
+            }
+
+            @Override
+            public List<NameId> findByNames(final Collection<String> names) {
+                return findActorsByNames(names);
+            }
 
+            @Override
+            public List<NameId> insert(final Collection<String> names) {
+                return saveActors(names);
+            }
+        };
+    }
 }
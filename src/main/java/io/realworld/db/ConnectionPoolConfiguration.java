@@ -0,0 +1,42 @@
+package io.realworld.db;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import java.time.Duration;
+
+public class ConnectionPoolConfiguration {
+    private static final Duration DEFAULT_LEAK_DETECTION_THRESHOLD = Duration.ZERO;
+    private static final int DEFAULT_STATEMENT_CACHE_QUERIES = 256;
+
+    public enum Implementation {
+        TOMCAT, HIKARI
+    }
+
+    private final Implementation implementation;
+    private final Duration leakDetectionThreshold;
+    private final int statementCacheQueries;
+
+    public ConnectionPoolConfiguration(@JsonProperty("implementation") final Implementation implementation,
+                                       @JsonProperty("leakDetectionThreshold") final Duration leakDetectionThreshold,
+                                       @JsonProperty("statementCacheQueries") final Integer statementCacheQueries) {
+        this.implementation = implementation != null ? implementation : Implementation.TOMCAT;
+        this.leakDetectionThreshold = leakDetectionThreshold != null ? leakDetectionThreshold : DEFAULT_LEAK_DETECTION_THRESHOLD;
+        this.statementCacheQueries = statementCacheQueries != null ? statementCacheQueries : DEFAULT_STATEMENT_CACHE_QUERIES;
+    }
+
+    public static ConnectionPoolConfiguration defaults() {
+        return new ConnectionPoolConfiguration(null, null, null);
+    }
+
+    public Implementation getImplementation() {
+        return implementation;
+    }
+
+    public Duration getLeakDetectionThreshold() {
+        return leakDetectionThreshold;
+    }
+
+    public int getStatementCacheQueries() {
+        return statementCacheQueries;
+    }
+}
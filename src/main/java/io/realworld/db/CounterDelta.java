@@ -0,0 +1,22 @@
+package io.realworld.db;
+
+/**
+ * Pending change of a denormalized counter column, bound as one row of an {@code UPDATE ... FROM (VALUES ...)}.
+ */
+public class CounterDelta {
+    private final long id;
+    private final long delta;
+
+    public CounterDelta(final long id, final long delta) {
+        this.id = id;
+        this.delta = delta;
+    }
+
+    public long getId() {
+        return id;
+    }
+
+    public long getDelta() {
+        return delta;
+    }
+}
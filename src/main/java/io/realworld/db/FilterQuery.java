@@ -0,0 +1,63 @@
+package io.realworld.db;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Base of the list query builders: collects only the predicates a request actually uses, together with their
+ * bindings, instead of the catch-all {@code (:x IS NULL OR col = :x)} form that defeats index use.
+ *
+ * <p>
+ * The rendered {@link #where()} clause is spliced into the statement with {@code @Define("where")} and the values
+ * are bound with {@code @BindMap}.
+ */
+public abstract class FilterQuery {
+
+    private final List<String> conditions = new ArrayList<>();
+    private final Map<String, Object> bindings = new LinkedHashMap<>();
+
+    protected void and(final String condition, final String name, final Object value) {
+        if (value != null) {
+            conditions.add(condition);
+            bindings.put(name, value);
+        }
+    }
+
+    protected void and(final String condition, final Map<String, Object> values) {
+        conditions.add(condition);
+        bindings.putAll(values);
+    }
+
+    public String where() {
+        return conditions.isEmpty() ? "" : "WHERE " + String.join(" AND ", conditions);
+    }
+
+    public Map<String, Object> bindings() {
+        return Collections.unmodifiableMap(bindings);
+    }
+
+    public boolean isUnfiltered() {
+        return conditions.isEmpty();
+    }
+
+    @Override
+    public boolean equals(final Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (o == null || getClass() != o.getClass()) {
+            return false;
+        }
+        final FilterQuery that = (FilterQuery) o;
+        return conditions.equals(that.conditions) && bindings.equals(that.bindings);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(conditions, bindings);
+    }
+}
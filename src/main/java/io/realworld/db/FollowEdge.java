@@ -0,0 +1,22 @@
+package io.realworld.db;
+
+/**
+ * Row of followers: {@code followerId} follows {@code userId}.
+ */
+public class FollowEdge {
+    private final long followerId;
+    private final long userId;
+
+    public FollowEdge(final long followerId, final long userId) {
+        this.followerId = followerId;
+        this.userId = userId;
+    }
+
+    public long getFollowerId() {
+        return followerId;
+    }
+
+    public long getUserId() {
+        return userId;
+    }
+}
@@ -0,0 +1,122 @@
+package io.realworld.db;
+
+import com.codahale.metrics.MetricRegistry;
+import com.zaxxer.hikari.HikariDataSource;
+import io.dropwizard.db.DataSourceFactory;
+import io.dropwizard.db.ManagedDataSource;
+import io.dropwizard.db.PooledDataSourceFactory;
+import io.dropwizard.util.Duration;
+
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * A HikariCP pool set up from the {@code datasource} block, in place of Dropwizard's tomcat-jdbc pool.
+ *
+ * <p>
+ * The driver, credentials, driver properties, pool size, {@code maxWaitForConnection}, {@code minIdleTime},
+ * {@code maxConnectionAge} and {@code validationQueryTimeout} are taken from the data source factory; the settings
+ * only tomcat-jdbc knows, such as the eviction interval or the idle checks, are ignored. Hikari checks connections
+ * with the driver's {@code isValid}, the validation query is only used by the health check.
+ *
+ * <p>
+ * The pool registers its metrics under its name, e.g. {@code database.pool.Wait} for the time spent waiting for a
+ * connection and {@code database.pool.ActiveConnections}. It is started on the first connection request.
+ */
+public class HikariDataSourceFactory implements PooledDataSourceFactory {
+    private static final String STATEMENT_CACHE_PROPERTY = "preparedStatementCacheQueries";
+
+    private final DataSourceFactory dataSource;
+    private final ConnectionPoolConfiguration config;
+
+    public HikariDataSourceFactory(final DataSourceFactory dataSource, final ConnectionPoolConfiguration config) {
+        this.dataSource = dataSource;
+        this.config = config;
+    }
+
+    @Override
+    public ManagedDataSource build(final MetricRegistry metrics, final String name) {
+        final ManagedHikariDataSource pool = new ManagedHikariDataSource();
+        pool.setPoolName(name);
+        pool.setDriverClassName(dataSource.getDriverClass());
+        pool.setJdbcUrl(dataSource.getUrl());
+        pool.setUsername(dataSource.getUser());
+        pool.setPassword(dataSource.getPassword());
+        dataSource.getProperties().forEach(pool::addDataSourceProperty);
+        pool.addDataSourceProperty(STATEMENT_CACHE_PROPERTY, String.valueOf(config.getStatementCacheQueries()));
+        pool.setMaximumPoolSize(dataSource.getMaxSize());
+        pool.setMinimumIdle(dataSource.getMinSize());
+        pool.setConnectionTimeout(dataSource.getMaxWaitForConnection().toMilliseconds());
+        pool.setIdleTimeout(dataSource.getMinIdleTime().toMilliseconds());
+        dataSource.getMaxConnectionAge().ifPresent(age -> pool.setMaxLifetime(age.toMilliseconds()));
+        dataSource.getValidationQueryTimeout().ifPresent(timeout -> pool.setValidationTimeout(timeout.toMilliseconds()));
+        pool.setLeakDetectionThreshold(config.getLeakDetectionThreshold().toMillis());
+        if (dataSource.getAutoCommitByDefault() != null) {
+            pool.setAutoCommit(dataSource.getAutoCommitByDefault());
+        }
+        if (dataSource.getReadOnlyByDefault() != null) {
+            pool.setReadOnly(dataSource.getReadOnlyByDefault());
+        }
+        pool.setMetricRegistry(metrics);
+        return pool;
+    }
+
+    @Override
+    public boolean isAutoCommentsEnabled() {
+        return dataSource.isAutoCommentsEnabled();
+    }
+
+    @Override
+    public Map<String, String> getProperties() {
+        return dataSource.getProperties();
+    }
+
+    @Override
+    public Optional<Duration> getValidationQueryTimeout() {
+        return dataSource.getValidationQueryTimeout();
+    }
+
+    @Override
+    @SuppressWarnings("deprecation")
+    public Optional<Duration> getHealthCheckValidationTimeout() {
+        return dataSource.getHealthCheckValidationTimeout();
+    }
+
+    @Override
+    public Optional<String> getValidationQuery() {
+        return dataSource.getValidationQuery();
+    }
+
+    @Override
+    @SuppressWarnings("deprecation")
+    public String getHealthCheckValidationQuery() {
+        return dataSource.getHealthCheckValidationQuery();
+    }
+
+    @Override
+    public String getDriverClass() {
+        return dataSource.getDriverClass();
+    }
+
+    @Override
+    public String getUrl() {
+        return dataSource.getUrl();
+    }
+
+    @Override
+    public void asSingleConnectionPool() {
+        dataSource.asSingleConnectionPool();
+    }
+
+    private static class ManagedHikariDataSource extends HikariDataSource implements ManagedDataSource {
+
+        @Override
+        public void start() {
+        }
+
+        @Override
+        public void stop() {
+            close();
+        }
+    }
+}
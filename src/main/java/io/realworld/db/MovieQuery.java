@@ -0,0 +1,28 @@
+package io.realworld.db;
+
+/**
+ * Filters of the movie list, see {@link ReviewQuery}.
+ */
+public class MovieQuery extends FilterQuery {
+
+    public static MovieQuery movies() {
+        return new MovieQuery();
+    }
+
+    public MovieQuery yearReleased(final String yearReleased) {
+        and("movies.YEAR_RELEASED = :yearReleased", "yearReleased", yearReleased);
+        return this;
+    }
+
+    public MovieQuery actor(final String actor) {
+        and("EXISTS (SELECT 1 FROM movie_actors ma INNER JOIN actors a ON ma.ACTOR_ID = a.ID " +
+                "WHERE ma.MOVIE_ID = movies.ID AND a.NAME = :actor)", "actor", actor);
+        return this;
+    }
+
+    public MovieQuery favoritedBy(final Long userId) {
+        and("EXISTS (SELECT 1 FROM favorite_movies fm WHERE fm.MOVIE_ID = movies.ID AND fm.USER_ID = :favoritedBy)",
+                "favoritedBy", userId);
+        return this;
+    }
+}
@@ -0,0 +1,74 @@
+package io.realworld.db;
+
+import com.codahale.metrics.annotation.Timed;
+import org.jdbi.v3.sqlobject.customizer.Bind;
+import org.jdbi.v3.sqlobject.statement.SqlQuery;
+import org.jdbi.v3.sqlobject.statement.SqlUpdate;
+import org.jdbi.v3.sqlobject.transaction.Transaction;
+
+import java.util.List;
+
+/**
+ * Per movie review count and latest review time, kept in movie_review_stats so movie responses and per movie review
+ * totals need no aggregation over articles. Rows are maintained in the same transaction as the review they count.
+ */
+@Timed
+public interface MovieReviewStatsRepository {
+
+    @SqlUpdate("INSERT INTO movie_review_stats (MOVIE_ID, REVIEWS_COUNT, LAST_REVIEWED_AT) " +
+            "SELECT MOVIE_ID, 1, CREATED_AT FROM articles WHERE ID = :articleId " +
+            "ON CONFLICT (MOVIE_ID) DO UPDATE SET " +
+            "REVIEWS_COUNT = movie_review_stats.REVIEWS_COUNT + 1, " +
+            "LAST_REVIEWED_AT = greatest(movie_review_stats.LAST_REVIEWED_AT, EXCLUDED.LAST_REVIEWED_AT)")
+    void reviewAdded(@Bind("articleId") long articleId);
+
+    /*
+     * Must run before the review is deleted. The latest review time is looked up again through
+     * articles_movie_id_created_at_idx in case the deleted review was the latest one.
+     */
+    @SqlUpdate("UPDATE movie_review_stats s SET " +
+            "REVIEWS_COUNT = greatest(s.REVIEWS_COUNT - 1, 0), " +
+            "LAST_REVIEWED_AT = (SELECT max(o.CREATED_AT) FROM articles o " +
+            "WHERE o.MOVIE_ID = s.MOVIE_ID AND o.ID <> a.ID) " +
+            "FROM articles a " +
+            "WHERE a.SLUG = :slug AND s.MOVIE_ID = a.MOVIE_ID")
+    void reviewRemoved(@Bind("slug") String slug);
+
+    @SqlQuery("SELECT REVIEWS_COUNT FROM movie_review_stats WHERE MOVIE_ID = :movieId")
+    Integer findReviewsCount(@Bind("movieId") long movieId);
+
+    /*
+     * Highest movie id of the next repair batch, null once every movie has been visited.
+     */
+    @SqlQuery("SELECT max(ID) FROM (SELECT ID FROM movies WHERE ID > :after ORDER BY ID LIMIT :batchSize) batch")
+    Long findBatchEnd(@Bind("after") long after, @Bind("batchSize") int batchSize);
+
+    /*
+     * Locks the batch before counting it. The movie rows wait for the reviews being inserted for these movies, whose
+     * foreign key check holds a key share lock on them until commit, and keep new ones out; the stats rows wait for
+     * the reviews being deleted. The counts then come from a snapshot that includes every change whose incremental
+     * update already reached the stats rows, so the upsert cannot overwrite one.
+     */
+    @Transaction
+    default int rebuild(final long after, final long upTo) {
+        lockMovies(after, upTo);
+        lockStats(after, upTo);
+        return upsertStats(after, upTo);
+    }
+
+    @SqlQuery("SELECT ID FROM movies WHERE ID > :after AND ID <= :upTo FOR UPDATE")
+    List<Long> lockMovies(@Bind("after") long after, @Bind("upTo") long upTo);
+
+    @SqlQuery("SELECT MOVIE_ID FROM movie_review_stats WHERE MOVIE_ID > :after AND MOVIE_ID <= :upTo FOR UPDATE")
+    List<Long> lockStats(@Bind("after") long after, @Bind("upTo") long upTo);
+
+    @SqlUpdate("INSERT INTO movie_review_stats (MOVIE_ID, REVIEWS_COUNT, LAST_REVIEWED_AT) " +
+            "SELECT m.ID, count(a.ID), max(a.CREATED_AT) FROM movies m " +
+            "LEFT JOIN articles a ON a.MOVIE_ID = m.ID " +
+            "WHERE m.ID > :after AND m.ID <= :upTo " +
+            "GROUP BY m.ID " +
+            "ON CONFLICT (MOVIE_ID) DO UPDATE SET " +
+            "REVIEWS_COUNT = EXCLUDED.REVIEWS_COUNT, " +
+            "LAST_REVIEWED_AT = EXCLUDED.LAST_REVIEWED_AT")
+    int upsertStats(@Bind("after") long after, @Bind("upTo") long upTo);
+}
@@ -5,17 +5,27 @@ import io.realworld.api.response.Movie;
 import io.realworld.db.mapper.MovieMapper;
 import org.jdbi.v3.sqlobject.config.RegisterRowMapper;
 import org.jdbi.v3.sqlobject.customizer.Bind;
+import org.jdbi.v3.sqlobject.customizer.BindBeanList;
 import org.jdbi.v3.sqlobject.customizer.BindList;
+import org.jdbi.v3.sqlobject.customizer.BindMap;
+import org.jdbi.v3.sqlobject.customizer.Define;
 import org.jdbi.v3.sqlobject.statement.GetGeneratedKeys;
 import org.jdbi.v3.sqlobject.statement.SqlQuery;
 import org.jdbi.v3.sqlobject.statement.SqlUpdate;
 
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 @Timed
 public interface MoviesRepository {
 
+    /*
+     * Review aggregates maintained by MovieReviewStatsRepository, a movie without reviews has no row yet.
+     */
+    String REVIEW_STATS_COLUMNS = "coalesce(s.REVIEWS_COUNT, 0) AS REVIEWS_COUNT, s.LAST_REVIEWED_AT";
+    String REVIEW_STATS_JOIN = "LEFT JOIN movie_review_stats s ON s.MOVIE_ID = movies.ID ";
+
     @GetGeneratedKeys
     @SqlUpdate("INSERT INTO movies (TITLE, DESCRIPTION, BODY, YEAR_RELEASED, LANGUAGES, CREATED_AT, UPDATED_AT) " +
             "VALUES (:title, :description, :body, :yearReleased, :languages, current_timestamp, current_timestamp)")
@@ -25,53 +35,66 @@ public interface MoviesRepository {
                     @Bind("yearReleased") String yearReleased,
                     @Bind("languages") String languages);
 
-    @SqlUpdate("INSERT INTO favorite_movies (USER_ID, MOVIE_ID) VALUES (:userId, :movieId)")
-    void likeMovie(@Bind("userId") Long userId, @Bind("movieId") Long movieId);
+    /*
+     * Returns false when the movie was already liked, so repeated likes neither fail nor count twice.
+     */
+    @SqlUpdate("INSERT INTO favorite_movies (USER_ID, MOVIE_ID) VALUES (:userId, :movieId) ON CONFLICT DO NOTHING")
+    boolean likeMovie(@Bind("userId") Long userId, @Bind("movieId") Long movieId);
 
     @SqlUpdate("DELETE FROM favorite_movies where USER_ID = :userId and MOVIE_ID = :movieId")
-    void unLikeMovie(@Bind("userId") Long userId, @Bind("movieId") Long movieId);
-
-    @SqlQuery("SELECT distinct(movies.ID), movies.*, users.USERNAME, users.BIO, users.IMAGE FROM movies " +
-            "LEFT JOIN movie_actors ON movies.ID = movie_actors.MOVIE_ID " +
-            "LEFT JOIN actors ON actors.ID = movie_actors.ACTOR_ID " +
-            "LEFT JOIN favorite_movies ON movies.ID = favorite_movies.MOVIE_ID " +
-            "LEFT JOIN users ON favorite_movies.USER_ID = users.ID " +
-            "WHERE (:yearReleased IS NULL OR movies.YEAR_RELEASED=:yearReleased) " +
-            "AND (:actor IS NULL OR actors.NAME =:actor) " +
-            "AND (:favoritedBy IS NULL OR :favoritedBy = favorite_movies.USER_ID) " +
-            "ORDER BY movies.CREATED_AT DESC " +
+    boolean unLikeMovie(@Bind("userId") Long userId, @Bind("movieId") Long movieId);
+
+    @ReadOnly
+    default List<Movie> findMovies(final String actor,
+                                   final String yearReleased,
+                                   final Long favoritedBy,
+                                   final int offset,
+                                   final int limit) {
+        final MovieQuery query = MovieQuery.movies().actor(actor).yearReleased(yearReleased).favoritedBy(favoritedBy);
+        return findMovies(query.where(), query.bindings(), offset, limit);
+    }
+
+    @ReadOnly
+    default int countMovies(final String actor, final String yearReleased, final Long favoritedBy) {
+        final MovieQuery query = MovieQuery.movies().actor(actor).yearReleased(yearReleased).favoritedBy(favoritedBy);
+        return countMovies(query.where(), query.bindings());
+    }
+
+    @SqlQuery("SELECT movies.*, " + REVIEW_STATS_COLUMNS + " FROM movies " +
+            REVIEW_STATS_JOIN +
+            "<where> " +
+            "ORDER BY movies.CREATED_AT DESC, movies.ID DESC " +
             "LIMIT :limit " +
             "OFFSET :offset")
     @RegisterRowMapper(MovieMapper.class)
-    List<Movie> findMovies(@Bind("actor") String actor,
-                                 @Bind("yearReleased") String yearReleased,
-                                 @Bind("favoritedBy") Long favoritedBy,
-                                 @Bind("offset") int offset,
-                                 @Bind("limit") int limit);
-
-    @SqlQuery("SELECT count(distinct movies.ID) FROM movies " +
-            "LEFT JOIN movie_actors ON movies.ID = movie_actors.MOVIE_ID " +
-            "LEFT JOIN actors ON actors.ID = movie_actors.ACTOR_ID " +
-            "LEFT JOIN favorite_movies ON movies.ID = favorite_movies.MOVIE_ID " +
-            "LEFT JOIN users ON favorite_movies.USER_ID = users.ID " +
-            "WHERE (:yearReleased IS NULL OR movies.YEAR_RELEASED=:yearReleased) " +
-            "AND (:actor IS NULL OR actors.NAME =:actor) " +
-            "AND (:favoritedBy IS NULL OR :favoritedBy = favorite_movies.USER_ID)")
-    int countMovies(@Bind("actor") String actor, @Bind("yearReleased") String yearReleased, @Bind("favoritedBy") Long favoritedBy);
-
-
-    @SqlQuery("SELECT movies.* FROM movies " +
-            "WHERE ID = :movieId")
+    @ReadOnly
+    List<Movie> findMovies(@Define("where") String where,
+                           @BindMap Map<String, Object> filters,
+                           @Bind("offset") int offset,
+                           @Bind("limit") int limit);
+
+    @SqlQuery("SELECT count(*) FROM movies <where>")
+    @ReadOnly
+    int countMovies(@Define("where") String where, @BindMap Map<String, Object> filters);
+
+
+    @SqlQuery("SELECT movies.*, " + REVIEW_STATS_COLUMNS + " FROM movies " +
+            REVIEW_STATS_JOIN +
+            "WHERE movies.ID = :movieId")
     @RegisterRowMapper(MovieMapper.class)
     Movie findMovieById(@Bind("movieId") long movieId);
 
     @SqlQuery("SELECT MOVIE_ID FROM favorite_movies " +
-            "INNER JOIN users on users.ID = favorite_movies.USER_ID " +
-            "WHERE users.USERNAME = :username " +
+            "WHERE USER_ID = :userId " +
             "AND MOVIE_ID in (<movieIds>)")
-    Set<Long> findFavouriteMovies(@Bind("username") String username,
+    Set<Long> findFavouriteMovies(@Bind("userId") Long userId,
                                    @BindList("movieIds") Set<Long> movieIds);
 
+    @SqlUpdate("UPDATE movies SET LIKES_COUNT = movies.LIKES_COUNT + d.DELTA " +
+            "FROM (VALUES <deltas>) AS d (ID, DELTA) " +
+            "WHERE movies.ID = d.ID")
+    void applyLikesDeltas(@BindBeanList(value = "deltas", propertyNames = {"id", "delta"}) List<CounterDelta> deltas);
+
     @SqlUpdate("UPDATE movies SET LIKES_COUNT = LIKES_COUNT + 1 where ID = :movieId")
     void incrementFavoritesCount(@Bind("movieId") Long movieId);
 
@@ -0,0 +1,22 @@
+package io.realworld.db;
+
+/**
+ * Row of a name dictionary table such as tags or actors.
+ */
+public class NameId {
+    private final long id;
+    private final String name;
+
+    public NameId(final long id, final String name) {
+        this.id = id;
+        this.name = name;
+    }
+
+    public long getId() {
+        return id;
+    }
+
+    public String getName() {
+        return name;
+    }
+}
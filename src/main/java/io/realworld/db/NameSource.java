@@ -0,0 +1,21 @@
+package io.realworld.db;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Table backing a {@link io.realworld.core.NameDictionary}.
+ */
+public interface NameSource {
+
+    List<NameId> findAll();
+
+    List<NameId> findByIds(Collection<Long> ids);
+
+    List<NameId> findByNames(Collection<String> names);
+
+    /**
+     * Inserts the names and returns the rows it created, names inserted concurrently may be left out.
+     */
+    List<NameId> insert(Collection<String> names);
+}
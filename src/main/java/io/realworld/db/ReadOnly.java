@@ -0,0 +1,18 @@
+package io.realworld.db;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Marks a repository method that only reads, so outside a unit of work it may run on the read replica.
+ *
+ * <p>
+ * Only the method called on the repository proxy is looked at: a default method is routed as a whole, whatever the
+ * methods it calls are marked with.
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.METHOD)
+public @interface ReadOnly {
+}
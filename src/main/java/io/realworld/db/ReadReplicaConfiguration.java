@@ -0,0 +1,35 @@
+package io.realworld.db;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import io.dropwizard.db.DataSourceFactory;
+
+import javax.validation.Valid;
+import java.time.Duration;
+
+public class ReadReplicaConfiguration {
+    private static final Duration DEFAULT_PRIMARY_AFTER_WRITE = Duration.ofSeconds(5);
+
+    private final DataSourceFactory dataSourceFactory;
+    private final Duration primaryAfterWrite;
+
+    public ReadReplicaConfiguration(@JsonProperty("datasource") @Valid final DataSourceFactory dataSourceFactory,
+                                    @JsonProperty("primaryAfterWrite") final Duration primaryAfterWrite) {
+        this.dataSourceFactory = dataSourceFactory;
+        this.primaryAfterWrite = primaryAfterWrite != null ? primaryAfterWrite : DEFAULT_PRIMARY_AFTER_WRITE;
+    }
+
+    public static ReadReplicaConfiguration defaults() {
+        return new ReadReplicaConfiguration(null, null);
+    }
+
+    /**
+     * The replica's data source, {@code null} when every query goes to the primary.
+     */
+    public DataSourceFactory getDataSourceFactory() {
+        return dataSourceFactory;
+    }
+
+    public Duration getPrimaryAfterWrite() {
+        return primaryAfterWrite;
+    }
+}
@@ -0,0 +1,60 @@
+package io.realworld.db;
+
+import java.time.LocalDateTime;
+import java.util.Map;
+
+/**
+ * Filters of the review lists. Tag and favorite filters are semi-joins so they never multiply article rows and the
+ * lists need no {@code distinct}.
+ */
+public class ReviewQuery extends FilterQuery {
+
+    public static ReviewQuery reviews() {
+        return new ReviewQuery();
+    }
+
+    public ReviewQuery movie(final Long movieId) {
+        and("articles.MOVIE_ID = :movieId", "movieId", movieId);
+        return this;
+    }
+
+    public ReviewQuery author(final String author) {
+        and("articles.AUTHOR_ID = (SELECT u.ID FROM users u WHERE u.USERNAME = :author)", "author", author);
+        return this;
+    }
+
+    public ReviewQuery tag(final String tag) {
+        and("EXISTS (SELECT 1 FROM articles_tags at INNER JOIN tags t ON at.TAG_ID = t.ID " +
+                "WHERE at.ARTICLE_ID = articles.ID AND t.NAME = :tag)", "tag", tag);
+        return this;
+    }
+
+    /**
+     * Reviews in the home feed of a user: the user_feed timeline plus the reviews of followed celebrities, which are
+     * not fanned out. With a {@code window}, both sources are cut to their newest {@code window} rows first, which is
+     * all a page ending at row {@code window} can need; without it the whole feed is matched, e.g. for counting.
+     */
+    public ReviewQuery feedOf(final Long userId, final Integer window) {
+        final String newest = window == null ? "" : " LIMIT " + window;
+        and("articles.ID IN (" +
+                "(SELECT uf.ARTICLE_ID FROM user_feed uf WHERE uf.USER_ID = :feedOf " +
+                "ORDER BY uf.CREATED_AT DESC, uf.ARTICLE_ID DESC" + newest + ") " +
+                "UNION ALL " +
+                "(SELECT c.ID FROM articles c WHERE c.AUTHOR_ID IN (SELECT fc.USER_ID FROM feed_celebrities fc " +
+                "INNER JOIN followers fo ON fo.USER_ID = fc.USER_ID WHERE fo.FOLLOWER_ID = :feedOf) " +
+                "ORDER BY c.CREATED_AT DESC, c.ID DESC" + newest + "))", "feedOf", userId);
+        return this;
+    }
+
+    public ReviewQuery favoritedBy(final Long userId) {
+        and("EXISTS (SELECT 1 FROM favorites f WHERE f.ARTICLE_ID = articles.ID AND f.USER_ID = :favoritedBy)",
+                "favoritedBy", userId);
+        return this;
+    }
+
+    public ReviewQuery after(final LocalDateTime createdAt, final long id) {
+        and("(articles.CREATED_AT, articles.ID) < (:afterCreatedAt, :afterId)",
+                Map.of("afterCreatedAt", createdAt, "afterId", id));
+        return this;
+    }
+}
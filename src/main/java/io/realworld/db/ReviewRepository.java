@@ -2,15 +2,21 @@ package io.realworld.db;
 
 import com.codahale.metrics.annotation.Timed;
 import io.realworld.api.response.MovieReview;
+import io.realworld.db.mapper.HydratedReviewMapper;
 import io.realworld.db.mapper.ReviewMapper;
 import org.jdbi.v3.sqlobject.config.RegisterRowMapper;
 import org.jdbi.v3.sqlobject.customizer.Bind;
+import org.jdbi.v3.sqlobject.customizer.BindBeanList;
 import org.jdbi.v3.sqlobject.customizer.BindList;
+import org.jdbi.v3.sqlobject.customizer.BindMap;
+import org.jdbi.v3.sqlobject.customizer.Define;
 import org.jdbi.v3.sqlobject.statement.GetGeneratedKeys;
 import org.jdbi.v3.sqlobject.statement.SqlQuery;
 import org.jdbi.v3.sqlobject.statement.SqlUpdate;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 @Timed
@@ -22,6 +28,16 @@ public interface ReviewRepository {
     @RegisterRowMapper(ReviewMapper.class)
     MovieReview findReview(@Bind("slug") String slug);
 
+    /*
+     * Locks the review until the end of the unit of work, so the update based on it cannot overwrite a concurrent one.
+     */
+    @SqlQuery("SELECT articles.*, users.USERNAME, users.BIO, users.IMAGE " +
+            "FROM articles INNER JOIN users ON articles.AUTHOR_ID = users.ID " +
+            "WHERE slug = :slug " +
+            "FOR UPDATE OF articles")
+    @RegisterRowMapper(ReviewMapper.class)
+    MovieReview findReviewForUpdate(@Bind("slug") String slug);
+
     @SqlQuery("SELECT ID FROM articles WHERE SLUG = :slug")
     Long findReviewIdBySlug(@Bind("slug") String slug);
 
@@ -54,82 +70,86 @@ public interface ReviewRepository {
                       @Bind("description") String description,
                       @Bind("body") String body);
 
-    @SqlQuery("SELECT distinct(articles.ID), articles.*, users.USERNAME, users.BIO, users.IMAGE FROM articles " +
-            "LEFT JOIN articles_tags ON articles.ID = articles_tags.ARTICLE_ID " +
-            "LEFT JOIN tags ON tags.ID = articles_tags.TAG_ID " +
-            "LEFT JOIN users ON articles.AUTHOR_ID = users.ID " +
-            "LEFT JOIN favorites ON articles.ID = favorites.ARTICLE_ID " +
-            "WHERE (:author IS NULL OR users.USERNAME=:author) " +
-            "AND (:movieId IS NULL OR articles.MOVIE_ID =:movieId) " +
-            "AND (:tag IS NULL OR tags.NAME =:tag) " +
-            "AND (:favoritedBy IS NULL OR :favoritedBy = favorites.USER_ID) " +
-            "ORDER BY articles.CREATED_AT DESC " +
+    @ReadOnly
+    default List<MovieReview> findReviews(final ReviewQuery query, final Long viewerId, final int offset, final int limit) {
+        return findReviews(query.where(), query.bindings(), viewerId, offset, limit);
+    }
+
+    /*
+     * Not read-only: the totals fill ReviewCountCache, shared by every request, which must not keep a replica's lag.
+     */
+    default int countReviews(final ReviewQuery query) {
+        return countReviews(query.where(), query.bindings());
+    }
+
+    /*
+     * Returns a fully hydrated page in a single round trip: tag ids are aggregated per review and named through the
+     * tags NameDictionary, the favorited and following flags are computed for the viewer and stay null for anonymous
+     * requests.
+     */
+    @SqlQuery("SELECT articles.*, users.USERNAME, users.BIO, users.IMAGE, " +
+            "ARRAY(SELECT at.TAG_ID FROM articles_tags at WHERE at.ARTICLE_ID = articles.ID) AS TAG_IDS, " +
+            "CASE WHEN CAST(:viewerId AS bigint) IS NULL THEN NULL ELSE EXISTS (SELECT 1 FROM favorites f " +
+            "WHERE f.ARTICLE_ID = articles.ID AND f.USER_ID = :viewerId) END AS FAVORITED, " +
+            "CASE WHEN CAST(:viewerId AS bigint) IS NULL THEN NULL ELSE EXISTS (SELECT 1 FROM followers fo " +
+            "WHERE fo.USER_ID = articles.AUTHOR_ID AND fo.FOLLOWER_ID = :viewerId) END AS FOLLOWING " +
+            "FROM articles " +
+            "INNER JOIN users ON articles.AUTHOR_ID = users.ID " +
+            "<where> " +
+            "ORDER BY articles.CREATED_AT DESC, articles.ID DESC " +
             "LIMIT :limit " +
             "OFFSET :offset")
-    @RegisterRowMapper(ReviewMapper.class)
-    List<MovieReview> findReviews(@Bind("movieId") Long movieId,
-                                  @Bind("author") String author,
-                                  @Bind("tag") String tag,
-                                  @Bind("favoritedBy") Long favoritedBy,
+    @RegisterRowMapper(HydratedReviewMapper.class)
+    @ReadOnly
+    List<MovieReview> findReviews(@Define("where") String where,
+                                  @BindMap Map<String, Object> filters,
+                                  @Bind("viewerId") Long viewerId,
                                   @Bind("offset") int offset,
                                   @Bind("limit") int limit);
 
-    @SqlQuery("SELECT count(distinct articles.ID) FROM articles " +
-            "LEFT JOIN articles_tags ON articles.ID = articles_tags.ARTICLE_ID " +
-            "LEFT JOIN tags ON tags.ID = articles_tags.TAG_ID " +
-            "LEFT JOIN users ON articles.AUTHOR_ID = users.ID " +
-            "LEFT JOIN favorites ON articles.ID = favorites.ARTICLE_ID " +
-            "WHERE (:author IS NULL OR users.USERNAME=:author)" +
-            "AND (:movieId IS NULL OR articles.MOVIE_ID =:movieId) " +
-            "AND (:tag IS NULL OR tags.NAME =:tag) " +
-            "AND (:favoritedBy IS NULL OR :favoritedBy = favorites.USER_ID)")
-    int countReviews(@Bind("movieId") Long movieId, @Bind("author") String author, @Bind("tag") String tag, @Bind("favoritedBy") Long favoritedBy);
+    @SqlQuery("SELECT count(*) FROM articles <where>")
+    int countReviews(@Define("where") String where, @BindMap Map<String, Object> filters);
+
+    /*
+     * Row estimate kept by the planner statistics (ANALYZE / autovacuum), -1 when the table was never analyzed.
+     * PostgreSQL before 14 reports 0 for a table that was never analyzed, which cannot be told from an empty one.
+     */
+    @SqlQuery("SELECT reltuples::bigint FROM pg_class WHERE oid = 'articles'::regclass")
+    @ReadOnly
+    long estimateReviewsCount();
 
 
     @SqlUpdate("DELETE FROM articles WHERE SLUG = :slug")
     void deleteReview(@Bind("slug") String slug);
 
-    @SqlUpdate("INSERT INTO favorites (USER_ID, ARTICLE_ID) VALUES (:userId, :articleId)")
-    void addToFavorites(@Bind("userId") Long userId, @Bind("articleId") Long articleId);
-
-    @SqlUpdate("DELETE FROM favorites where USER_ID = :userId and ARTICLE_ID = :articleId")
-    void removeFromFavorites(@Bind("userId") Long userId, @Bind("articleId") Long articleId);
-
     /*
-     * This query finds all authors who have followers (the first 3 inner joins), then joins it with users to get
-     * user name of followers, matches them against the user name that has been provided in query.
+     * Returns false when the review was already a favorite, so repeated requests neither fail nor count twice.
      */
-    @SqlQuery("SELECT distinct(articles.id), articles.*, u.USERNAME, u.BIO, u.IMAGE FROM articles " +
-            "INNER JOIN users u ON articles.AUTHOR_ID = u.ID " +
-            "INNER JOIN followers f ON articles.AUTHOR_ID = f.USER_ID " +
-            "INNER JOIN users u1 ON f.FOLLOWER_ID = u1.ID " +
-            "WHERE u1.USERNAME = :username " +
-            "ORDER BY articles.CREATED_AT DESC " +
-            "LIMIT :limit " +
-            "OFFSET :offset")
-    @RegisterRowMapper(ReviewMapper.class)
-    List<MovieReview> findReviewsOfAuthor(@Bind("username") String username,
-                                          @Bind("offset") int offset,
-                                          @Bind("limit") int limit);
+    @SqlUpdate("INSERT INTO favorites (USER_ID, ARTICLE_ID) VALUES (:userId, :articleId) ON CONFLICT DO NOTHING")
+    boolean addToFavorites(@Bind("userId") Long userId, @Bind("articleId") Long articleId);
 
-    @SqlQuery("SELECT count(distinct articles.id) FROM articles " +
-            "INNER JOIN users u ON articles.AUTHOR_ID = u.ID " +
-            "INNER JOIN followers f ON articles.AUTHOR_ID = f.USER_ID " +
-            "INNER JOIN users u1 ON f.FOLLOWER_ID = u1.ID " +
-            "WHERE u1.USERNAME = :username ")
-    int countFeedSize(@Bind("username") String username);
+    /*
+     * Favorites every existing review of the given slugs in one statement and returns the ids of the reviews that
+     * were not favorites yet; unknown slugs are ignored.
+     */
+    @SqlQuery("INSERT INTO favorites (USER_ID, ARTICLE_ID) " +
+            "SELECT :userId, ID FROM articles WHERE SLUG IN (<slugs>) " +
+            "ON CONFLICT DO NOTHING " +
+            "RETURNING ARTICLE_ID")
+    List<Long> addAllToFavorites(@Bind("userId") Long userId, @BindList("slugs") Collection<String> slugs);
 
-    @SqlUpdate("UPDATE articles SET FAVORITES_COUNT = FAVORITES_COUNT + 1 where ID = :articleId")
-    void incrementFavoritesCount(@Bind("articleId") Long articleId);
+    @SqlUpdate("DELETE FROM favorites where USER_ID = :userId and ARTICLE_ID = :articleId")
+    boolean removeFromFavorites(@Bind("userId") Long userId, @Bind("articleId") Long articleId);
 
-    @SqlUpdate("UPDATE articles SET FAVORITES_COUNT = FAVORITES_COUNT - 1 where ID = :articleId")
-    void decrementFavoritesCount(@Bind("articleId") Long articleId);
+    @SqlUpdate("UPDATE articles SET FAVORITES_COUNT = articles.FAVORITES_COUNT + d.DELTA " +
+            "FROM (VALUES <deltas>) AS d (ID, DELTA) " +
+            "WHERE articles.ID = d.ID")
+    void applyFavoritesDeltas(@BindBeanList(value = "deltas", propertyNames = {"id", "delta"}) List<CounterDelta> deltas);
 
     @SqlQuery("SELECT ARTICLE_ID FROM favorites " +
-            "INNER JOIN users on users.ID = favorites.USER_ID " +
-            "WHERE users.USERNAME = :username " +
+            "WHERE USER_ID = :userId " +
             "AND ARTICLE_ID in (<articleIds>)")
-    Set<Long> findFavoriteReviews(@Bind("username") String username,
+    Set<Long> findFavoriteReviews(@Bind("userId") Long userId,
                                   @BindList("articleIds") Set<Long> articleIds);
 
 }
\ No newline at end of file
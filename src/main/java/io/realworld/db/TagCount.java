@@ -0,0 +1,22 @@
+package io.realworld.db;
+
+/**
+ * Number of reviews carrying a tag.
+ */
+public class TagCount {
+    private final String name;
+    private final long reviewsCount;
+
+    public TagCount(final String name, final long reviewsCount) {
+        this.name = name;
+        this.reviewsCount = reviewsCount;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public long getReviewsCount() {
+        return reviewsCount;
+    }
+}
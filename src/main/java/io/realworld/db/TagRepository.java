@@ -1,6 +1,8 @@
 package io.realworld.db;
 
 import io.realworld.db.mapper.ArticleTagsMapper;
+import io.realworld.db.mapper.NameIdMapper;
+import io.realworld.db.mapper.TagCountMapper;
 import org.jdbi.v3.sqlobject.config.RegisterRowMapper;
 import org.jdbi.v3.sqlobject.customizer.Bind;
 import org.jdbi.v3.sqlobject.customizer.BindList;
@@ -10,22 +12,37 @@ import org.jdbi.v3.sqlobject.statement.SqlUpdate;
 
 import java.util.Collection;
 import java.util.List;
-import java.util.Set;
 
 public interface TagRepository {
     @SqlQuery("SELECT NAME FROM tags")
     List<String> findAllTags();
 
-    @SqlQuery("SELECT distinct(NAME) FROM tags WHERE NAME IN (<tags>)")
-    Set<String> findTags(@BindList("tags") Collection<String> tags);
+    @SqlQuery("SELECT ID, NAME FROM tags")
+    @RegisterRowMapper(NameIdMapper.class)
+    List<NameId> findAllTagIds();
 
-    @SqlBatch("INSERT INTO tags (NAME) VALUES (?)")
-    void saveTags(Set<String> tags);
+    @SqlQuery("SELECT t.NAME, count(at.ARTICLE_ID) AS REVIEWS_COUNT FROM tags t " +
+            "LEFT JOIN articles_tags at ON at.TAG_ID = t.ID " +
+            "GROUP BY t.NAME")
+    @RegisterRowMapper(TagCountMapper.class)
+    List<TagCount> findTagPopularity();
 
-    @SqlBatch("INSERT INTO articles_tags (ARTICLE_ID, TAG_ID) " +
-            "VALUES (?, (SELECT ID FROM tags WHERE name = ?)) " +
-            "ON CONFLICT DO NOTHING")
-    void addTagsToArticle(Collection<Long> articleIds, Collection<String> tag);
+    @SqlQuery("SELECT ID, NAME FROM tags WHERE ID IN (<ids>)")
+    @RegisterRowMapper(NameIdMapper.class)
+    List<NameId> findTagsByIds(@BindList("ids") Collection<Long> ids);
+
+    @SqlQuery("SELECT ID, NAME FROM tags WHERE NAME IN (<names>)")
+    @RegisterRowMapper(NameIdMapper.class)
+    List<NameId> findTagsByNames(@BindList("names") Collection<String> names);
+
+    @SqlQuery("INSERT INTO tags (NAME) SELECT unnest(ARRAY[<names>]) " +
+            "ON CONFLICT (NAME) DO NOTHING " +
+            "RETURNING ID, NAME")
+    @RegisterRowMapper(NameIdMapper.class)
+    List<NameId> saveTags(@BindList("names") Collection<String> names);
+
+    @SqlBatch("INSERT INTO articles_tags (ARTICLE_ID, TAG_ID) VALUES (?, ?) ON CONFLICT DO NOTHING")
+    void addTagsToArticle(Collection<Long> articleIds, Collection<Long> tagIds);
 
     @SqlUpdate("DELETE FROM articles_tags WHERE ARTICLE_ID = :articleId")
     void deleteArticleTags(@Bind("articleId") long articleId);
@@ -33,10 +50,34 @@ public interface TagRepository {
     @SqlUpdate("DELETE FROM articles_tags WHERE ARTICLE_ID in (SELECT distinct(ID) FROM articles WHERE SLUG = :slug)")
     void deleteArticleTags(@Bind("slug") String slug);
 
-    @SqlQuery("SELECT at.ARTICLE_ID, t.NAME FROM articles_tags at " +
-            "INNER JOIN tags t ON at.TAG_ID = t.ID " +
-            "WHERE at.ARTICLE_ID in (<articleIds>)")
+    /*
+     * Tag names are resolved through the tags NameDictionary instead of a join.
+     */
+    @SqlQuery("SELECT ARTICLE_ID, TAG_ID FROM articles_tags WHERE ARTICLE_ID in (<articleIds>)")
     @RegisterRowMapper(ArticleTagsMapper.class)
-    List<ArticleTagsMapper.ArticleIdTag> findArticlesTags(@BindList("articleIds") Collection<Long> articleIds);
+    List<ArticleTagsMapper.ArticleIdTag> findArticlesTagIds(@BindList("articleIds") Collection<Long> articleIds);
+
+    default NameSource tagNames() {
+        return new NameSource() {
+            @Override
+            public List<NameId> findAll() {
+                return findAllTagIds();
+            }
+
+            @Override
+            public List<NameId> findByIds(final Collection<Long> ids) {
+                return findTagsByIds(ids);
+            }
+
+            @Override
+            public List<NameId> findByNames(final Collection<String> names) {
+                return findTagsByNames(names);
+            }
 
+            @Override
+            public List<NameId> insert(final Collection<String> names) {
+                return saveTags(names);
+            }
+        };
+    }
 }
@@ -0,0 +1,64 @@
+package io.realworld.db;
+
+import org.jdbi.v3.sqlobject.customizer.Bind;
+import org.jdbi.v3.sqlobject.customizer.BindList;
+import org.jdbi.v3.sqlobject.statement.SqlQuery;
+import org.jdbi.v3.sqlobject.statement.SqlUpdate;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * The user_feed timelines: one row per review in the feed of every follower of its author, see {@link ReviewQuery#feedOf}.
+ */
+public interface UserFeedRepository {
+
+    @SqlQuery("SELECT count(*) FROM followers WHERE USER_ID = :authorId")
+    int countFollowers(@Bind("authorId") long authorId);
+
+    @SqlQuery("SELECT EXISTS (SELECT 1 FROM feed_celebrities WHERE USER_ID = :authorId)")
+    boolean isCelebrity(@Bind("authorId") long authorId);
+
+    @SqlUpdate("INSERT INTO feed_celebrities (USER_ID) VALUES (:authorId) ON CONFLICT DO NOTHING")
+    void addCelebrity(@Bind("authorId") long authorId);
+
+    /*
+     * One page of the followers of an author, in follower id order.
+     */
+    @SqlQuery("SELECT FOLLOWER_ID FROM followers WHERE USER_ID = :authorId AND FOLLOWER_ID > :after " +
+            "ORDER BY FOLLOWER_ID " +
+            "LIMIT :limit")
+    List<Long> findFollowerIds(@Bind("authorId") long authorId, @Bind("after") long after, @Bind("limit") int limit);
+
+    /*
+     * Inserts the review into the given feeds, returns the number of feeds that did not have it yet.
+     */
+    @SqlUpdate("INSERT INTO user_feed (USER_ID, ARTICLE_ID, AUTHOR_ID, CREATED_AT) " +
+            "SELECT f.ID, a.ID, a.AUTHOR_ID, a.CREATED_AT FROM articles a " +
+            "CROSS JOIN unnest(ARRAY[<followerIds>]::bigint[]) AS f (ID) " +
+            "WHERE a.ID = :articleId " +
+            "ON CONFLICT DO NOTHING")
+    int fanOut(@Bind("articleId") long articleId, @BindList("followerIds") Collection<Long> followerIds);
+
+    @SqlUpdate("INSERT INTO user_feed (USER_ID, ARTICLE_ID, AUTHOR_ID, CREATED_AT) " +
+            "SELECT :followerId, a.ID, a.AUTHOR_ID, a.CREATED_AT FROM articles a " +
+            "WHERE a.AUTHOR_ID = :authorId " +
+            "ORDER BY a.CREATED_AT DESC, a.ID DESC " +
+            "LIMIT :limit " +
+            "ON CONFLICT DO NOTHING")
+    int backfill(@Bind("followerId") long followerId, @Bind("authorId") long authorId, @Bind("limit") int limit);
+
+    @SqlUpdate("DELETE FROM user_feed WHERE USER_ID = :followerId AND AUTHOR_ID = :authorId")
+    int removeAuthor(@Bind("followerId") long followerId, @Bind("authorId") long authorId);
+
+    /*
+     * Drops everything older than the maxEntries newest rows of each of the given feeds.
+     */
+    @SqlUpdate("DELETE FROM user_feed uf USING (" +
+            "SELECT f.ID AS USER_ID, oldest.CREATED_AT, oldest.ARTICLE_ID " +
+            "FROM unnest(ARRAY[<userIds>]::bigint[]) AS f (ID) " +
+            "CROSS JOIN LATERAL (SELECT kept.CREATED_AT, kept.ARTICLE_ID FROM user_feed kept WHERE kept.USER_ID = f.ID " +
+            "ORDER BY kept.CREATED_AT DESC, kept.ARTICLE_ID DESC OFFSET :maxEntries LIMIT 1) oldest) cut " +
+            "WHERE uf.USER_ID = cut.USER_ID AND (uf.CREATED_AT, uf.ARTICLE_ID) <= (cut.CREATED_AT, cut.ARTICLE_ID)")
+    int trim(@BindList("userIds") Collection<Long> userIds, @Bind("maxEntries") int maxEntries);
+}
@@ -2,6 +2,7 @@ package io.realworld.db;
 
 import io.realworld.api.response.Profile;
 import io.realworld.api.response.User;
+import io.realworld.db.mapper.FollowEdgeMapper;
 import io.realworld.db.mapper.ProfileMapper;
 import io.realworld.db.mapper.UserMapper;
 import org.jdbi.v3.sqlobject.config.RegisterRowMapper;
@@ -12,6 +13,7 @@ import org.jdbi.v3.sqlobject.statement.SqlQuery;
 import org.jdbi.v3.sqlobject.statement.SqlUpdate;
 
 import java.util.Collection;
+import java.util.List;
 import java.util.Set;
 
 public interface UserRepository {
@@ -48,11 +50,21 @@ public interface UserRepository {
             "WHERE f.USER_ID = :followed AND u.USERNAME = :follower)")
     boolean isFollowing(@Bind("followed") Long followedId, @Bind("follower") String followerUsername);
 
-    @SqlQuery("SELECT u2.USERNAME FROM followers f " +
-            "INNER JOIN users u1 on f.FOLLOWER_ID = u1.ID " +
-            "INNER JOIN users u2 on f.USER_ID = u2.ID " +
-            "WHERE u1.USERNAME = :follower AND u2.USERNAME in (<authors>)")
-    Set<String> findFollowedAuthorUsernames(@BindList("authors") Collection<String> authors, @Bind("follower") String username);
+    @SqlQuery("SELECT USER_ID FROM followers " +
+            "WHERE FOLLOWER_ID = :follower AND USER_ID in (<authorIds>)")
+    Set<Long> findFollowedAuthorIds(@BindList("authorIds") Collection<Long> authorIds, @Bind("follower") Long followerId);
+
+    /*
+     * One page of all follows in (follower, followed) order, walked through the followers_follower_id_idx index.
+     */
+    @SqlQuery("SELECT FOLLOWER_ID, USER_ID FROM followers " +
+            "WHERE (FOLLOWER_ID, USER_ID) > (:afterFollower, :afterUser) " +
+            "ORDER BY FOLLOWER_ID, USER_ID " +
+            "LIMIT :limit")
+    @RegisterRowMapper(FollowEdgeMapper.class)
+    List<FollowEdge> findFollowEdges(@Bind("afterFollower") long afterFollower,
+                                     @Bind("afterUser") long afterUser,
+                                     @Bind("limit") int limit);
 
     @GetGeneratedKeys
     @SqlUpdate("INSERT INTO users (USERNAME, EMAIL, PASSWORD, CREATED_AT, UPDATED_AT) " +
@@ -65,6 +77,12 @@ public interface UserRepository {
     @RegisterRowMapper(UserMapper.class)
     User findUserById(@Bind("id") long id);
 
+    /*
+     * Only replaces the password it was read with, so a password changed in the meantime is kept.
+     */
+    @SqlUpdate("UPDATE users SET PASSWORD = :password WHERE ID = :id AND PASSWORD = :oldPassword")
+    void rehashPassword(@Bind("id") Long id, @Bind("oldPassword") String oldPassword, @Bind("password") String password);
+
     @SqlUpdate("UPDATE users SET " +
             "USERNAME = :username, " +
             "EMAIL = :email, " +
@@ -13,13 +13,13 @@ public class ArticleTagsMapper implements RowMapper<ArticleTagsMapper.ArticleIdT
     public ArticleTagsMapper.ArticleIdTag map(final ResultSet rs, final StatementContext ctx) throws SQLException {
         final var tuple = new ArticleTagsMapper.ArticleIdTag();
         tuple.setArticleId(rs.getLong("ARTICLE_ID"));
-        tuple.setTag(rs.getString("NAME"));
+        tuple.setTagId(rs.getLong("TAG_ID"));
         return tuple;
     }
 
     public static class ArticleIdTag {
         private Long articleId;
-        private String tag;
+        private Long tagId;
 
         public Long getArticleId() {
             return articleId;
@@ -29,12 +29,12 @@ public class ArticleTagsMapper implements RowMapper<ArticleTagsMapper.ArticleIdT
             this.articleId = articleId;
         }
 
-        public String getTag() {
-            return tag;
+        public Long getTagId() {
+            return tagId;
         }
 
-        public void setTag(final String tag) {
-            this.tag = tag;
+        public void setTagId(final Long tagId) {
+            this.tagId = tagId;
         }
     }
 }
@@ -0,0 +1,16 @@
+package io.realworld.db.mapper;
+
+import io.realworld.db.FollowEdge;
+import org.jdbi.v3.core.mapper.RowMapper;
+import org.jdbi.v3.core.statement.StatementContext;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+public class FollowEdgeMapper implements RowMapper<FollowEdge> {
+
+    @Override
+    public FollowEdge map(final ResultSet rs, final StatementContext ctx) throws SQLException {
+        return new FollowEdge(rs.getLong("FOLLOWER_ID"), rs.getLong("USER_ID"));
+    }
+}
@@ -0,0 +1,40 @@
+package io.realworld.db.mapper;
+
+import io.realworld.api.response.MovieReview;
+import org.jdbi.v3.core.mapper.RowMapper;
+import org.jdbi.v3.core.statement.StatementContext;
+
+import java.sql.Array;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Set;
+
+/**
+ * Maps a review row carrying its aggregated TAG_IDS and the viewer's FAVORITED / FOLLOWING flags.
+ */
+public class HydratedReviewMapper implements RowMapper<MovieReview> {
+
+    private final ReviewMapper reviewMapper = new ReviewMapper();
+
+    @Override
+    public MovieReview map(final ResultSet rs, final StatementContext ctx) throws SQLException {
+        final MovieReview movieReview = reviewMapper.map(rs, ctx);
+        movieReview.setTagIds(toSet(rs.getArray("TAG_IDS")));
+        movieReview.setFavorited(toBoolean(rs, "FAVORITED"));
+        movieReview.getAuthor().setFollowing(toBoolean(rs, "FOLLOWING"));
+        return movieReview;
+    }
+
+    private Set<Long> toSet(final Array array) throws SQLException {
+        if (array == null) {
+            return null;
+        }
+        final Long[] values = (Long[]) array.getArray();
+        return values.length == 0 ? null : Set.of(values);
+    }
+
+    private Boolean toBoolean(final ResultSet rs, final String column) throws SQLException {
+        final boolean value = rs.getBoolean(column);
+        return rs.wasNull() ? null : value;
+    }
+}
@@ -13,13 +13,13 @@ public class MovieActorsMapper implements RowMapper<MovieActorsMapper.MovieIdAct
     public MovieActorsMapper.MovieIdActor map(final ResultSet rs, final StatementContext ctx) throws SQLException {
         final var tuple = new MovieActorsMapper.MovieIdActor();
         tuple.setMovieId(rs.getLong("MOVIE_ID"));
-        tuple.setActor(rs.getString("NAME"));
+        tuple.setActorId(rs.getLong("ACTOR_ID"));
         return tuple;
     }
 
     public static class MovieIdActor {
         private Long movieId;
-        private String actor;
+        private Long actorId;
 
 
         public Long getMovieId() {
@@ -30,12 +30,12 @@ public class MovieActorsMapper implements RowMapper<MovieActorsMapper.MovieIdAct
             this.movieId = movieId;
         }
 
-        public String getActor() {
-            return actor;
+        public Long getActorId() {
+            return actorId;
         }
 
-        public void setActor(String actor) {
-            this.actor = actor;
+        public void setActorId(Long actorId) {
+            this.actorId = actorId;
         }
     }
 }
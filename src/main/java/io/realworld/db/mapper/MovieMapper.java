@@ -24,6 +24,8 @@ public class MovieMapper implements RowMapper<Movie> {
         movie.setLikesCount(rs.getInt("LIKES_COUNT"));
         movie.setCreatedAt(toInstant(rs, "CREATED_AT"));
         movie.setUpdatedAt(toInstant(rs, "UPDATED_AT"));
+        movie.setReviewsCount(rs.getLong("REVIEWS_COUNT"));
+        movie.setLastReviewedAt(toInstant(rs, "LAST_REVIEWED_AT"));
         return movie;
     }
 
@@ -0,0 +1,16 @@
+package io.realworld.db.mapper;
+
+import io.realworld.db.NameId;
+import org.jdbi.v3.core.mapper.RowMapper;
+import org.jdbi.v3.core.statement.StatementContext;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+public class NameIdMapper implements RowMapper<NameId> {
+
+    @Override
+    public NameId map(final ResultSet rs, final StatementContext ctx) throws SQLException {
+        return new NameId(rs.getLong("ID"), rs.getString("NAME"));
+    }
+}
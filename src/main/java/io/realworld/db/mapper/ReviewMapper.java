@@ -32,6 +32,7 @@ public class ReviewMapper implements RowMapper<MovieReview> {
 
     private Profile mapProfile(final ResultSet rs) throws SQLException {
         final Profile profile = new Profile();
+        profile.setId(rs.getLong("AUTHOR_ID"));
         profile.setUsername(rs.getString("USERNAME"));
         profile.setBio(rs.getString("BIO"));
         profile.setImage(rs.getString("IMAGE"));
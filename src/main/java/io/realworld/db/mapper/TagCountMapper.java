@@ -0,0 +1,16 @@
+package io.realworld.db.mapper;
+
+import io.realworld.db.TagCount;
+import org.jdbi.v3.core.mapper.RowMapper;
+import org.jdbi.v3.core.statement.StatementContext;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+public class TagCountMapper implements RowMapper<TagCount> {
+
+    @Override
+    public TagCount map(final ResultSet rs, final StatementContext ctx) throws SQLException {
+        return new TagCount(rs.getString("NAME"), rs.getLong("REVIEWS_COUNT"));
+    }
+}
@@ -0,0 +1,28 @@
+package io.realworld.db.unitofwork;
+
+import com.google.common.reflect.AbstractInvocationHandler;
+
+import java.lang.reflect.Method;
+
+/**
+ * Backs a repository proxy, running every call on a handle from {@link LazyJdbiHandleManager}.
+ */
+public class LazyHandleInvocationHandler<T> extends AbstractInvocationHandler {
+    private final LazyJdbiHandleManager handleManager;
+    private final Class<T> type;
+
+    public LazyHandleInvocationHandler(final LazyJdbiHandleManager handleManager, final Class<T> type) {
+        this.handleManager = handleManager;
+        this.type = type;
+    }
+
+    @Override
+    protected Object handleInvocation(final Object proxy, final Method method, final Object[] args) throws Throwable {
+        return handleManager.invoke(type, method, args);
+    }
+
+    @Override
+    public String toString() {
+        return "Lazy " + type.getSimpleName();
+    }
+}
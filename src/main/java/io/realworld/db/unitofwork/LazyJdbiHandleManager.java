@@ -0,0 +1,246 @@
+package io.realworld.db.unitofwork;
+
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
+import com.github.isopropylcyanide.jdbiunitofwork.JdbiUnitOfWork;
+import com.github.isopropylcyanide.jdbiunitofwork.core.JdbiHandleManager;
+import io.realworld.core.AfterCommit;
+import io.realworld.db.ReadOnly;
+import org.jdbi.v3.core.Handle;
+import org.jdbi.v3.core.Jdbi;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static com.codahale.metrics.MetricRegistry.name;
+
+/**
+ * Request scoped handles that are taken from the pool on the first repository call, not when the request starts.
+ *
+ * <p>
+ * Outside a {@link JdbiUnitOfWork} every repository call gets its own handle and returns it to the pool as soon as the
+ * call returns, so a request holds no connection while it is validated, served from a cache or written out. Inside a
+ * unit of work the first call opens the handle and begins the transaction, and the handle is kept until the request
+ * finishes. {@link #get()} also keeps its handle until then.
+ *
+ * <p>
+ * The time each request held pooled handles is reported per resource method, as the {@code poolHold} timer and the
+ * {@code handles} histogram next to the resource method's own metrics. Repositories must not return results that read
+ * from the handle after the call returned.
+ *
+ * <p>
+ * With a read replica, the {@link ReadOnly} calls of a request that {@link UnitOfWorkListener} allowed to read from it
+ * get their handle from the replica. Calls in a unit of work and calls on a kept handle stay on the primary.
+ *
+ * <p>
+ * Actions passed to {@link #run(Runnable)} during a unit of work run right after its commit and are dropped by a
+ * rollback.
+ */
+public class LazyJdbiHandleManager implements JdbiHandleManager, AfterCommit {
+    private static final String OUTSIDE_REQUESTS = name(LazyJdbiHandleManager.class, "outsideRequests");
+
+    private final Jdbi jdbi;
+    private final Jdbi replica;
+    private final MetricRegistry metrics;
+    private final Timer outsideRequests;
+    private final Meter replicaReads;
+    private final ThreadLocal<Scope> scopes = new ThreadLocal<>();
+
+    public LazyJdbiHandleManager(final Jdbi jdbi, final MetricRegistry metrics) {
+        this(jdbi, null, metrics);
+    }
+
+    /**
+     * @param replica the read replica, {@code null} to run everything on {@code jdbi}
+     */
+    public LazyJdbiHandleManager(final Jdbi jdbi, final Jdbi replica, final MetricRegistry metrics) {
+        this.jdbi = jdbi;
+        this.replica = replica;
+        this.metrics = metrics;
+        this.outsideRequests = metrics.timer(name(OUTSIDE_REQUESTS, "poolHold"));
+        this.replicaReads = metrics.meter(name(LazyJdbiHandleManager.class, "replicaReads"));
+    }
+
+    /**
+     * The handle of the current request, opened if needed and kept until {@link #clear()}.
+     */
+    @Override
+    public Handle get() {
+        Scope scope = scopes.get();
+        if (scope == null) {
+            scope = new Scope(OUTSIDE_REQUESTS);
+            scopes.set(scope);
+        }
+        return pinned(scope);
+    }
+
+    /**
+     * Closes the handle kept for the current request, rolling back a transaction that was not committed.
+     */
+    @Override
+    public void clear() {
+        final Scope scope = scopes.get();
+        if (scope == null) {
+            return;
+        }
+        scopes.remove();
+        try {
+            if (scope.handle != null) {
+                try {
+                    if (scope.handle.isInTransaction()) {
+                        scope.handle.rollback();
+                    }
+                } finally {
+                    scope.handle.close();
+                    scope.released(System.nanoTime() - scope.pinnedAt);
+                }
+            }
+        } finally {
+            metrics.timer(name(scope.endpoint, "poolHold")).update(scope.heldNanos, TimeUnit.NANOSECONDS);
+            metrics.histogram(name(scope.endpoint, "handles")).update(scope.handles);
+        }
+    }
+
+    @Override
+    public void run(final Runnable action) {
+        final Scope scope = scopes.get();
+        if (scope == null || !scope.transactional) {
+            action.run();
+        } else {
+            scope.afterCommit.add(action);
+        }
+    }
+
+    void enter(final String endpoint) {
+        clear();
+        scopes.set(new Scope(endpoint));
+    }
+
+    /**
+     * Makes the rest of the request a unit of work; the transaction begins with the next repository call.
+     */
+    void beginUnitOfWork() {
+        final Scope scope = scopes.get();
+        if (scope != null) {
+            scope.transactional = true;
+            if (scope.handle != null && !scope.handle.isInTransaction()) {
+                scope.handle.begin();
+            }
+        }
+    }
+
+    /**
+     * Lets the read-only calls of the rest of the request go to the replica, if there is one.
+     */
+    void readFromReplica() {
+        final Scope scope = scopes.get();
+        if (scope != null && replica != null) {
+            scope.replicaReads = true;
+        }
+    }
+
+    /**
+     * Whether the read-only calls of the current request go to the replica.
+     */
+    public boolean readsFromReplica() {
+        final Scope scope = scopes.get();
+        return scope != null && scope.replicaReads;
+    }
+
+    void commit() {
+        final Scope scope = scopes.get();
+        if (scope == null) {
+            return;
+        }
+        if (scope.handle != null && scope.handle.isInTransaction()) {
+            scope.handle.commit();
+        }
+        final List<Runnable> actions = new ArrayList<>(scope.afterCommit);
+        scope.afterCommit.clear();
+        actions.forEach(Runnable::run);
+    }
+
+    void rollback() {
+        final Scope scope = scopes.get();
+        if (scope == null) {
+            return;
+        }
+        scope.afterCommit.clear();
+        if (scope.handle != null && scope.handle.isInTransaction()) {
+            scope.handle.rollback();
+        }
+    }
+
+    Object invoke(final Class<?> type, final Method method, final Object[] args) throws Throwable {
+        final Scope scope = scopes.get();
+        if (scope != null && (scope.handle != null || scope.transactional)) {
+            return call(pinned(scope).attach(type), method, args);
+        }
+        final boolean fromReplica = scope != null && scope.replicaReads && method.isAnnotationPresent(ReadOnly.class);
+        final Handle handle = (fromReplica ? replica : jdbi).open();
+        if (fromReplica) {
+            replicaReads.mark();
+        }
+        final long acquired = System.nanoTime();
+        try {
+            return call(handle.attach(type), method, args);
+        } finally {
+            handle.close();
+            final long held = System.nanoTime() - acquired;
+            if (scope == null) {
+                outsideRequests.update(held, TimeUnit.NANOSECONDS);
+            } else {
+                scope.released(held);
+            }
+        }
+    }
+
+    private Handle pinned(final Scope scope) {
+        if (scope.handle == null) {
+            final Handle handle = jdbi.open();
+            try {
+                if (scope.transactional) {
+                    handle.begin();
+                }
+            } catch (final RuntimeException e) {
+                handle.close();
+                throw e;
+            }
+            scope.handle = handle;
+            scope.pinnedAt = System.nanoTime();
+        }
+        return scope.handle;
+    }
+
+    private static Object call(final Object repository, final Method method, final Object[] args) throws Throwable {
+        try {
+            return method.invoke(repository, args);
+        } catch (final InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+
+    private static class Scope {
+        private final String endpoint;
+        private final List<Runnable> afterCommit = new ArrayList<>();
+        private boolean transactional;
+        private boolean replicaReads;
+        private Handle handle;
+        private long pinnedAt;
+        private long heldNanos;
+        private int handles;
+
+        private Scope(final String endpoint) {
+            this.endpoint = endpoint;
+        }
+
+        private void released(final long nanos) {
+            heldNanos += nanos;
+            handles++;
+        }
+    }
+}
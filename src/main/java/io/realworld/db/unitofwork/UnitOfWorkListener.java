@@ -0,0 +1,115 @@
+package io.realworld.db.unitofwork;
+
+import com.github.isopropylcyanide.jdbiunitofwork.JdbiUnitOfWork;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import org.glassfish.jersey.server.model.ResourceMethod;
+import org.glassfish.jersey.server.monitoring.ApplicationEvent;
+import org.glassfish.jersey.server.monitoring.ApplicationEventListener;
+import org.glassfish.jersey.server.monitoring.RequestEvent;
+import org.glassfish.jersey.server.monitoring.RequestEventListener;
+
+import java.lang.reflect.Method;
+import java.security.Principal;
+import java.time.Duration;
+
+import static com.codahale.metrics.MetricRegistry.name;
+
+/**
+ * Scopes the handles of {@link LazyJdbiHandleManager} to requests and runs {@link JdbiUnitOfWork} resource methods in a
+ * transaction, committed before the response filters and rolled back on an exception.
+ *
+ * <p>
+ * The scope starts once the request is matched, so repository calls made by authenticators count towards the
+ * resource method as well.
+ *
+ * <p>
+ * {@code GET} and {@code HEAD} requests may read from the replica, unless their user sent any other request less than
+ * {@code primaryAfterWrite} ago: those users keep reading from the primary until the replica has caught up with
+ * their writes.
+ */
+public class UnitOfWorkListener implements ApplicationEventListener {
+    private static final long RECENT_WRITERS_MAXIMUM = 100_000;
+
+    private final LazyJdbiHandleManager handleManager;
+    private final Cache<String, Boolean> recentWriters;
+
+    public UnitOfWorkListener(final LazyJdbiHandleManager handleManager) {
+        this(handleManager, Duration.ZERO);
+    }
+
+    public UnitOfWorkListener(final LazyJdbiHandleManager handleManager, final Duration primaryAfterWrite) {
+        this.handleManager = handleManager;
+        this.recentWriters = CacheBuilder.newBuilder()
+                .expireAfterWrite(primaryAfterWrite)
+                .maximumSize(RECENT_WRITERS_MAXIMUM)
+                .build();
+    }
+
+    @Override
+    public void onEvent(final ApplicationEvent event) {
+    }
+
+    @Override
+    public RequestEventListener onRequest(final RequestEvent event) {
+        return this::onRequestEvent;
+    }
+
+    private void onRequestEvent(final RequestEvent event) {
+        switch (event.getType()) {
+            case REQUEST_MATCHED:
+                final Method method = definitionMethod(event);
+                if (method != null) {
+                    handleManager.enter(name(method.getDeclaringClass(), method.getName()));
+                }
+                break;
+            case RESOURCE_METHOD_START:
+                if (isUnitOfWork(definitionMethod(event))) {
+                    handleManager.beginUnitOfWork();
+                } else if (isRead(event) && !wroteRecently(event)) {
+                    handleManager.readFromReplica();
+                }
+                break;
+            case RESP_FILTERS_START:
+                handleManager.commit();
+                break;
+            case ON_EXCEPTION:
+                handleManager.rollback();
+                break;
+            case FINISHED:
+                final String user = userOf(event);
+                if (!isRead(event) && user != null) {
+                    recentWriters.put(user, Boolean.TRUE);
+                }
+                handleManager.clear();
+                break;
+            default:
+                break;
+        }
+    }
+
+    private boolean wroteRecently(final RequestEvent event) {
+        final String user = userOf(event);
+        return user != null && recentWriters.getIfPresent(user) != null;
+    }
+
+    private static boolean isRead(final RequestEvent event) {
+        final String method = event.getContainerRequest().getMethod();
+        return "GET".equals(method) || "HEAD".equals(method);
+    }
+
+    private static String userOf(final RequestEvent event) {
+        final Principal principal = event.getContainerRequest().getSecurityContext().getUserPrincipal();
+        return principal == null ? null : principal.getName();
+    }
+
+    private static Method definitionMethod(final RequestEvent event) {
+        final ResourceMethod resourceMethod = event.getUriInfo().getMatchedResourceMethod();
+        return resourceMethod == null ? null : resourceMethod.getInvocable().getDefinitionMethod();
+    }
+
+    private static boolean isUnitOfWork(final Method method) {
+        return method != null && (method.isAnnotationPresent(JdbiUnitOfWork.class)
+                || method.getDeclaringClass().isAnnotationPresent(JdbiUnitOfWork.class));
+    }
+}
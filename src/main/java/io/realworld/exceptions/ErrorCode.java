@@ -8,7 +8,9 @@ public enum ErrorCode {
     INTERNAL_ERROR("Internal server error"),
     UNAUTHORIZED("User is not authorized"),
     FORBIDDEN("User is not allowed"),
-    INVALID_CREDENTIALS("Invalid credentials");
+    INVALID_CREDENTIALS("Invalid credentials"),
+    INVALID_CURSOR("Invalid pagination cursor"),
+    OVERLOADED("Too many requests, retry later");
 
     private final String defaultMessage;
 
@@ -4,13 +4,17 @@ import com.codahale.metrics.annotation.Timed;
 import io.dropwizard.auth.Auth;
 import io.realworld.api.request.NewComment;
 import io.realworld.api.response.Comment;
+import io.realworld.core.ChangeVersions;
 import io.realworld.core.CommentService;
 import io.realworld.security.UserPrincipal;
 
 import javax.validation.Valid;
 import javax.validation.constraints.NotNull;
 import javax.ws.rs.*;
+import javax.ws.rs.core.Context;
+import javax.ws.rs.core.EntityTag;
 import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Request;
 import javax.ws.rs.core.Response;
 import java.util.List;
 import java.util.Map;
@@ -20,17 +24,27 @@ import java.util.Map;
 public class CommentResource {
 
     private final CommentService commentService;
+    private final ChangeVersions changeVersions;
 
-    public CommentResource(final CommentService commentService) {
+    public CommentResource(final CommentService commentService, final ChangeVersions changeVersions) {
         this.commentService = commentService;
+        this.changeVersions = changeVersions;
     }
 
     @GET
     @Produces(MediaType.APPLICATION_JSON)
-    public Response findArticleComments(@PathParam("slug") final String slug) {
+    public Response findArticleComments(@PathParam("slug") final String slug, @Context final Request request) {
+        final EntityTag t = new EntityTag(changeVersions.tag(null,
+                changeVersions.version(ChangeVersions.Scope.COMMENTS),
+                changeVersions.version(ChangeVersions.Scope.PROFILES)), true);
+        final Response.ResponseBuilder notModified = request.evaluatePreconditions(t);
+        if (notModified != null) {
+            return notModified.build();
+        }
+
         final List<Comment> comments = commentService.findArticleComments(slug);
 
-        return Response.ok(Map.of("comments", comments)).build();
+        return Response.ok(Map.of("comments", comments)).tag(t).build();
     }
 
     @POST
@@ -39,7 +53,7 @@ public class CommentResource {
     public Response saveComment(@Auth final UserPrincipal principal,
                                 @PathParam("slug") final String slug,
                                 @NotNull @Valid final NewComment newComment) {
-        final Comment comment = commentService.saveComment(principal.getUsername(), slug, newComment);
+        final Comment comment = commentService.saveComment(principal, slug, newComment);
 
         return Response.ok(Map.of("comment", comment)).build();
     }
@@ -3,14 +3,16 @@ package io.realworld.resources;
 import com.codahale.metrics.annotation.Timed;
 import com.github.isopropylcyanide.jdbiunitofwork.JdbiUnitOfWork;
 import io.dropwizard.auth.Auth;
-import io.dropwizard.jersey.caching.CacheControl;
 import io.realworld.api.request.NewMovie;
 import io.realworld.api.request.NewMovieReview;
 import io.realworld.api.response.Movie;
 import io.realworld.api.response.MovieList;
 import io.realworld.api.response.MovieReview;
 import io.realworld.api.response.MovieReviewList;
+import io.realworld.core.ChangeVersions;
 import io.realworld.core.MoviesService;
+import io.realworld.core.CountMode;
+import io.realworld.core.PageCursor;
 import io.realworld.core.ReviewsService;
 import io.realworld.core.UserService;
 import io.realworld.security.UserPrincipal;
@@ -28,39 +30,57 @@ import java.util.concurrent.TimeUnit;
 @Timed
 @Path("movies")
 public class MoviesResource {
+    private static final CacheControl LIST_CACHE_CONTROL = listCacheControl();
 
     private final UserService userService;
     private final MoviesService moviesService;
     private final ReviewsService reviewsService;
+    private final ChangeVersions changeVersions;
 
-    public MoviesResource(final UserService userService, final MoviesService moviesService, ReviewsService reviewsService) {
+    public MoviesResource(final UserService userService, final MoviesService moviesService, ReviewsService reviewsService,
+                          final ChangeVersions changeVersions) {
         this.userService = userService;
         this.moviesService = moviesService;
         this.reviewsService = reviewsService;
+        this.changeVersions = changeVersions;
     }
     @POST
     @Consumes(MediaType.APPLICATION_JSON)
     @Produces(MediaType.APPLICATION_JSON)
     public Response createMovie(@Auth final UserPrincipal principal,
                                   @NotNull @Valid final NewMovie newMovie) {
-        final Movie movie = moviesService.createMovie(principal.getUsername(), newMovie);
+        final Movie movie = moviesService.createMovie(principal, newMovie);
 
         return Response.ok(Map.of("movie", movie)).build();
     }
 
+    /*
+     * Cache headers are set here rather than with @CacheControl, which would also mark a partial list as cacheable.
+     */
     @GET
     @Produces(MediaType.APPLICATION_JSON)
-    @CacheControl(maxAge = 5, maxAgeUnit = TimeUnit.MINUTES)
     public Response findMovies(@Auth final Optional<UserPrincipal> optionalAuthenticatedUser,
                                @QueryParam("actor") final String actor,
                                @QueryParam("yearReleased") final String yearReleased,
                                @QueryParam("favorited") final String favoritedBy,
                                @DefaultValue("0") @QueryParam("offset") @Min(0) final int offset,
-                               @DefaultValue("20") @QueryParam("limit") @Min(0) @Max(100) final int limit) {
+                               @DefaultValue("20") @QueryParam("limit") @Min(0) @Max(100) final int limit,
+                               @Context final Request request) {
         final String username = optionalAuthenticatedUser.map(UserPrincipal::getUsername).orElse(null);
+        final EntityTag t = changeVersions.canTag()
+                ? new EntityTag(changeVersions.tag(username, changeVersions.version(ChangeVersions.Scope.MOVIES)), true)
+                : null;
+        final Response.ResponseBuilder notModified = t == null ? null : request.evaluatePreconditions(t);
+        if (notModified != null) {
+            return ViewerCaching.perViewer(notModified, username, LIST_CACHE_CONTROL).build();
+        }
+
         final MovieList movies = moviesService.findMovies(username, actor, yearReleased, favoritedBy, offset, limit);
+        if (movies.isPartial()) {
+            return ViewerCaching.perViewer(Response.ok(movies), username, null).build();
+        }
 
-        return Response.ok(movies).build();
+        return ViewerCaching.perViewer(Response.ok(movies).tag(t), username, LIST_CACHE_CONTROL).build();
     }
 
     @GET
@@ -78,10 +98,11 @@ public class MoviesResource {
     @Path("{id}/reviews")
     @Consumes(MediaType.APPLICATION_JSON)
     @Produces(MediaType.APPLICATION_JSON)
+    @JdbiUnitOfWork
     public Response createArticle(@Auth final UserPrincipal principal,
                                   @PathParam("id") final String id,
                                   @NotNull @Valid final NewMovieReview newMovieReview) {
-        final MovieReview movieReview = reviewsService.createReview(principal.getUsername(), id, newMovieReview);
+        final MovieReview movieReview = reviewsService.createReview(principal, id, newMovieReview);
 
         return Response.ok(Map.of("article", movieReview)).build();
     }
@@ -95,12 +116,29 @@ public class MoviesResource {
                                  @QueryParam("author") final String author,
                                  @QueryParam("tag") final String tag,
                                  @QueryParam("favorited") final String favoritedBy,
-                                 @DefaultValue("0") @QueryParam("offset") @Min(0) final int offset,
-                                 @DefaultValue("20") @QueryParam("limit") @Min(0) @Max(100) final int limit) {
+                                 @DefaultValue("exact") @QueryParam("countMode") final CountMode countMode,
+                                 @QueryParam("offset") @Min(0) final Integer offset,
+                                 @QueryParam("cursor") final String cursor,
+                                 @DefaultValue("20") @QueryParam("limit") @Min(0) @Max(100) final int limit,
+                                 @Context final Request request) {
+        PageCursor.checkNotCombined(cursor, offset);
         final String username = optionalAuthenticatedUser.map(UserPrincipal::getUsername).orElse(null);
-        final MovieReviewList articles = reviewsService.findReviews(username, movieId, author, tag, favoritedBy, offset, limit);
-
-        return Response.ok(articles).build();
+        final EntityTag t = changeVersions.canTag()
+                ? new EntityTag(changeVersions.tag(username,
+                        changeVersions.reviewsVersion(movieId),
+                        changeVersions.version(ChangeVersions.Scope.PROFILES)), true)
+                : null;
+        final Response.ResponseBuilder notModified = t == null ? null : request.evaluatePreconditions(t);
+        if (notModified != null) {
+            return ViewerCaching.perViewer(notModified, username, null).build();
+        }
+
+        final MovieReviewList articles = cursor != null
+                ? reviewsService.findReviewsAfter(username, movieId, author, tag, favoritedBy, countMode, cursor, limit)
+                : reviewsService.findReviews(username, movieId, author, tag, favoritedBy, countMode,
+                        offset != null ? offset : 0, limit);
+
+        return ViewerCaching.perViewer(Response.ok(articles).tag(t), username, null).build();
     }
 
     @POST
@@ -109,7 +147,7 @@ public class MoviesResource {
     @JdbiUnitOfWork
     public Response likeMovie(@Auth final UserPrincipal principal,
                                            @PathParam("id") final String id) {
-        final Movie movie = moviesService.starMovie(principal.getUsername(), id);
+        final Movie movie = moviesService.starMovie(principal, id);
 
         return Response.ok(Map.of("article", movie)).build();
     }
@@ -120,9 +158,14 @@ public class MoviesResource {
     @Produces(MediaType.APPLICATION_JSON)
     public Response removeArticleFromFavourites(@Auth final UserPrincipal principal,
                                                 @PathParam("id") final String id) {
-        final Movie movie = moviesService.unStarMovie(principal.getUsername(), id);
+        final Movie movie = moviesService.unStarMovie(principal, id);
 
         return Response.ok(Map.of("article", movie)).build();
     }
 
+    private static CacheControl listCacheControl() {
+        final CacheControl cacheControl = new CacheControl();
+        cacheControl.setMaxAge((int) TimeUnit.MINUTES.toSeconds(5));
+        return cacheControl;
+    }
 }
@@ -24,7 +24,7 @@ public class ProfileResource {
     @Path("{username}")
     @Produces(MediaType.APPLICATION_JSON)
     public Response findProfile(@PathParam("username") final String username, @Auth final UserPrincipal principal) {
-        final Profile profile = profileService.findProfileByUsername(username, principal.getUsername());
+        final Profile profile = profileService.findProfileByUsername(username, principal);
 
         return Response.ok(Map.of("profile", profile)).build();
     }
@@ -33,7 +33,7 @@ public class ProfileResource {
     @Path("{username}/follow")
     @Produces(MediaType.APPLICATION_JSON)
     public Response followProfile(@PathParam("username") final String username, @Auth final UserPrincipal principal) {
-        final Profile profile = profileService.followProfile(username, principal.getUsername());
+        final Profile profile = profileService.followProfile(username, principal);
 
         return Response.ok(Map.of("profile", profile)).build();
     }
@@ -42,7 +42,7 @@ public class ProfileResource {
     @Path("{username}/follow")
     @Produces(MediaType.APPLICATION_JSON)
     public Response unfollowProfile(@PathParam("username") final String username, @Auth final UserPrincipal principal) {
-        final Profile profile = profileService.unfollowProfile(username, principal.getUsername());
+        final Profile profile = profileService.unfollowProfile(username, principal);
 
         return Response.ok(Map.of("profile", profile)).build();
     }
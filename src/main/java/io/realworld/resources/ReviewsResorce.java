@@ -3,9 +3,13 @@ package io.realworld.resources;
 import com.codahale.metrics.annotation.Timed;
 import com.github.isopropylcyanide.jdbiunitofwork.JdbiUnitOfWork;
 import io.dropwizard.auth.Auth;
+import io.realworld.api.request.NewFavorites;
 import io.realworld.api.request.UpdatedArticle;
 import io.realworld.api.response.MovieReview;
 import io.realworld.api.response.MovieReviewList;
+import io.realworld.core.ChangeVersions;
+import io.realworld.core.CountMode;
+import io.realworld.core.PageCursor;
 import io.realworld.core.ReviewsService;
 import io.realworld.security.UserPrincipal;
 import org.jdbi.v3.sqlobject.transaction.Transaction;
@@ -25,9 +29,11 @@ import java.util.Optional;
 public class ReviewsResorce {
 
     private final ReviewsService reviewsService;
+    private final ChangeVersions changeVersions;
 
-    public ReviewsResorce(final ReviewsService reviewsService) {
+    public ReviewsResorce(final ReviewsService reviewsService, final ChangeVersions changeVersions) {
         this.reviewsService = reviewsService;
+        this.changeVersions = changeVersions;
     }
 
     @GET
@@ -37,12 +43,29 @@ public class ReviewsResorce {
                                  @QueryParam("author") final String author,
                                  @QueryParam("tag") final String tag,
                                  @QueryParam("favorited") final String favoritedBy,
-                                 @DefaultValue("0") @QueryParam("offset") @Min(0) final int offset,
-                                 @DefaultValue("20") @QueryParam("limit") @Min(0) @Max(100) final int limit) {
+                                 @DefaultValue("exact") @QueryParam("countMode") final CountMode countMode,
+                                 @QueryParam("offset") @Min(0) final Integer offset,
+                                 @QueryParam("cursor") final String cursor,
+                                 @DefaultValue("20") @QueryParam("limit") @Min(0) @Max(100) final int limit,
+                                 @Context final Request request) {
+        PageCursor.checkNotCombined(cursor, offset);
         final String username = optionalAuthenticatedUser.map(UserPrincipal::getUsername).orElse(null);
-        final MovieReviewList articles = reviewsService.findReviews(username, movieId, author, tag, favoritedBy, offset, limit);
+        final EntityTag t = changeVersions.canTag()
+                ? new EntityTag(changeVersions.tag(username,
+                        changeVersions.reviewsVersion(movieId),
+                        changeVersions.version(ChangeVersions.Scope.PROFILES)), true)
+                : null;
+        final Response.ResponseBuilder notModified = t == null ? null : request.evaluatePreconditions(t);
+        if (notModified != null) {
+            return ViewerCaching.perViewer(notModified, username, null).build();
+        }
+
+        final MovieReviewList articles = cursor != null
+                ? reviewsService.findReviewsAfter(username, movieId, author, tag, favoritedBy, countMode, cursor, limit)
+                : reviewsService.findReviews(username, movieId, author, tag, favoritedBy, countMode,
+                        offset != null ? offset : 0, limit);
 
-        return Response.ok(articles).build();
+        return ViewerCaching.perViewer(Response.ok(articles).tag(t), username, null).build();
     }
 
     @GET
@@ -50,11 +73,19 @@ public class ReviewsResorce {
     @Produces(MediaType.APPLICATION_JSON)
     public Response findArticle(@Auth final Optional<UserPrincipal> optionalAuthenticatedUser,
                                 @PathParam("slug") final String slug, @Context Request request) {
-        final String username = optionalAuthenticatedUser.map(UserPrincipal::getUsername).orElse(null);
-        final MovieReview movieReview = reviewsService.findBySlug(username, slug);
-        EntityTag t = new EntityTag(movieReview.getUpdatedAt().toString());
+        final MovieReview cached = reviewsService.findReview(slug);
+        final EntityTag t = reviewTag(cached);
+        // the tag does not cover the favorited and following flags, so only anonymous requests are answered from it
+        if (optionalAuthenticatedUser.isEmpty()) {
+            final Response.ResponseBuilder notModified = request.evaluatePreconditions(t);
+            if (notModified != null) {
+                return ViewerCaching.perViewer(notModified.tag(t), null, null).build();
+            }
+        }
 
-        return Response.ok(Map.of("article", movieReview)).tag(t).build();
+        final String username = optionalAuthenticatedUser.map(UserPrincipal::getUsername).orElse(null);
+        final MovieReview movieReview = reviewsService.forViewer(username, cached);
+        return ViewerCaching.perViewer(Response.ok(Map.of("article", movieReview)).tag(t), username, null).build();
     }
 
     @DELETE
@@ -73,15 +104,16 @@ public class ReviewsResorce {
     public Response updateArticle(@Auth final UserPrincipal principal,
                                   @HeaderParam("If-Match") @NotEmpty final String ifMatch,
                                   @PathParam("slug") final String slug,
-                                  @NotNull @Valid final UpdatedArticle update, @Context Request request) {
-        final MovieReview oldMovieReview = reviewsService.findBySlug(principal.getUsername(), slug);
-
-        EntityTag t = new EntityTag(oldMovieReview.getUpdatedAt().toString());
-        Optional<Response.ResponseBuilder> responseBuilder = Optional.ofNullable(request.evaluatePreconditions(t));
-        if (responseBuilder.isPresent()) {
-            return responseBuilder.get().entity(oldMovieReview).tag(t).build();
+                                  @NotNull @Valid final UpdatedArticle update) {
+        final MovieReview oldMovieReview = reviewsService.findReviewForUpdate(slug);
+
+        if (!matchesVersion(ifMatch, oldMovieReview)) {
+            return Response.status(Response.Status.PRECONDITION_FAILED)
+                    .entity(oldMovieReview)
+                    .tag(reviewTag(oldMovieReview))
+                    .build();
         }
-        final MovieReview movieReview = reviewsService.updateReview(principal.getUsername(), oldMovieReview, update);
+        final MovieReview movieReview = reviewsService.updateReview(principal, oldMovieReview, update);
         return Response.ok(Map.of("article", movieReview)).build();
     }
 
@@ -90,18 +122,60 @@ public class ReviewsResorce {
     @Produces(MediaType.APPLICATION_JSON)
     public Response addArticleToFavourites(@Auth final UserPrincipal principal,
                                            @PathParam("slug") final String slug) {
-        final MovieReview movieReview = reviewsService.addArticleToFavourites(principal.getUsername(), slug);
+        final MovieReview movieReview = reviewsService.addArticleToFavourites(principal, slug);
 
         return Response.ok(Map.of("article", movieReview)).build();
     }
 
+    @POST
+    @Path("favorites")
+    @Consumes(MediaType.APPLICATION_JSON)
+    @Produces(MediaType.APPLICATION_JSON)
+    public Response addArticlesToFavourites(@Auth final UserPrincipal principal,
+                                            @NotNull @Valid final NewFavorites favorites) {
+        final int favorited = reviewsService.addArticlesToFavourites(principal, favorites.getSlugs());
+
+        return Response.ok(Map.of("favorited", favorited)).build();
+    }
+
     @DELETE
     @Path("{slug}/favorite")
     @Produces(MediaType.APPLICATION_JSON)
     public Response removeArticleFromFavourites(@Auth final UserPrincipal principal,
                                                 @PathParam("slug") final String slug) {
-        final MovieReview movieReview = reviewsService.removeArticleFromFavourites(principal.getUsername(), slug);
+        final MovieReview movieReview = reviewsService.removeArticleFromFavourites(principal, slug);
 
         return Response.ok(Map.of("article", movieReview)).build();
     }
+
+    /*
+     * The version of the review, its update time, followed by its favorites count so a conditional GET also sees
+     * favorites.
+     */
+    private EntityTag reviewTag(final MovieReview review) {
+        return new EntityTag(review.getUpdatedAt() + "-" + reviewsService.favoritesCount(review));
+    }
+
+    /*
+     * If-Match only compares the version part of the tags, against the row read for the update: the favorites count
+     * changes without the review changing and is partly buffered per process.
+     */
+    private static boolean matchesVersion(final String ifMatch, final MovieReview current) {
+        final String version = current.getUpdatedAt() + "-";
+        for (final String value : ifMatch.split(",")) {
+            final String tag = value.trim();
+            if ("*".equals(tag)) {
+                return true;
+            }
+            try {
+                final EntityTag entityTag = EntityTag.valueOf(tag);
+                if (!entityTag.isWeak() && entityTag.getValue().startsWith(version)) {
+                    return true;
+                }
+            } catch (final IllegalArgumentException e) {
+                // not a tag this resource handed out
+            }
+        }
+        return false;
+    }
 }
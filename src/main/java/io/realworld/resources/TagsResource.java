@@ -1,31 +1,44 @@
 package io.realworld.resources;
 
 import com.codahale.metrics.annotation.Timed;
-import io.realworld.db.TagRepository;
+import io.realworld.core.TagPopularity;
 
+import javax.validation.constraints.Min;
 import javax.ws.rs.GET;
 import javax.ws.rs.Path;
 import javax.ws.rs.Produces;
+import javax.ws.rs.QueryParam;
+import javax.ws.rs.core.Context;
+import javax.ws.rs.core.EntityTag;
 import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Request;
 import javax.ws.rs.core.Response;
-import java.util.List;
-import java.util.Map;
 
 @Timed
 @Path("tags")
 public class TagsResource {
 
-    private final TagRepository tagRepository;
+    private final TagPopularity tagPopularity;
 
-    public TagsResource(final TagRepository tagRepository) {
-        this.tagRepository = tagRepository;
+    public TagsResource(final TagPopularity tagPopularity) {
+        this.tagPopularity = tagPopularity;
     }
 
+    /*
+     * Most used tags first, served from the pre-serialized ranking.
+     */
     @GET
     @Produces(MediaType.APPLICATION_JSON)
-    public Response findTags() {
-        final List<String> tags = tagRepository.findAllTags();
+    public Response findTags(@QueryParam("top") @Min(1) final Integer top,
+                             @QueryParam("prefix") final String prefix,
+                             @Context final Request request) {
+        final TagPopularity.Rendered tags = tagPopularity.ranking().filter(top, prefix);
+        final EntityTag t = new EntityTag(tags.getEtag());
+        final Response.ResponseBuilder notModified = request.evaluatePreconditions(t);
+        if (notModified != null) {
+            return notModified.build();
+        }
 
-        return Response.ok(Map.of("tags", tags)).build();
+        return Response.ok(tags.getBody()).tag(t).build();
     }
 }
@@ -6,6 +6,7 @@ import io.realworld.api.request.NewUser;
 import io.realworld.api.request.UpdatedUser;
 import io.realworld.api.response.MovieReviewList;
 import io.realworld.api.response.User;
+import io.realworld.core.CountMode;
 import io.realworld.core.ReviewsService;
 import io.realworld.core.UserService;
 import io.realworld.security.UserPrincipal;
@@ -73,9 +74,10 @@ public class UsersResource {
     @Path("{id}/feed")
     @Produces(MediaType.APPLICATION_JSON)
     public Response getFeed(@Auth final UserPrincipal principal, @PathParam("id") final String id,
+                            @DefaultValue("exact") @QueryParam("countMode") final CountMode countMode,
                             @DefaultValue("0") @QueryParam("offset") @Min(0) final int offset,
                             @DefaultValue("20") @QueryParam("limit") @Min(0) @Max(100) final int limit) {
-        final MovieReviewList articles = reviewsService.findFeed(principal.getUsername(), offset, limit);
+        final MovieReviewList articles = reviewsService.findFeed(principal, countMode, offset, limit);
 
         return Response.ok(articles).build();
     }
@@ -0,0 +1,35 @@
+package io.realworld.resources;
+
+import javax.ws.rs.core.CacheControl;
+import javax.ws.rs.core.HttpHeaders;
+import javax.ws.rs.core.Response;
+
+/**
+ * Cache headers of the responses whose body carries the flags of the authenticated viewer.
+ */
+final class ViewerCaching {
+
+    private ViewerCaching() {
+    }
+
+    /**
+     * Makes shared caches key the response by the Authorization header and keeps a viewer's response out of them.
+     *
+     * @param cacheControl the cache control of anonymous responses, {@code null} for none; a viewer's response gets
+     *                     its max age only
+     */
+    static Response.ResponseBuilder perViewer(final Response.ResponseBuilder response,
+                                              final String viewer,
+                                              final CacheControl cacheControl) {
+        response.header(HttpHeaders.VARY, HttpHeaders.AUTHORIZATION);
+        if (viewer == null) {
+            return cacheControl == null ? response : response.cacheControl(cacheControl);
+        }
+        final CacheControl privateCacheControl = new CacheControl();
+        privateCacheControl.setPrivate(true);
+        if (cacheControl != null) {
+            privateCacheControl.setMaxAge(cacheControl.getMaxAge());
+        }
+        return response.cacheControl(privateCacheControl);
+    }
+}
@@ -40,6 +40,8 @@ public class ApplicationExceptionMapper implements ExceptionMapper<ApplicationEx
             case DUPLICATE_EMAIL:
             case USER_ALREADY_FOLLOWED:
                 return 422;
+            case INVALID_CURSOR:
+                return 400;
             case INVALID_CREDENTIALS:
             case UNAUTHORIZED:
                 return 401;
@@ -47,6 +49,8 @@ public class ApplicationExceptionMapper implements ExceptionMapper<ApplicationEx
                 return 403;
             case NOT_FOUND:
                 return 404;
+            case OVERLOADED:
+                return 503;
             case INTERNAL_ERROR:
                 return 500;
         }
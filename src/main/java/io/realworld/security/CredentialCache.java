@@ -0,0 +1,100 @@
+package io.realworld.security;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.RatioGauge;
+import com.codahale.metrics.Timer;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.hash.HashCode;
+import com.google.common.hash.HashFunction;
+import com.google.common.hash.Hashing;
+import io.realworld.api.response.User;
+
+import java.nio.charset.StandardCharsets;
+import java.security.SecureRandom;
+import java.util.function.Supplier;
+
+import static com.codahale.metrics.MetricRegistry.name;
+
+/**
+ * Users whose email and password were verified recently, so repeated basic-auth logins skip the user query and the
+ * password hash.
+ *
+ * <p>
+ * Entries are keyed by an HMAC-SHA256 of the email and password under a key drawn when the application starts and
+ * never stored: neither the password nor anything that can be checked against it offline stays in memory. Failed
+ * logins are not cached. A user's entries are dropped when the user is updated, and all of them expire after
+ * {@code ttl}.
+ */
+public class CredentialCache {
+
+    private final HashFunction hmac;
+    private final Cache<HashCode, User> verified;
+    private final Meter hits;
+    private final Meter misses;
+    private final Timer verifications;
+
+    public CredentialCache(final CredentialCacheConfiguration config, final MetricRegistry metrics) {
+        final byte[] key = new byte[32];
+        new SecureRandom().nextBytes(key);
+        this.hmac = Hashing.hmacSha256(key);
+        this.verified = CacheBuilder.newBuilder()
+                .expireAfterWrite(config.getTtl())
+                .maximumSize(config.getMaximumSize())
+                .build();
+        this.hits = metrics.meter(name(CredentialCache.class, "hits"));
+        this.misses = metrics.meter(name(CredentialCache.class, "misses"));
+        this.verifications = metrics.timer(name(CredentialCache.class, "verification"));
+        metrics.register(name(CredentialCache.class, "hitRatio"), new RatioGauge() {
+            @Override
+            protected Ratio getRatio() {
+                return Ratio.of(hits.getCount(), hits.getCount() + misses.getCount());
+            }
+        });
+        metrics.register(name(CredentialCache.class, "savedMillis"), (Gauge<Long>) () ->
+                (long) (hits.getCount() * verifications.getSnapshot().getMean() / 1_000_000));
+    }
+
+    /**
+     * The cached user for these credentials, or the one {@code verification} returns, cached unless it throws.
+     */
+    public User verified(final String email, final String password, final Supplier<User> verification) {
+        final HashCode key = hmac.newHasher()
+                .putString(email, StandardCharsets.UTF_8)
+                .putByte((byte) 0)
+                .putString(password, StandardCharsets.UTF_8)
+                .hash();
+        final User cached = verified.getIfPresent(key);
+        if (cached != null) {
+            hits.mark();
+            return copy(cached);
+        }
+        misses.mark();
+        final User user;
+        try (Timer.Context ignored = verifications.time()) {
+            user = verification.get();
+        }
+        verified.put(key, copy(user));
+        return user;
+    }
+
+    /*
+     * Scans the entries, which the maximum size keeps cheap enough for a user update.
+     */
+    public void invalidateUser(final long userId) {
+        verified.asMap().values().removeIf(user -> user.getId() == userId);
+    }
+
+    private static User copy(final User user) {
+        final User copy = new User();
+        copy.setId(user.getId());
+        copy.setEmail(user.getEmail());
+        copy.setUsername(user.getUsername());
+        copy.setBio(user.getBio());
+        copy.setImage(user.getImage());
+        copy.setProfiles(user.getProfiles());
+        return copy;
+    }
+}
@@ -0,0 +1,31 @@
+package io.realworld.security;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import java.time.Duration;
+
+public class CredentialCacheConfiguration {
+    private static final Duration DEFAULT_TTL = Duration.ofMinutes(1);
+    private static final long DEFAULT_MAXIMUM_SIZE = 10_000;
+
+    private final Duration ttl;
+    private final long maximumSize;
+
+    public CredentialCacheConfiguration(@JsonProperty("ttl") final Duration ttl,
+                                        @JsonProperty("maximumSize") final Long maximumSize) {
+        this.ttl = ttl != null ? ttl : DEFAULT_TTL;
+        this.maximumSize = maximumSize != null ? maximumSize : DEFAULT_MAXIMUM_SIZE;
+    }
+
+    public static CredentialCacheConfiguration defaults() {
+        return new CredentialCacheConfiguration(null, null);
+    }
+
+    public Duration getTtl() {
+        return ttl;
+    }
+
+    public long getMaximumSize() {
+        return maximumSize;
+    }
+}
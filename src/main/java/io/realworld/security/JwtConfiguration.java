@@ -1,5 +1,6 @@
 package io.realworld.security;
 
+import com.fasterxml.jackson.annotation.JsonCreator;
 import com.fasterxml.jackson.annotation.JsonProperty;
 
 import javax.validation.constraints.NotNull;
@@ -8,13 +9,27 @@ import java.util.Base64;
 import java.util.Objects;
 
 public class JwtConfiguration {
+    private static final long DEFAULT_CACHE_MAXIMUM_SIZE = 10_000;
+    private static final Duration DEFAULT_REFRESH_AHEAD = Duration.ofMinutes(5);
+
     private final byte[] secret;
     private final Duration tokenExpiration;
+    private final long cacheMaximumSize;
+    private final Duration refreshAhead;
+
+    public JwtConfiguration(final String secret, final Duration tokenExpiration) {
+        this(secret, tokenExpiration, null, null);
+    }
 
+    @JsonCreator
     public JwtConfiguration(@JsonProperty("secret") @NotNull final String secret,
-                            @JsonProperty("tokenExpiration") @NotNull final Duration tokenExpiration) {
+                            @JsonProperty("tokenExpiration") @NotNull final Duration tokenExpiration,
+                            @JsonProperty("cacheMaximumSize") final Long cacheMaximumSize,
+                            @JsonProperty("refreshAhead") final Duration refreshAhead) {
         this.secret = Base64.getDecoder().decode(Objects.requireNonNull(secret));
         this.tokenExpiration = Objects.requireNonNull(tokenExpiration);
+        this.cacheMaximumSize = cacheMaximumSize != null ? cacheMaximumSize : DEFAULT_CACHE_MAXIMUM_SIZE;
+        this.refreshAhead = refreshAhead != null ? refreshAhead : DEFAULT_REFRESH_AHEAD;
     }
 
     public byte[] getSecret() {
@@ -24,4 +39,12 @@ public class JwtConfiguration {
     public Duration getTokenExpiration() {
         return tokenExpiration;
     }
+
+    public long getCacheMaximumSize() {
+        return cacheMaximumSize;
+    }
+
+    public Duration getRefreshAhead() {
+        return refreshAhead;
+    }
 }
@@ -1,46 +1,117 @@
 package io.realworld.security;
 
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.hash.HashCode;
+import com.google.common.hash.Hashing;
 import io.dropwizard.auth.Authenticator;
 import io.jsonwebtoken.*;
 
-import javax.crypto.spec.SecretKeySpec;
-import java.security.Key;
+import java.nio.charset.StandardCharsets;
+import java.time.Clock;
 import java.util.Date;
 import java.util.Optional;
 
+import static com.codahale.metrics.MetricRegistry.name;
+
+/**
+ * Issues and verifies the HS256 tokens of authenticated users.
+ *
+ * <p>
+ * Verified tokens are cached by their SHA-256 until they expire, so a client repeating the same token pays for the
+ * signature check and the claims parsing once. Rejected tokens are never cached. Tokens cannot be revoked, so the
+ * cache never serves a principal the token itself would not give.
+ */
 public class JwtTokenService implements Authenticator<JwtToken, UserPrincipal> {
 
-    private final JwtConfiguration jwtConfig;
+    static final String PROFILES_CLAIM = "profiles";
+    static final String USER_ID_CLAIM = "uid";
+
+    private final Clock clock;
+    private final TokenMinter minter;
+    private final JwtParser parser;
+    private final Cache<HashCode, Verified> verified;
+    private final Meter cacheHits;
+    private final Meter cacheMisses;
+    private final Timer verifications;
 
     public JwtTokenService(final JwtConfiguration jwtConfig) {
-        this.jwtConfig = jwtConfig;
+        this(jwtConfig, new MetricRegistry());
+    }
+
+    public JwtTokenService(final JwtConfiguration jwtConfig, final MetricRegistry metrics) {
+        this(jwtConfig, metrics, Clock.systemUTC());
+    }
+
+    JwtTokenService(final JwtConfiguration jwtConfig, final MetricRegistry metrics, final Clock clock) {
+        this.clock = clock;
+        this.minter = new TokenMinter(jwtConfig, metrics, clock);
+        this.parser = Jwts.parserBuilder()
+                .setSigningKey(jwtConfig.getSecret())
+                .setClock(() -> new Date(clock.millis()))
+                .build();
+        this.verified = CacheBuilder.newBuilder()
+                .maximumSize(jwtConfig.getCacheMaximumSize())
+                .build();
+        this.cacheHits = metrics.meter(name(JwtTokenService.class, "cacheHits"));
+        this.cacheMisses = metrics.meter(name(JwtTokenService.class, "cacheMisses"));
+        this.verifications = metrics.timer(name(JwtTokenService.class, "verification"));
     }
 
     @Override
     public Optional<UserPrincipal> authenticate(final JwtToken credentials) {
-        try {
-            final Jws<Claims> claims = Jwts.parserBuilder()
-                    .setSigningKey(jwtConfig.getSecret())
-                    .build()
-                    .parseClaimsJws(credentials.getToken());
+        final HashCode key = Hashing.sha256().hashString(credentials.getToken(), StandardCharsets.UTF_8);
+        final Verified cached = verified.getIfPresent(key);
+        if (cached != null) {
+            cacheHits.mark();
+            if (cached.expiresAt <= clock.millis()) {
+                verified.invalidate(key);
+                return Optional.empty();
+            }
+            return Optional.of(cached.principal);
+        }
+        cacheMisses.mark();
 
-            return Optional.of(new UserPrincipal(claims.getBody().getSubject(), claims.getBody().get("profiles",String.class)));
+        final Claims body;
+        try (Timer.Context ignored = verifications.time()) {
+            body = parser.parseClaimsJws(credentials.getToken()).getBody();
         } catch (final JwtException e) {
             return Optional.empty();
         }
+        final UserPrincipal principal = new UserPrincipal(body.get(USER_ID_CLAIM, Long.class), body.getSubject(),
+                body.get(PROFILES_CLAIM, String.class));
+        if (body.getExpiration() != null) {
+            verified.put(key, new Verified(principal, body.getExpiration().getTime()));
+        }
+        return Optional.of(principal);
     }
 
     public JwtToken generateJwt(final String username, final String profiles) {
-        final SignatureAlgorithm signatureAlgorithm = SignatureAlgorithm.HS256;
-        final Key signingKey = new SecretKeySpec(jwtConfig.getSecret(), signatureAlgorithm.getJcaName());
-        final Date issuedAt = new Date();
-        final String token = Jwts.builder()
-                .setSubject(username)
-                .claim("profiles", profiles)
-                .setIssuedAt(issuedAt)
-                .setExpiration(new Date(issuedAt.getTime() + jwtConfig.getTokenExpiration().toMillis()))
-                .signWith(signingKey, signatureAlgorithm)
-                .compact();
-        return new JwtToken(token);
+        return generateJwt(null, username, profiles);
+    }
+
+    public JwtToken generateJwt(final Long userId, final String username, final String profiles) {
+        return new JwtToken(minter.mint(userId, username, profiles));
+    }
+
+    /**
+     * A token for the user, possibly one already handed out that is still valid for longer than
+     * {@code jwt.refreshAhead}.
+     */
+    public JwtToken currentJwt(final Long userId, final String username, final String profiles) {
+        return new JwtToken(minter.current(userId, username, profiles));
+    }
+
+    private static class Verified {
+        private final UserPrincipal principal;
+        private final long expiresAt;
+
+        Verified(final UserPrincipal principal, final long expiresAt) {
+            this.principal = principal;
+            this.expiresAt = expiresAt;
+        }
     }
 }
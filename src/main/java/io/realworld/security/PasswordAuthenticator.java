@@ -7,6 +7,7 @@ import io.dropwizard.auth.basic.BasicCredentials;
 import io.realworld.api.response.User;
 import io.realworld.core.UserService;
 import io.realworld.exceptions.ApplicationException;
+import io.realworld.exceptions.ErrorCode;
 
 import java.util.Optional;
 
@@ -24,6 +25,9 @@ public class PasswordAuthenticator implements Authenticator<BasicCredentials, Us
             return Optional.of(user);
         }
         catch (ApplicationException ae) {
+            if (ae.getErrorCode() != ErrorCode.INVALID_CREDENTIALS) {
+                throw ae;
+            }
             return Optional.empty();
         }
     }
@@ -1,61 +1,101 @@
 package io.realworld.security;
 
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
+import com.google.common.util.concurrent.MoreExecutors;
 import io.realworld.exceptions.ApplicationException;
 import io.realworld.exceptions.ErrorCode;
 
-import java.nio.charset.StandardCharsets;
-import java.security.MessageDigest;
-import java.security.NoSuchAlgorithmException;
-import java.security.SecureRandom;
-import java.util.Base64;
-import java.util.Objects;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static com.codahale.metrics.MetricRegistry.name;
 
 /**
- * Dummy password encoder.
+ * Hashes and checks passwords on a dedicated bounded executor, so a burst of logins queues there instead of holding
+ * every request thread on a deliberately slow hash. When the executor's queue is full the call fails right away with
+ * {@link ErrorCode#OVERLOADED}.
  *
  * <p>
- * TODO: switch to something like:
- * <a href="https://github.com/spring-projects/spring-security/blob/master/crypto/src/main/java/org/springframework/security/crypto/bcrypt/BCryptPasswordEncoder.java">
- * Spring BCrypt - OpenBSD's Blowfish password hashing code
- * </a>
+ * New passwords are encoded with the current {@link PasswordHash}; passwords stored by an older one are still checked
+ * and reported by {@link #needsRehash} so they can be upgraded on the next login.
  */
 public class PasswordEncoder {
 
-    private static final String SEPARATOR = "###";
-
-    private final SecureRandom random = new SecureRandom();
+    private final PasswordHash current;
+    private final List<PasswordHash> older;
+    private final ExecutorService executor;
+    private final AtomicInteger pending = new AtomicInteger();
+    private final Timer hashes;
+    private final Meter shed;
 
-    public String encode(final String rawPassword) {
-        Objects.requireNonNull(rawPassword, "rawPassword cannot be null");
+    /**
+     * Hashes with PBKDF2 at its minimum iterations, on the caller's thread.
+     */
+    public PasswordEncoder() {
+        this(new Pbkdf2PasswordHash(PasswordHashingConfiguration.defaults().getAlgorithm(),
+                        PasswordHashingConfiguration.defaults().getMinIterations()),
+                MoreExecutors.newDirectExecutorService(), new MetricRegistry());
+    }
 
-        final String salt = randomSalt(64);
+    public PasswordEncoder(final PasswordHash current, final ExecutorService executor, final MetricRegistry metrics) {
+        this.current = current;
+        this.older = List.of(new Sha512PasswordHash());
+        this.executor = executor;
+        this.hashes = metrics.timer(name(PasswordEncoder.class, "hash"));
+        this.shed = metrics.meter(name(PasswordEncoder.class, "shed"));
+        metrics.register(name(PasswordEncoder.class, "pending"), (Gauge<Integer>) pending::get);
+    }
 
-        return sha512(rawPassword + salt) + SEPARATOR + salt; //store salt and hash in the same column
+    public String encode(final String rawPassword) {
+        return run(() -> current.encode(rawPassword));
     }
 
     public boolean matches(final String rawPassword, final String encodedPassword) {
-        Objects.requireNonNull(rawPassword, "rawPassword cannot be null");
+        return run(() -> hashOf(encodedPassword).matches(rawPassword, encodedPassword));
+    }
 
-        final String[] split = encodedPassword.split(SEPARATOR);
-        final String password = split[0];
-        final String salt = split[1];
+    public boolean needsRehash(final String encodedPassword) {
+        return !current.recognizes(encodedPassword) || current.isOutdated(encodedPassword);
+    }
 
-        return Objects.equals(sha512(rawPassword + salt), password);
+    private PasswordHash hashOf(final String encodedPassword) {
+        if (current.recognizes(encodedPassword)) {
+            return current;
+        }
+        return older.stream()
+                .filter(hash -> hash.recognizes(encodedPassword))
+                .findFirst()
+                .orElseThrow(() -> new ApplicationException(ErrorCode.INTERNAL_ERROR, "Unknown password format"));
     }
 
-    private String sha512(final String text) {
+    private <T> T run(final Callable<T> hashing) {
+        pending.incrementAndGet();
         try {
-            final MessageDigest digest = MessageDigest.getInstance("SHA-512");
-            final byte[] hash = digest.digest(text.getBytes(StandardCharsets.UTF_8));
-            return Base64.getEncoder().encodeToString(hash);
-        } catch (final NoSuchAlgorithmException e) {
+            return executor.submit(() -> {
+                try (Timer.Context ignored = hashes.time()) {
+                    return hashing.call();
+                }
+            }).get();
+        } catch (final RejectedExecutionException e) {
+            shed.mark();
+            throw new ApplicationException(ErrorCode.OVERLOADED, e);
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
             throw new ApplicationException(ErrorCode.INTERNAL_ERROR, e);
+        } catch (final ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new ApplicationException(ErrorCode.INTERNAL_ERROR, e.getCause());
+        } finally {
+            pending.decrementAndGet();
         }
     }
-
-    private String randomSalt(final int length) {
-        final byte[] buffer = new byte[length];
-        random.nextBytes(buffer);
-        return Base64.getEncoder().encodeToString(buffer);
-    }
 }
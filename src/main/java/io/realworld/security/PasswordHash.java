@@ -0,0 +1,21 @@
+package io.realworld.security;
+
+/**
+ * One way of hashing passwords, identified by the format of the values it encodes.
+ */
+public interface PasswordHash {
+
+    /**
+     * Whether {@code encodedPassword} was encoded by this hash.
+     */
+    boolean recognizes(String encodedPassword);
+
+    String encode(String rawPassword);
+
+    boolean matches(String rawPassword, String encodedPassword);
+
+    /**
+     * Whether {@code encodedPassword} is weaker than what {@link #encode} produces now.
+     */
+    boolean isOutdated(String encodedPassword);
+}
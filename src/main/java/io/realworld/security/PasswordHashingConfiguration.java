@@ -0,0 +1,61 @@
+package io.realworld.security;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import java.time.Duration;
+
+public class PasswordHashingConfiguration {
+    private static final String DEFAULT_ALGORITHM = "PBKDF2WithHmacSHA256";
+    private static final int DEFAULT_MIN_ITERATIONS = 100_000;
+    private static final Duration DEFAULT_TARGET_LATENCY = Duration.ofMillis(100);
+    private static final int DEFAULT_QUEUE_CAPACITY = 32;
+
+    private final String algorithm;
+    private final int minIterations;
+    private final boolean calibrate;
+    private final Duration targetLatency;
+    private final int threads;
+    private final int queueCapacity;
+
+    public PasswordHashingConfiguration(@JsonProperty("algorithm") final String algorithm,
+                                        @JsonProperty("minIterations") final Integer minIterations,
+                                        @JsonProperty("calibrate") final Boolean calibrate,
+                                        @JsonProperty("targetLatency") final Duration targetLatency,
+                                        @JsonProperty("threads") final Integer threads,
+                                        @JsonProperty("queueCapacity") final Integer queueCapacity) {
+        this.algorithm = algorithm != null ? algorithm : DEFAULT_ALGORITHM;
+        this.minIterations = minIterations != null ? minIterations : DEFAULT_MIN_ITERATIONS;
+        this.calibrate = calibrate != null ? calibrate : true;
+        this.targetLatency = targetLatency != null ? targetLatency : DEFAULT_TARGET_LATENCY;
+        this.threads = threads != null ? threads : Runtime.getRuntime().availableProcessors();
+        this.queueCapacity = queueCapacity != null ? queueCapacity : DEFAULT_QUEUE_CAPACITY;
+    }
+
+    public static PasswordHashingConfiguration defaults() {
+        return new PasswordHashingConfiguration(null, null, null, null, null, null);
+    }
+
+    public String getAlgorithm() {
+        return algorithm;
+    }
+
+    public int getMinIterations() {
+        return minIterations;
+    }
+
+    public boolean isCalibrate() {
+        return calibrate;
+    }
+
+    public Duration getTargetLatency() {
+        return targetLatency;
+    }
+
+    public int getThreads() {
+        return threads;
+    }
+
+    public int getQueueCapacity() {
+        return queueCapacity;
+    }
+}
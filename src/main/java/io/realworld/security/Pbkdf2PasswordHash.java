@@ -0,0 +1,111 @@
+package io.realworld.security;
+
+import io.realworld.exceptions.ApplicationException;
+import io.realworld.exceptions.ErrorCode;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.crypto.SecretKeyFactory;
+import javax.crypto.spec.PBEKeySpec;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.time.Duration;
+import java.util.Base64;
+import java.util.Objects;
+
+/**
+ * PBKDF2 with a 16 byte salt, stored as {@code pbkdf2$<algorithm>$<iterations>$<salt>$<hash>} so the algorithm and
+ * the iteration count can change without invalidating stored passwords.
+ */
+public class Pbkdf2PasswordHash implements PasswordHash {
+    private static final Logger LOG = LoggerFactory.getLogger(Pbkdf2PasswordHash.class);
+    private static final String PREFIX = "pbkdf2$";
+    private static final int SALT_BYTES = 16;
+    private static final int HASH_BITS = 256;
+    private static final int PROBE_ITERATIONS = 10_000;
+    private static final int PROBES = 5;
+
+    private final String algorithm;
+    private final SecureRandom random = new SecureRandom();
+    private volatile int iterations;
+
+    /**
+     * @param algorithm a JCA PBKDF2 algorithm, like {@code PBKDF2WithHmacSHA256}
+     */
+    public Pbkdf2PasswordHash(final String algorithm, final int iterations) {
+        this.algorithm = algorithm;
+        this.iterations = iterations;
+        hash("probe", new byte[SALT_BYTES], 1);
+    }
+
+    public int getIterations() {
+        return iterations;
+    }
+
+    /**
+     * Sets the iterations to the count one hash takes about {@code target} on this machine, and at least
+     * {@code minIterations}.
+     */
+    public int calibrate(final Duration target, final int minIterations) {
+        long fastest = Long.MAX_VALUE;
+        for (int i = 0; i < PROBES; i++) {
+            final long start = System.nanoTime();
+            hash("calibration", new byte[SALT_BYTES], PROBE_ITERATIONS);
+            fastest = Math.min(fastest, System.nanoTime() - start);
+        }
+        final long calibrated = target.toNanos() * PROBE_ITERATIONS / Math.max(fastest, 1);
+        iterations = (int) Math.max(minIterations, Math.min(calibrated, Integer.MAX_VALUE) / 1_000 * 1_000);
+        LOG.info("{} calibrated to {} iterations for {} per hash", algorithm, iterations, target);
+        return iterations;
+    }
+
+    @Override
+    public boolean recognizes(final String encodedPassword) {
+        return encodedPassword.startsWith(PREFIX);
+    }
+
+    @Override
+    public String encode(final String rawPassword) {
+        Objects.requireNonNull(rawPassword, "rawPassword cannot be null");
+
+        final byte[] salt = new byte[SALT_BYTES];
+        random.nextBytes(salt);
+        final int current = iterations;
+        return PREFIX + algorithm + '$' + current + '$' + Base64.getEncoder().encodeToString(salt) + '$'
+                + Base64.getEncoder().encodeToString(hash(rawPassword, salt, current));
+    }
+
+    @Override
+    public boolean matches(final String rawPassword, final String encodedPassword) {
+        Objects.requireNonNull(rawPassword, "rawPassword cannot be null");
+
+        final String[] parts = encodedPassword.split("\\$");
+        if (!algorithm.equals(parts[1])) {
+            return new Pbkdf2PasswordHash(parts[1], Integer.parseInt(parts[2])).matches(rawPassword, encodedPassword);
+        }
+        final byte[] salt = Base64.getDecoder().decode(parts[3]);
+        final byte[] expected = Base64.getDecoder().decode(parts[4]);
+        return MessageDigest.isEqual(hash(rawPassword, salt, Integer.parseInt(parts[2])), expected);
+    }
+
+    /*
+     * Calibration moves the iteration count a little between restarts, only a clearly lower count is worth a rehash.
+     */
+    @Override
+    public boolean isOutdated(final String encodedPassword) {
+        final String[] parts = encodedPassword.split("\\$");
+        return !algorithm.equals(parts[1]) || Integer.parseInt(parts[2]) < iterations / 4 * 3;
+    }
+
+    private byte[] hash(final String rawPassword, final byte[] salt, final int iterations) {
+        final PBEKeySpec spec = new PBEKeySpec(rawPassword.toCharArray(), salt, iterations, HASH_BITS);
+        try {
+            return SecretKeyFactory.getInstance(algorithm).generateSecret(spec).getEncoded();
+        } catch (final GeneralSecurityException e) {
+            throw new ApplicationException(ErrorCode.INTERNAL_ERROR, e);
+        } finally {
+            spec.clearPassword();
+        }
+    }
+}
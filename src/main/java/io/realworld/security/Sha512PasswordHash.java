@@ -0,0 +1,69 @@
+package io.realworld.security;
+
+import io.realworld.exceptions.ApplicationException;
+import io.realworld.exceptions.ErrorCode;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import java.util.Base64;
+import java.util.Objects;
+
+/**
+ * The single salted SHA-512 pass passwords were first stored with, as {@code hash###salt}. Only kept to check those
+ * passwords until they are rehashed on the next login.
+ */
+public class Sha512PasswordHash implements PasswordHash {
+
+    private static final String SEPARATOR = "###";
+
+    private final SecureRandom random = new SecureRandom();
+
+    @Override
+    public boolean recognizes(final String encodedPassword) {
+        return encodedPassword.contains(SEPARATOR);
+    }
+
+    @Override
+    public String encode(final String rawPassword) {
+        Objects.requireNonNull(rawPassword, "rawPassword cannot be null");
+
+        final String salt = randomSalt(64);
+
+        return sha512(rawPassword + salt) + SEPARATOR + salt; //store salt and hash in the same column
+    }
+
+    @Override
+    public boolean matches(final String rawPassword, final String encodedPassword) {
+        Objects.requireNonNull(rawPassword, "rawPassword cannot be null");
+
+        final String[] split = encodedPassword.split(SEPARATOR);
+        final String password = split[0];
+        final String salt = split[1];
+
+        return MessageDigest.isEqual(sha512(rawPassword + salt).getBytes(StandardCharsets.UTF_8),
+                password.getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Override
+    public boolean isOutdated(final String encodedPassword) {
+        return true;
+    }
+
+    private String sha512(final String text) {
+        try {
+            final MessageDigest digest = MessageDigest.getInstance("SHA-512");
+            final byte[] hash = digest.digest(text.getBytes(StandardCharsets.UTF_8));
+            return Base64.getEncoder().encodeToString(hash);
+        } catch (final NoSuchAlgorithmException e) {
+            throw new ApplicationException(ErrorCode.INTERNAL_ERROR, e);
+        }
+    }
+
+    private String randomSalt(final int length) {
+        final byte[] buffer = new byte[length];
+        random.nextBytes(buffer);
+        return Base64.getEncoder().encodeToString(buffer);
+    }
+}
@@ -0,0 +1,148 @@
+package io.realworld.security;
+
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.MetricRegistry;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.time.Clock;
+import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+
+import static com.codahale.metrics.MetricRegistry.name;
+
+/**
+ * Signs the HS256 tokens of {@link JwtTokenService} directly: the header is encoded once, the claims are written by a
+ * shared object mapper and every thread keeps its own initialized {@link Mac}. The tokens are the ones the JJWT
+ * builder would produce and are verified by the JJWT parser.
+ *
+ * <p>
+ * The last token minted for a user is remembered, so {@link #current} can hand it out again as long as it has more
+ * than {@code refreshAhead} left to live.
+ */
+class TokenMinter {
+    private static final String ALGORITHM = "HmacSHA256";
+    private static final Base64.Encoder BASE64 = Base64.getUrlEncoder().withoutPadding();
+    private static final byte[] HEADER = BASE64.encode("{\"alg\":\"HS256\"}".getBytes(StandardCharsets.UTF_8));
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    private final JwtConfiguration jwtConfig;
+    private final Clock clock;
+    private final ThreadLocal<Mac> macs;
+    private final Cache<Subject, Minted> minted;
+    private final Meter signed;
+    private final Meter reused;
+
+    TokenMinter(final JwtConfiguration jwtConfig, final MetricRegistry metrics, final Clock clock) {
+        this.jwtConfig = jwtConfig;
+        this.clock = clock;
+        final SecretKeySpec key = new SecretKeySpec(jwtConfig.getSecret(), ALGORITHM);
+        this.macs = ThreadLocal.withInitial(() -> {
+            try {
+                final Mac mac = Mac.getInstance(ALGORITHM);
+                mac.init(key);
+                return mac;
+            } catch (final GeneralSecurityException e) {
+                throw new IllegalStateException("Cannot sign with " + ALGORITHM, e);
+            }
+        });
+        this.minted = CacheBuilder.newBuilder()
+                .maximumSize(jwtConfig.getCacheMaximumSize())
+                .build();
+        this.signed = metrics.meter(name(JwtTokenService.class, "signed"));
+        this.reused = metrics.meter(name(JwtTokenService.class, "reused"));
+    }
+
+    String mint(final Long userId, final String username, final String profiles) {
+        final long issuedAt = clock.millis();
+        final long expiresAt = issuedAt + jwtConfig.getTokenExpiration().toMillis();
+        final Map<String, Object> claims = new LinkedHashMap<>();
+        claims.put("sub", username);
+        if (profiles != null) {
+            claims.put(JwtTokenService.PROFILES_CLAIM, profiles);
+        }
+        if (userId != null) {
+            claims.put(JwtTokenService.USER_ID_CLAIM, userId);
+        }
+        claims.put("iat", issuedAt / 1000);
+        claims.put("exp", expiresAt / 1000);
+
+        final byte[] payload;
+        try {
+            payload = BASE64.encode(MAPPER.writeValueAsBytes(claims));
+        } catch (final JsonProcessingException e) {
+            throw new IllegalStateException("Cannot serialize the claims of " + username, e);
+        }
+        final byte[] unsigned = new byte[HEADER.length + 1 + payload.length];
+        System.arraycopy(HEADER, 0, unsigned, 0, HEADER.length);
+        unsigned[HEADER.length] = '.';
+        System.arraycopy(payload, 0, unsigned, HEADER.length + 1, payload.length);
+        final String token = new String(unsigned, StandardCharsets.US_ASCII) + '.'
+                + BASE64.encodeToString(macs.get().doFinal(unsigned));
+
+        signed.mark();
+        minted.put(new Subject(userId, username, profiles), new Minted(token, expiresAt / 1000 * 1000));
+        return token;
+    }
+
+    /**
+     * The last token minted for the user if it is valid for longer than {@code refreshAhead}, a new one otherwise.
+     */
+    String current(final Long userId, final String username, final String profiles) {
+        final Minted last = minted.getIfPresent(new Subject(userId, username, profiles));
+        if (last != null && last.expiresAt - clock.millis() > jwtConfig.getRefreshAhead().toMillis()) {
+            reused.mark();
+            return last.token;
+        }
+        return mint(userId, username, profiles);
+    }
+
+    private static class Subject {
+        private final Long userId;
+        private final String username;
+        private final String profiles;
+
+        Subject(final Long userId, final String username, final String profiles) {
+            this.userId = userId;
+            this.username = username;
+            this.profiles = profiles;
+        }
+
+        @Override
+        public boolean equals(final Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Subject)) {
+                return false;
+            }
+            final Subject subject = (Subject) o;
+            return Objects.equals(userId, subject.userId)
+                    && Objects.equals(username, subject.username)
+                    && Objects.equals(profiles, subject.profiles);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(userId, username, profiles);
+        }
+    }
+
+    private static class Minted {
+        private final String token;
+        private final long expiresAt;
+
+        Minted(final String token, final long expiresAt) {
+            this.token = token;
+            this.expiresAt = expiresAt;
+        }
+    }
+}
@@ -3,18 +3,32 @@ package io.realworld.security;
 import java.security.Principal;
 
 public class UserPrincipal implements Principal {
+    private final Long id;
     private final String username;
     private final String profiles;
 
     public UserPrincipal(final String username) {
+        this.id = null;
         this.username = username;
         this.profiles = new String();
     }
     public UserPrincipal(final String username, final String profiles) {
+        this(null, username, profiles);
+    }
+
+    public UserPrincipal(final Long id, final String username, final String profiles) {
+        this.id = id;
         this.username = username;
         this.profiles = profiles;
     }
 
+    /**
+     * User id carried in the token, null for tokens issued before the id claim was introduced.
+     */
+    public Long getId() {
+        return id;
+    }
+
     public String getUsername() {
         return username;
     }
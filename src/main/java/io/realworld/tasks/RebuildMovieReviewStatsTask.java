@@ -0,0 +1,48 @@
+package io.realworld.tasks;
+
+import io.dropwizard.servlets.tasks.Task;
+import io.realworld.db.MovieReviewStatsRepository;
+
+import java.io.PrintWriter;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Rebuilds movie_review_stats from articles, one batch of movies per transaction so no long transaction holds locks
+ * on the table. Each batch locks its movies first, so reviews of those movies are written either before the batch
+ * is counted or after it, by the regular incremental updates; they wait for the batch meanwhile.
+ *
+ * <pre>
+ * curl -X POST 'http://localhost:8081/tasks/rebuild-movie-review-stats?batchSize=1000'
+ * </pre>
+ */
+public class RebuildMovieReviewStatsTask extends Task {
+    private static final int DEFAULT_BATCH_SIZE = 1000;
+
+    private final MovieReviewStatsRepository movieReviewStats;
+
+    public RebuildMovieReviewStatsTask(final MovieReviewStatsRepository movieReviewStats) {
+        super("rebuild-movie-review-stats");
+        this.movieReviewStats = movieReviewStats;
+    }
+
+    @Override
+    public void execute(final Map<String, List<String>> parameters, final PrintWriter output) {
+        final int batchSize = batchSize(parameters);
+        long after = 0;
+        long movies = 0;
+        Long upTo;
+        while ((upTo = movieReviewStats.findBatchEnd(after, batchSize)) != null) {
+            movies += movieReviewStats.rebuild(after, upTo);
+            after = upTo;
+            output.println("Rebuilt review stats of " + movies + " movies, up to movie " + upTo);
+            output.flush();
+        }
+        output.println("Done, rebuilt review stats of " + movies + " movies");
+    }
+
+    private int batchSize(final Map<String, List<String>> parameters) {
+        final List<String> values = parameters.get("batchSize");
+        return values == null || values.isEmpty() ? DEFAULT_BATCH_SIZE : Integer.parseInt(values.get(0));
+    }
+}
@@ -0,0 +1,31 @@
+package io.realworld.tasks;
+
+import io.dropwizard.servlets.tasks.Task;
+import io.realworld.core.TagPopularity;
+
+import java.io.PrintWriter;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Reloads the in-memory tag counts from articles_tags, e.g. after tags were changed directly in the database.
+ *
+ * <pre>
+ * curl -X POST 'http://localhost:8081/tasks/reload-tag-popularity'
+ * </pre>
+ */
+public class ReloadTagPopularityTask extends Task {
+
+    private final TagPopularity tagPopularity;
+
+    public ReloadTagPopularityTask(final TagPopularity tagPopularity) {
+        super("reload-tag-popularity");
+        this.tagPopularity = tagPopularity;
+    }
+
+    @Override
+    public void execute(final Map<String, List<String>> parameters, final PrintWriter output) {
+        tagPopularity.reload();
+        output.println("Done, reloaded tag popularity");
+    }
+}
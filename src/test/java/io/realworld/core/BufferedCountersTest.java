@@ -0,0 +1,75 @@
+package io.realworld.core;
+
+import com.codahale.metrics.MetricRegistry;
+import io.realworld.db.CounterDelta;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+
+public class BufferedCountersTest {
+
+    private final List<List<CounterDelta>> written = new ArrayList<>();
+
+    @Test
+    void deltasOfTheSameIdAreWrittenAsOneRow() {
+        //given
+        final BufferedCounters counters = counters(written::add);
+        counters.add(7L, 1);
+        counters.add(7L, 1);
+        counters.add(3L, 1);
+        counters.add(3L, -1);
+        counters.add(5L, -1);
+
+        //when
+        counters.flush();
+
+        //then
+        assertThat(written).hasSize(1);
+        assertThat(written.get(0))
+                .extracting(CounterDelta::getId, CounterDelta::getDelta)
+                .containsExactly(tuple(5L, -1L), tuple(7L, 2L));
+        assertThat(counters.pending(7L)).isZero();
+    }
+
+    @Test
+    void failedFlushKeepsItsDeltasForTheNextOne() {
+        //given
+        final List<CounterDelta> attempted = new ArrayList<>();
+        final BufferedCounters failing = counters(deltas -> {
+            attempted.addAll(deltas);
+            throw new IllegalStateException("database down");
+        });
+        failing.add(7L, 2);
+
+        //when
+        failing.flush();
+        failing.add(7L, 1);
+
+        //then
+        assertThat(attempted).extracting(CounterDelta::getDelta).containsExactly(2L);
+        assertThat(failing.pending(7L)).isEqualTo(3L);
+    }
+
+    @Test
+    void stopFlushesWhatIsLeft() {
+        //given
+        final BufferedCounters counters = counters(written::add);
+        counters.add(1L, 1);
+
+        //when
+        counters.stop();
+
+        //then
+        assertThat(written).hasSize(1);
+    }
+
+    private BufferedCounters counters(final Consumer<List<CounterDelta>> writer) {
+        return new BufferedCounters("test", writer, null, Duration.ofSeconds(1), new MetricRegistry());
+    }
+}
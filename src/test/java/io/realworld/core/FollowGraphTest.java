@@ -0,0 +1,72 @@
+package io.realworld.core;
+
+import com.codahale.metrics.MetricRegistry;
+import io.realworld.db.FollowEdge;
+import io.realworld.db.UserRepository;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class FollowGraphTest {
+
+    private final UserRepository userRepository = mock(UserRepository.class);
+
+    @Test
+    void loadedFollowsAreAnsweredFromMemory() {
+        //given
+        when(userRepository.findFollowEdges(anyLong(), anyLong(), anyInt()))
+                .thenReturn(List.of(new FollowEdge(1L, 5L), new FollowEdge(1L, 9L), new FollowEdge(2L, 5L)));
+        final FollowGraph graph = new FollowGraph(userRepository, 10, new MetricRegistry());
+
+        //when
+        graph.start();
+
+        //then
+        assertThat(graph.isAvailable()).isTrue();
+        assertThat(graph.isFollowing(9L, 1L)).isTrue();
+        assertThat(graph.isFollowing(9L, 2L)).isFalse();
+        assertThat(graph.followedAmong(1L, List.of(5L, 7L, 9L))).isEqualTo(Set.of(5L, 9L));
+        assertThat(graph.estimatedBytes()).isGreaterThan(3 * 8);
+    }
+
+    @Test
+    void followsAndUnfollowsAreApplied() {
+        //given
+        when(userRepository.findFollowEdges(anyLong(), anyLong(), anyInt())).thenReturn(List.of(new FollowEdge(1L, 5L)));
+        final FollowGraph graph = new FollowGraph(userRepository, 10, new MetricRegistry());
+        graph.start();
+
+        //when
+        graph.follow(3L, 1L);
+        graph.follow(7L, 1L);
+        graph.unfollow(5L, 1L);
+        graph.follow(1L, 2L);
+
+        //then
+        assertThat(graph.followedAmong(1L, List.of(3L, 5L, 7L))).isEqualTo(Set.of(3L, 7L));
+        assertThat(graph.isFollowing(1L, 2L)).isTrue();
+    }
+
+    @Test
+    void graphGivesUpPastItsBound() {
+        //given
+        when(userRepository.findFollowEdges(anyLong(), anyLong(), anyInt()))
+                .thenReturn(List.of(new FollowEdge(1L, 5L), new FollowEdge(2L, 5L)));
+        final FollowGraph graph = new FollowGraph(userRepository, 2, new MetricRegistry());
+        graph.start();
+
+        //when
+        graph.follow(6L, 1L);
+
+        //then
+        assertThat(graph.isAvailable()).isFalse();
+        assertThat(graph.estimatedBytes()).isZero();
+    }
+}
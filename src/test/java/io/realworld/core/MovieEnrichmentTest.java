@@ -0,0 +1,108 @@
+package io.realworld.core;
+
+import com.codahale.metrics.MetricRegistry;
+import io.realworld.api.response.Movie;
+import io.realworld.db.ActorRepository;
+import io.realworld.db.MoviesRepository;
+import io.realworld.db.NameId;
+import io.realworld.db.NameSource;
+import io.realworld.db.mapper.MovieActorsMapper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class MovieEnrichmentTest {
+
+    private final ActorRepository actorRepository = mock(ActorRepository.class);
+    private final MoviesRepository moviesRepository = mock(MoviesRepository.class);
+    private final ExecutorService executor = Executors.newFixedThreadPool(2);
+    private final MetricRegistry metrics = new MetricRegistry();
+    private final NameSource actorNames = mock(NameSource.class);
+    private final MovieEnrichment enrichment = new MovieEnrichment(actorRepository,
+            new NameDictionary("actors", actorNames, metrics), moviesRepository, executor,
+            Duration.ofMillis(100), metrics);
+
+    @AfterEach
+    void shutdown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    void slowStepIsOmittedAndTheOthersAreKept() {
+        //given
+        final Movie movie = movie(1L);
+        final MovieActorsMapper.MovieIdActor actor = new MovieActorsMapper.MovieIdActor();
+        actor.setMovieId(1L);
+        actor.setActorId(7L);
+        when(actorRepository.findMovieActorIds(anyCollection())).thenReturn(List.of(actor));
+        when(actorNames.findByIds(anyCollection())).thenReturn(List.of(new NameId(7L, "actor1")));
+        when(moviesRepository.findFavouriteMovies(eq(42L), any())).thenAnswer(invocation -> {
+            Thread.sleep(1_000);
+            return Set.of(1L);
+        });
+
+        //when
+        final boolean complete = enrichment.enrich(List.of(movie), 42L);
+
+        //then
+        assertThat(complete).isFalse();
+        assertThat(movie.getActorList()).containsExactly("actor1");
+        assertThat(movie.getLiked()).isNull();
+        assertThat(metrics.meter(MetricRegistry.name(MovieEnrichment.class, "fallbacks")).getCount()).isEqualTo(1);
+    }
+
+    @Test
+    void anonymousViewerSkipsLikes() {
+        //given
+        final Movie movie = movie(1L);
+        when(actorRepository.findMovieActorIds(anyCollection())).thenReturn(List.of());
+
+        //when
+        final boolean complete = enrichment.enrich(List.of(movie), null);
+
+        //then
+        assertThat(complete).isTrue();
+        assertThat(movie.getActorList()).isNull();
+        assertThat(movie.getLiked()).isNull();
+        assertThat(metrics.meter(MetricRegistry.name(MovieEnrichment.class, "fallbacks")).getCount()).isZero();
+    }
+
+    @Test
+    void stepsRejectedByAFullExecutorAreOmitted() {
+        //given
+        final Movie movie = movie(1L);
+        final ExecutorService full = Executors.newSingleThreadExecutor();
+        full.shutdown();
+        final MovieEnrichment rejecting = new MovieEnrichment(actorRepository,
+                new NameDictionary("actors", actorNames, metrics), moviesRepository, full,
+                Duration.ofMillis(100), metrics);
+
+        //when
+        final boolean complete = rejecting.enrich(List.of(movie), 42L);
+
+        //then
+        assertThat(complete).isFalse();
+        assertThat(movie.getActorList()).isNull();
+        assertThat(movie.getLiked()).isNull();
+        assertThat(metrics.meter(MetricRegistry.name(MovieEnrichment.class, "rejections")).getCount()).isEqualTo(2);
+        assertThat(metrics.meter(MetricRegistry.name(MovieEnrichment.class, "fallbacks")).getCount()).isEqualTo(2);
+    }
+
+    private Movie movie(final Long id) {
+        final Movie movie = new Movie();
+        movie.setId(id);
+        return movie;
+    }
+}
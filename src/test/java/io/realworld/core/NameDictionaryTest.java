@@ -0,0 +1,77 @@
+package io.realworld.core;
+
+import com.codahale.metrics.MetricRegistry;
+import io.realworld.db.NameId;
+import io.realworld.db.NameSource;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class NameDictionaryTest {
+
+    private final NameSource source = mock(NameSource.class);
+    private final NameDictionary dictionary = new NameDictionary("tags", source, new MetricRegistry());
+
+    @Test
+    void loadedNamesResolveBothWaysWithoutTheSource() {
+        //given
+        when(source.findAll()).thenReturn(List.of(new NameId(1L, "drama"), new NameId(2_000_000L, "noir")));
+        dictionary.start();
+
+        //when
+        final Map<String, Long> ids = dictionary.idsOf(Set.of("drama", "noir"));
+        final Map<Long, String> names = dictionary.namesOf(Set.of(1L, 2_000_000L));
+
+        //then
+        assertThat(ids).containsExactlyInAnyOrderEntriesOf(Map.of("drama", 1L, "noir", 2_000_000L));
+        assertThat(names).containsExactlyInAnyOrderEntriesOf(Map.of(1L, "drama", 2_000_000L, "noir"));
+        verify(source, never()).findByNames(anyCollection());
+        verify(source, never()).findByIds(anyCollection());
+    }
+
+    @Test
+    void missingNamesAreInsertedOnceAndRemembered() {
+        //given
+        when(source.findAll()).thenReturn(List.of(new NameId(1L, "drama")));
+        when(source.findByNames(anyCollection())).thenReturn(List.of());
+        when(source.insert(anyCollection())).thenReturn(List.of(new NameId(5L, "comedy")));
+        dictionary.start();
+
+        //when
+        final Map<String, Long> first = dictionary.idsOf(Set.of("drama", "comedy"));
+        final Map<String, Long> second = dictionary.idsOf(Set.of("comedy"));
+
+        //then
+        assertThat(first).containsExactlyInAnyOrderEntriesOf(Map.of("drama", 1L, "comedy", 5L));
+        assertThat(second).containsExactlyEntriesOf(Map.of("comedy", 5L));
+        assertThat(dictionary.nameOf(5L)).isEqualTo("comedy");
+        verify(source, times(1)).insert(anyCollection());
+    }
+
+    @Test
+    void idsInsertedElsewhereAreLookedUp() {
+        //given
+        when(source.findAll()).thenReturn(List.of());
+        when(source.findByIds(anyCollection())).thenReturn(List.of(new NameId(3L, "western")));
+        dictionary.start();
+
+        //when
+        final Map<Long, Set<String>> grouped = dictionary.group(List.of(new long[]{10L, 3L}, new long[]{11L, 4L}),
+                row -> row[0], row -> row[1]);
+
+        //then
+        assertThat(grouped).containsExactlyEntriesOf(Map.of(10L, Set.of("western")));
+        assertThat(dictionary.idsOf(Set.of("western"))).containsExactlyEntriesOf(Map.of("western", 3L));
+        verify(source, never()).insert(anyCollection());
+    }
+}
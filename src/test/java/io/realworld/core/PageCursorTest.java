@@ -0,0 +1,42 @@
+package io.realworld.core;
+
+import io.realworld.exceptions.ApplicationException;
+import io.realworld.exceptions.ErrorCode;
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class PageCursorTest {
+
+    @Test
+    void cursorSurvivesEncodeDecodeRoundTrip() {
+        //given
+        final Instant createdAt = Instant.parse("2021-06-01T10:15:30.123456Z");
+
+        //when
+        final PageCursor decoded = PageCursor.decode(new PageCursor(createdAt, 42L).encode());
+
+        //then
+        assertThat(decoded.getCreatedAt()).isEqualTo(createdAt);
+        assertThat(decoded.getId()).isEqualTo(42L);
+    }
+
+    @Test
+    void malformedCursorIsRejected() {
+        assertThatThrownBy(() -> PageCursor.decode("not a cursor"))
+                .isInstanceOf(ApplicationException.class)
+                .extracting(e -> ((ApplicationException) e).getErrorCode())
+                .isEqualTo(ErrorCode.INVALID_CURSOR);
+    }
+
+    @Test
+    void cursorCombinedWithOffsetIsRejected() {
+        assertThatThrownBy(() -> PageCursor.checkNotCombined(new PageCursor(Instant.now(), 42L).encode(), 0))
+                .isInstanceOf(ApplicationException.class)
+                .extracting(e -> ((ApplicationException) e).getErrorCode())
+                .isEqualTo(ErrorCode.INVALID_CURSOR);
+    }
+}
@@ -0,0 +1,71 @@
+package io.realworld.core;
+
+import com.codahale.metrics.MetricRegistry;
+import io.realworld.db.UserFeedRepository;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Set;
+
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class UserFeedTest {
+
+    private final UserFeedRepository feeds = mock(UserFeedRepository.class);
+    private final UserFeedRepository trimRepository = mock(UserFeedRepository.class);
+    private final UserFeed userFeed = new UserFeed(feeds, trimRepository, null,
+            new FeedConfiguration(100, 2, 50, Duration.ofMinutes(1)), new MetricRegistry());
+
+    @Test
+    void reviewIsFannedOutInFollowerBatchesAndTheReachedFeedsAreTrimmed() {
+        //given
+        when(feeds.countFollowers(42L)).thenReturn(3);
+        when(feeds.findFollowerIds(42L, 0L, 2)).thenReturn(List.of(10L, 11L));
+        when(feeds.findFollowerIds(42L, 11L, 2)).thenReturn(List.of(12L));
+        when(feeds.fanOut(7L, List.of(10L, 11L))).thenReturn(0);
+
+        //when
+        userFeed.reviewCreated(7L, 42L);
+        userFeed.trim();
+
+        //then
+        verify(feeds).fanOut(7L, List.of(12L));
+        verify(trimRepository).trim(argThat(ids -> Set.copyOf(ids).equals(Set.of(10L, 11L, 12L))), eq(50));
+    }
+
+    @Test
+    void celebrityReviewIsNotFannedOut() {
+        //given
+        when(feeds.countFollowers(42L)).thenReturn(100);
+
+        //when
+        userFeed.reviewCreated(7L, 42L);
+        userFeed.trim();
+
+        //then
+        verify(feeds).addCelebrity(42L);
+        verify(feeds, never()).fanOut(anyLong(), anyCollection());
+        verify(trimRepository, never()).trim(anyCollection(), anyInt());
+    }
+
+    @Test
+    void followingACelebrityDoesNotBackfill() {
+        //given
+        when(feeds.isCelebrity(42L)).thenReturn(true);
+
+        //when
+        userFeed.followed(43L, 42L);
+
+        //then
+        verify(feeds, never()).backfill(anyLong(), anyLong(), anyInt());
+    }
+}
@@ -0,0 +1,100 @@
+package io.realworld.db;
+
+import com.codahale.metrics.MetricRegistry;
+import io.realworld.core.BufferedCounters;
+import org.jdbi.v3.core.Jdbi;
+import org.jdbi.v3.sqlobject.SqlObjectPlugin;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfEnvironmentVariable;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Many users liking the same movie at once, each of them several times: every like must land exactly once in
+ * favorite_movies and in LIKES_COUNT, without a single constraint violation.
+ */
+@EnabledIfEnvironmentVariable(named = TestDatabase.URL_VARIABLE, matches = ".+")
+public class FavoriteWritesConcurrencyTest {
+
+    private static final int USERS = 64;
+    private static final int LIKES_PER_USER = 5;
+
+    private static Jdbi jdbi;
+
+    @BeforeAll
+    static void migrate() throws Exception {
+        jdbi = TestDatabase.migrated();
+        jdbi.installPlugin(new SqlObjectPlugin());
+    }
+
+    @Test
+    void concurrentLikesOfTheSameMovieAreCountedOnce() throws Exception {
+        //given
+        final String run = "likes" + System.nanoTime();
+        final long movieId = jdbi.withHandle(handle -> handle.createQuery(
+                "INSERT INTO movies (TITLE, DESCRIPTION, BODY, CREATED_AT) VALUES (:title, 'd', 'b', now()) RETURNING ID")
+                .bind("title", run)
+                .mapTo(Long.class)
+                .one());
+        final List<Long> userIds = jdbi.withHandle(handle -> handle.createQuery(
+                "INSERT INTO users (USERNAME, EMAIL, PASSWORD, CREATED_AT) " +
+                        "SELECT :run || i, :run || i || '@example.com', 'x###y', now() " +
+                        "FROM generate_series(1, :users) i RETURNING ID")
+                .bind("run", run)
+                .bind("users", USERS)
+                .mapTo(Long.class)
+                .list());
+        final MoviesRepository moviesRepository = jdbi.onDemand(MoviesRepository.class);
+        final BufferedCounters likesCounts = new BufferedCounters("likes", moviesRepository::applyLikesDeltas, null,
+                Duration.ofSeconds(1), new MetricRegistry());
+
+        //when
+        final ExecutorService executor = Executors.newFixedThreadPool(32);
+        final CountDownLatch start = new CountDownLatch(1);
+        final List<Future<Boolean>> likes = new ArrayList<>();
+        try {
+            for (int i = 0; i < LIKES_PER_USER; i++) {
+                for (final Long userId : userIds) {
+                    likes.add(executor.submit((Callable<Boolean>) () -> {
+                        start.await();
+                        final boolean liked = moviesRepository.likeMovie(userId, movieId);
+                        if (liked) {
+                            likesCounts.add(movieId, 1);
+                        }
+                        return liked;
+                    }));
+                }
+            }
+            start.countDown();
+            int inserted = 0;
+            for (final Future<Boolean> like : likes) {
+                inserted += like.get() ? 1 : 0;
+            }
+            likesCounts.flush();
+
+            //then
+            assertThat(inserted).isEqualTo(USERS);
+            assertThat(jdbi.withHandle(handle -> handle.createQuery(
+                    "SELECT count(*) FROM favorite_movies WHERE MOVIE_ID = :movieId")
+                    .bind("movieId", movieId)
+                    .mapTo(Integer.class)
+                    .one())).isEqualTo(USERS);
+            assertThat(jdbi.withHandle(handle -> handle.createQuery("SELECT LIKES_COUNT FROM movies WHERE ID = :movieId")
+                    .bind("movieId", movieId)
+                    .mapTo(Long.class)
+                    .one())).isEqualTo(USERS);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,97 @@
+package io.realworld.db;
+
+import com.codahale.metrics.MetricRegistry;
+import io.realworld.core.FollowGraph;
+import org.jdbi.v3.core.Jdbi;
+import org.jdbi.v3.sqlobject.SqlObjectPlugin;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfEnvironmentVariable;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Follow checks against one million follows, answered by the {@link FollowGraph} and by the followers table: both
+ * must agree, and the timings of each are printed.
+ */
+@EnabledIfEnvironmentVariable(named = TestDatabase.URL_VARIABLE, matches = ".+")
+public class FollowGraphBenchmarkTest {
+
+    private static final int USERS = 10_000;
+    private static final int FOLLOWED_PER_USER = 100;
+    private static final int CHECKS = 2_000;
+    private static final int AUTHORS_PER_PAGE = 20;
+
+    private static Jdbi jdbi;
+
+    @BeforeAll
+    static void seed() throws Exception {
+        jdbi = TestDatabase.migrated();
+        jdbi.installPlugin(new SqlObjectPlugin());
+        TestDatabase.seed(jdbi);
+        jdbi.useHandle(handle -> {
+            handle.execute("TRUNCATE followers");
+            handle.execute("INSERT INTO followers (USER_ID, FOLLOWER_ID, CREATED_AT) " +
+                    "SELECT 1 + (f + k * 97) % " + USERS + ", f, now() " +
+                    "FROM generate_series(1, " + USERS + ") f, generate_series(1, " + FOLLOWED_PER_USER + ") k");
+            handle.execute("ANALYZE followers");
+        });
+    }
+
+    @Test
+    void graphAgreesWithTheFollowersTable() {
+        //given
+        final UserRepository userRepository = jdbi.onDemand(UserRepository.class);
+        final MetricRegistry metrics = new MetricRegistry();
+        final FollowGraph graph = new FollowGraph(userRepository, 2L * USERS * FOLLOWED_PER_USER, metrics);
+        final long loadStart = System.nanoTime();
+        graph.start();
+        final long loadNanos = System.nanoTime() - loadStart;
+        final Random random = new Random(42);
+        final List<long[]> checks = new ArrayList<>();
+        for (int i = 0; i < CHECKS; i++) {
+            checks.add(new long[]{1 + random.nextInt(USERS), 1 + random.nextInt(USERS)});
+        }
+        final List<List<Long>> pages = new ArrayList<>();
+        for (int i = 0; i < CHECKS; i++) {
+            final List<Long> authors = new ArrayList<>();
+            for (int j = 0; j < AUTHORS_PER_PAGE; j++) {
+                authors.add((long) 1 + random.nextInt(USERS));
+            }
+            pages.add(authors);
+        }
+
+        //when
+        final long sqlStart = System.nanoTime();
+        final List<Boolean> sqlFollowing = new ArrayList<>();
+        final List<Set<Long>> sqlFollowed = new ArrayList<>();
+        for (int i = 0; i < CHECKS; i++) {
+            sqlFollowing.add(userRepository.isFollowing(checks.get(i)[0], checks.get(i)[1]));
+            sqlFollowed.add(userRepository.findFollowedAuthorIds(pages.get(i), checks.get(i)[1]));
+        }
+        final long sqlNanos = System.nanoTime() - sqlStart;
+        final long graphStart = System.nanoTime();
+        final List<Boolean> graphFollowing = new ArrayList<>();
+        final List<Set<Long>> graphFollowed = new ArrayList<>();
+        for (int i = 0; i < CHECKS; i++) {
+            graphFollowing.add(graph.isFollowing(checks.get(i)[0], checks.get(i)[1]));
+            graphFollowed.add(graph.followedAmong(checks.get(i)[1], pages.get(i)));
+        }
+        final long graphNanos = System.nanoTime() - graphStart;
+
+        //then
+        System.out.printf("%d follows loaded in %d ms, about %d MB; %d checks of one user and of %d authors: " +
+                        "followers table %d us each, graph %d us each%n",
+                metrics.getGauges().get(MetricRegistry.name(FollowGraph.class, "edges")).getValue(),
+                loadNanos / 1_000_000, graph.estimatedBytes() / (1024 * 1024), CHECKS, AUTHORS_PER_PAGE,
+                sqlNanos / CHECKS / 1_000, graphNanos / CHECKS / 1_000);
+        assertThat(graph.isAvailable()).isTrue();
+        assertThat(graphFollowing).isEqualTo(sqlFollowing);
+        assertThat(graphFollowed).isEqualTo(sqlFollowed);
+    }
+}
@@ -0,0 +1,48 @@
+package io.realworld.db;
+
+import com.codahale.metrics.MetricRegistry;
+import com.zaxxer.hikari.HikariDataSource;
+import io.dropwizard.db.DataSourceFactory;
+import io.dropwizard.db.ManagedDataSource;
+import io.dropwizard.util.Duration;
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class HikariDataSourceFactoryTest {
+
+    @Test
+    void poolIsConfiguredFromTheDataSourceBlock() {
+        //given
+        final DataSourceFactory dataSource = new DataSourceFactory();
+        dataSource.setDriverClass("org.postgresql.Driver");
+        dataSource.setUrl("jdbc:postgresql://localhost:5432/postgres");
+        dataSource.setUser("root");
+        dataSource.setPassword("secret");
+        dataSource.setProperties(Map.of("charSet", "UTF-8"));
+        dataSource.setMinSize(4);
+        dataSource.setMaxSize(32);
+        dataSource.setMaxWaitForConnection(Duration.seconds(1));
+        final ConnectionPoolConfiguration config = new ConnectionPoolConfiguration(
+                ConnectionPoolConfiguration.Implementation.HIKARI, java.time.Duration.ofSeconds(10), 128);
+
+        //when
+        final ManagedDataSource managed = new HikariDataSourceFactory(dataSource, config)
+                .build(new MetricRegistry(), "database");
+
+        //then
+        final HikariDataSource pool = (HikariDataSource) managed;
+        assertThat(pool.getPoolName()).isEqualTo("database");
+        assertThat(pool.getJdbcUrl()).isEqualTo("jdbc:postgresql://localhost:5432/postgres");
+        assertThat(pool.getMaximumPoolSize()).isEqualTo(32);
+        assertThat(pool.getMinimumIdle()).isEqualTo(4);
+        assertThat(pool.getConnectionTimeout()).isEqualTo(1000);
+        assertThat(pool.getLeakDetectionThreshold()).isEqualTo(10_000);
+        assertThat(pool.getDataSourceProperties())
+                .containsEntry("charSet", "UTF-8")
+                .containsEntry("preparedStatementCacheQueries", "128");
+        assertThat(pool.isRunning()).isFalse();
+    }
+}
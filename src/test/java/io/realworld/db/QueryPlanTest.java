@@ -0,0 +1,289 @@
+package io.realworld.db;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.jdbi.v3.core.Handle;
+import org.jdbi.v3.core.Jdbi;
+import org.jdbi.v3.core.statement.Query;
+import org.jdbi.v3.sqlobject.statement.SqlQuery;
+import org.jdbi.v3.sqlobject.statement.SqlUpdate;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfEnvironmentVariable;
+
+import java.lang.reflect.Method;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.UnaryOperator;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Plan regression suite: runs EXPLAIN on the SQL declared on the repositories, rendered with the query builders,
+ * against a seeded database. See {@link TestDatabase} for how to enable it.
+ */
+@EnabledIfEnvironmentVariable(named = TestDatabase.URL_VARIABLE, matches = ".+")
+public class QueryPlanTest {
+
+    /*
+     * Tables small enough that a sequential scan is the right plan even with an index in place.
+     */
+    private static final Set<String> SEQ_SCAN_ALLOWED = Set.of("tags");
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    private static Jdbi jdbi;
+    private static Handle handle;
+
+    @BeforeAll
+    static void seed() throws Exception {
+        jdbi = TestDatabase.migrated();
+        TestDatabase.seed(jdbi);
+        handle = jdbi.open();
+    }
+
+    @AfterAll
+    static void close() {
+        if (handle != null) {
+            handle.close();
+        }
+    }
+
+    @Test
+    @DisplayName("Review list filters are semi-joins that never need a distinct")
+    void reviewFiltersDoNotMultiplyRows() throws Exception {
+        final ReviewQuery query = ReviewQuery.reviews().tag("tag7").favoritedBy(42L);
+
+        final String plan = explain(findReviewsSql(), query, Map.of("viewerId", 42L, "offset", 0, "limit", 20));
+
+        assertThat(plan).doesNotContain("\"Node Type\": \"Unique\"");
+        assertThat(plan).contains("\"Index Name\": \"favorites_ids_unq\"");
+    }
+
+    @Test
+    @DisplayName("Author filter resolves the author through the username index")
+    void authorFilterUsesUsernameIndex() throws Exception {
+        final ReviewQuery query = ReviewQuery.reviews().author("user42");
+
+        assertThat(explain(findReviewsSql(), query, Map.of("viewerId", 42L, "offset", 0, "limit", 20)))
+                .contains("\"Index Name\": \"users_username_unq\"");
+        assertThat(explain(countReviewsSql(), query, Map.of()))
+                .contains("\"Index Name\": \"users_username_unq\"");
+    }
+
+    @Test
+    @DisplayName("Unfiltered counts do not join anything")
+    void unfilteredCountsScanSingleTable() throws Exception {
+        assertThat(explain(countReviewsSql(), ReviewQuery.reviews(), Map.of())).doesNotContain("Join");
+        assertThat(explain(countMoviesSql(), MovieQuery.movies(), Map.of())).doesNotContain("Join");
+    }
+
+    @Test
+    @DisplayName("Movies favorited by a user are found through the favorites index")
+    void movieFavoriteFilterUsesIndex() throws Exception {
+        final MovieQuery query = MovieQuery.movies().favoritedBy(42L);
+
+        final String plan = explain(findMoviesSql(), query, Map.of("offset", 0, "limit", 20));
+
+        assertThat(plan).doesNotContain("\"Node Type\": \"Unique\"");
+        assertThat(plan).contains("\"Index Name\": \"favorite_movies_ids_unq\"");
+    }
+
+    @Test
+    @DisplayName("Repository queries on a seeded database never fall back to sequential scans")
+    void repositoryQueriesUseIndexes() throws Exception {
+        final List<String> failures = new ArrayList<>();
+        for (final Case c : cases()) {
+            final String plan = c.binder.apply(handle.createQuery("EXPLAIN (FORMAT JSON) " + c.sql))
+                    .mapTo(String.class)
+                    .one();
+            final List<String> scanned = new ArrayList<>();
+            collectSeqScans(MAPPER.readTree(plan).get(0).get("Plan"), scanned);
+            if (!scanned.isEmpty()) {
+                failures.add(c.name + " scans " + scanned);
+            }
+        }
+        assertThat(failures).isEmpty();
+    }
+
+    private static List<Case> cases() throws NoSuchMethodException {
+        final List<Case> cases = new ArrayList<>();
+        final List<Long> ids = List.of(1L, 42L, 4242L);
+
+        cases.add(new Case("ReviewRepository.findReview", sqlOf(ReviewRepository.class, "findReview", String.class),
+                q -> q.bind("slug", "review-42")));
+        cases.add(new Case("ReviewRepository.findReviewForUpdate",
+                sqlOf(ReviewRepository.class, "findReviewForUpdate", String.class), q -> q.bind("slug", "review-42")));
+        cases.add(new Case("ReviewRepository.findReviewById", sqlOf(ReviewRepository.class, "findReviewById", long.class),
+                q -> q.bind("articleId", 42L)));
+        for (final ReviewQuery query : List.of(ReviewQuery.reviews(),
+                ReviewQuery.reviews().movie(42L),
+                ReviewQuery.reviews().author("user42"),
+                ReviewQuery.reviews().tag("tag7"),
+                ReviewQuery.reviews().favoritedBy(42L),
+                ReviewQuery.reviews().feedOf(42L, 20),
+                ReviewQuery.reviews().movie(42L).after(LocalDateTime.now().minusDays(7), 10_000L))) {
+            cases.add(new Case("ReviewRepository.findReviews " + query.bindings().keySet(), findReviewsSql(),
+                    q -> q.define("where", query.where()).bindMap(query.bindings())
+                            .bind("viewerId", 42L).bind("offset", 0).bind("limit", 20)));
+        }
+        for (final ReviewQuery query : List.of(ReviewQuery.reviews().movie(42L),
+                ReviewQuery.reviews().author("user42"),
+                ReviewQuery.reviews().favoritedBy(42L),
+                ReviewQuery.reviews().feedOf(42L, null))) {
+            cases.add(new Case("ReviewRepository.countReviews " + query.bindings().keySet(), countReviewsSql(),
+                    q -> q.define("where", query.where()).bindMap(query.bindings())));
+        }
+        cases.add(new Case("ReviewRepository.deleteReview", sqlOf(ReviewRepository.class, "deleteReview", String.class),
+                q -> q.bind("slug", "review-42")));
+        cases.add(new Case("ReviewRepository.removeFromFavorites",
+                sqlOf(ReviewRepository.class, "removeFromFavorites", Long.class, Long.class),
+                q -> q.bind("userId", 42L).bind("articleId", 42L)));
+        cases.add(new Case("ReviewRepository.findFavoriteReviews",
+                sqlOf(ReviewRepository.class, "findFavoriteReviews", Long.class, Set.class),
+                q -> q.bind("userId", 42L).bindList("articleIds", ids)));
+
+        cases.add(new Case("MovieReviewStatsRepository.reviewAdded",
+                sqlOf(MovieReviewStatsRepository.class, "reviewAdded", long.class),
+                q -> q.bind("articleId", 42L)));
+        cases.add(new Case("MovieReviewStatsRepository.reviewRemoved",
+                sqlOf(MovieReviewStatsRepository.class, "reviewRemoved", String.class),
+                q -> q.bind("slug", "review-42")));
+        cases.add(new Case("MovieReviewStatsRepository.findReviewsCount",
+                sqlOf(MovieReviewStatsRepository.class, "findReviewsCount", long.class),
+                q -> q.bind("movieId", 42L)));
+
+        cases.add(new Case("UserFeedRepository.findFollowerIds",
+                sqlOf(UserFeedRepository.class, "findFollowerIds", long.class, long.class, int.class),
+                q -> q.bind("authorId", 42L).bind("after", 0L).bind("limit", 1000)));
+        cases.add(new Case("UserFeedRepository.fanOut", sqlOf(UserFeedRepository.class, "fanOut", long.class, Collection.class),
+                q -> q.bind("articleId", 42L).bindList("followerIds", ids)));
+        cases.add(new Case("UserFeedRepository.backfill",
+                sqlOf(UserFeedRepository.class, "backfill", long.class, long.class, int.class),
+                q -> q.bind("followerId", 43L).bind("authorId", 42L).bind("limit", 1000)));
+        cases.add(new Case("UserFeedRepository.removeAuthor",
+                sqlOf(UserFeedRepository.class, "removeAuthor", long.class, long.class),
+                q -> q.bind("followerId", 43L).bind("authorId", 42L)));
+        cases.add(new Case("UserFeedRepository.trim", sqlOf(UserFeedRepository.class, "trim", Collection.class, int.class),
+                q -> q.bindList("userIds", ids).bind("maxEntries", 5)));
+
+        cases.add(new Case("CommentRepository.findCommentById", sqlOf(CommentRepository.class, "findCommentById", long.class),
+                q -> q.bind("commentId", 42L)));
+        cases.add(new Case("CommentRepository.findArticleComments",
+                sqlOf(CommentRepository.class, "findArticleComments", String.class),
+                q -> q.bind("slug", "review-42")));
+        cases.add(new Case("CommentRepository.deleteArticleComments",
+                sqlOf(CommentRepository.class, "deleteArticleComments", String.class),
+                q -> q.bind("slug", "review-42")));
+
+        for (final MovieQuery query : List.of(MovieQuery.movies(),
+                MovieQuery.movies().yearReleased("1984"),
+                MovieQuery.movies().actor("actor42"),
+                MovieQuery.movies().favoritedBy(42L))) {
+            cases.add(new Case("MoviesRepository.findMovies " + query.bindings().keySet(), findMoviesSql(),
+                    q -> q.define("where", query.where()).bindMap(query.bindings()).bind("offset", 0).bind("limit", 20)));
+        }
+        cases.add(new Case("MoviesRepository.findFavouriteMovies",
+                sqlOf(MoviesRepository.class, "findFavouriteMovies", Long.class, Set.class),
+                q -> q.bind("userId", 42L).bindList("movieIds", ids)));
+        cases.add(new Case("MoviesRepository.unLikeMovie", sqlOf(MoviesRepository.class, "unLikeMovie", Long.class, Long.class),
+                q -> q.bind("userId", 42L).bind("movieId", 42L)));
+
+        cases.add(new Case("TagRepository.deleteArticleTags",
+                sqlOf(TagRepository.class, "deleteArticleTags", String.class),
+                q -> q.bind("slug", "review-42")));
+        cases.add(new Case("TagRepository.findArticlesTagIds",
+                sqlOf(TagRepository.class, "findArticlesTagIds", Collection.class),
+                q -> q.bindList("articleIds", ids)));
+        cases.add(new Case("TagRepository.findTagsByIds", sqlOf(TagRepository.class, "findTagsByIds", Collection.class),
+                q -> q.bindList("ids", ids)));
+
+        cases.add(new Case("ActorRepository.findActorsByNames",
+                sqlOf(ActorRepository.class, "findActorsByNames", Collection.class),
+                q -> q.bindList("names", List.of("actor1", "actor42"))));
+        cases.add(new Case("ActorRepository.findMovieActorIds",
+                sqlOf(ActorRepository.class, "findMovieActorIds", Collection.class),
+                q -> q.bindList("movieIds", ids)));
+
+        cases.add(new Case("UserRepository.findUserByEmail", sqlOf(UserRepository.class, "findUserByEmail", String.class),
+                q -> q.bind("email", "user42@example.com")));
+        cases.add(new Case("UserRepository.findProfileByUsername",
+                sqlOf(UserRepository.class, "findProfileByUsername", String.class),
+                q -> q.bind("username", "user42")));
+        cases.add(new Case("UserRepository.unfollowProfile",
+                sqlOf(UserRepository.class, "unfollowProfile", Long.class, Long.class),
+                q -> q.bind("followed", 42L).bind("follower", 43L)));
+        cases.add(new Case("UserRepository.isFollowing(id)", sqlOf(UserRepository.class, "isFollowing", Long.class, Long.class),
+                q -> q.bind("followed", 42L).bind("follower", 43L)));
+        cases.add(new Case("UserRepository.isFollowing(username)",
+                sqlOf(UserRepository.class, "isFollowing", Long.class, String.class),
+                q -> q.bind("followed", 42L).bind("follower", "user43")));
+        cases.add(new Case("UserRepository.findFollowedAuthorIds",
+                sqlOf(UserRepository.class, "findFollowedAuthorIds", Collection.class, Long.class),
+                q -> q.bindList("authorIds", ids).bind("follower", 43L)));
+        cases.add(new Case("UserRepository.findFollowEdges",
+                sqlOf(UserRepository.class, "findFollowEdges", long.class, long.class, int.class),
+                q -> q.bind("afterFollower", 42L).bind("afterUser", 0L).bind("limit", 50_000)));
+        return cases;
+    }
+
+    private static void collectSeqScans(final JsonNode node, final List<String> scanned) {
+        if ("Seq Scan".equals(node.path("Node Type").asText())
+                && !SEQ_SCAN_ALLOWED.contains(node.path("Relation Name").asText())) {
+            scanned.add(node.path("Relation Name").asText());
+        }
+        for (final JsonNode child : node.path("Plans")) {
+            collectSeqScans(child, scanned);
+        }
+    }
+
+    private String explain(final String sql, final FilterQuery query, final Map<String, Object> parameters) {
+        return handle.createQuery("EXPLAIN (FORMAT JSON) " + sql)
+                .define("where", query.where())
+                .bindMap(query.bindings())
+                .bindMap(parameters)
+                .mapTo(String.class)
+                .one();
+    }
+
+    private static String findReviewsSql() throws NoSuchMethodException {
+        return sqlOf(ReviewRepository.class, "findReviews", String.class, Map.class, Long.class, int.class, int.class);
+    }
+
+    private static String countReviewsSql() throws NoSuchMethodException {
+        return sqlOf(ReviewRepository.class, "countReviews", String.class, Map.class);
+    }
+
+    private static String findMoviesSql() throws NoSuchMethodException {
+        return sqlOf(MoviesRepository.class, "findMovies", String.class, Map.class, int.class, int.class);
+    }
+
+    private static String countMoviesSql() throws NoSuchMethodException {
+        return sqlOf(MoviesRepository.class, "countMovies", String.class, Map.class);
+    }
+
+    private static String sqlOf(final Class<?> repository, final String method, final Class<?>... parameters)
+            throws NoSuchMethodException {
+        final Method declared = repository.getMethod(method, parameters);
+        final SqlQuery query = declared.getAnnotation(SqlQuery.class);
+        return query != null ? query.value() : declared.getAnnotation(SqlUpdate.class).value();
+    }
+
+    private static final class Case {
+        private final String name;
+        private final String sql;
+        private final UnaryOperator<Query> binder;
+
+        private Case(final String name, final String sql, final UnaryOperator<Query> binder) {
+            this.name = name;
+            this.sql = sql;
+            this.binder = binder;
+        }
+    }
+}
@@ -0,0 +1,133 @@
+package io.realworld.db;
+
+import io.realworld.api.response.MovieReview;
+import io.realworld.db.mapper.ArticleTagsMapper;
+import io.realworld.db.mapper.ReviewMapper;
+import org.jdbi.v3.core.Handle;
+import org.jdbi.v3.core.Jdbi;
+import org.jdbi.v3.sqlobject.SqlObjectPlugin;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfEnvironmentVariable;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Supplier;
+
+import static java.util.stream.Collectors.groupingBy;
+import static java.util.stream.Collectors.mapping;
+import static java.util.stream.Collectors.toList;
+import static java.util.stream.Collectors.toSet;
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * A 20-review page with its tags, favorited and following flags, loaded the way review lists did before (the page,
+ * then the tags, the favorites and the follows in three more round trips) and in the single hydrated statement: both
+ * must agree, and the median time of each is printed.
+ */
+@EnabledIfEnvironmentVariable(named = TestDatabase.URL_VARIABLE, matches = ".+")
+public class ReviewHydrationBenchmarkTest {
+
+    private static final int PAGE_SIZE = 20;
+    private static final int WARMUP = 20;
+    private static final int RUNS = 200;
+    private static final Long VIEWER_ID = 42L;
+
+    /*
+     * The page statement of the review list before the hydration moved into it.
+     */
+    private static final String PAGE_SQL = "SELECT articles.*, users.USERNAME, users.BIO, users.IMAGE FROM articles " +
+            "INNER JOIN users ON articles.AUTHOR_ID = users.ID " +
+            "ORDER BY articles.CREATED_AT DESC, articles.ID DESC " +
+            "LIMIT :limit " +
+            "OFFSET :offset";
+
+    private static Handle handle;
+
+    @BeforeAll
+    static void seed() throws Exception {
+        final Jdbi jdbi = TestDatabase.migrated();
+        jdbi.installPlugin(new SqlObjectPlugin());
+        TestDatabase.seed(jdbi);
+        handle = jdbi.open();
+    }
+
+    @AfterAll
+    static void close() {
+        if (handle != null) {
+            handle.close();
+        }
+    }
+
+    @Test
+    void hydratedPageMatchesSeparateLookups() {
+        //given
+        final ReviewRepository reviewRepository = handle.attach(ReviewRepository.class);
+        final TagRepository tagRepository = handle.attach(TagRepository.class);
+        final UserRepository userRepository = handle.attach(UserRepository.class);
+        final Supplier<List<MovieReview>> separate = () -> findPageWithLookups(reviewRepository, tagRepository,
+                userRepository);
+        final Supplier<List<MovieReview>> hydrated = () -> reviewRepository.findReviews(ReviewQuery.reviews(),
+                VIEWER_ID, 0, PAGE_SIZE);
+
+        //when
+        final List<List<Object>> separateRows = rows(separate.get());
+        final List<List<Object>> hydratedRows = rows(hydrated.get());
+        final long separateNanos = median(separate);
+        final long hydratedNanos = median(hydrated);
+
+        //then
+        System.out.printf("%d-review page with tags and viewer flags, median of %d runs: " +
+                        "4 round trips %d us, hydrated %d us%n",
+                PAGE_SIZE, RUNS, separateNanos / 1_000, hydratedNanos / 1_000);
+        assertThat(hydratedRows).hasSize(PAGE_SIZE);
+        assertThat(hydratedRows).isEqualTo(separateRows);
+    }
+
+    private static List<MovieReview> findPageWithLookups(final ReviewRepository reviewRepository,
+                                                         final TagRepository tagRepository,
+                                                         final UserRepository userRepository) {
+        final List<MovieReview> page = handle.createQuery(PAGE_SQL)
+                .bind("limit", PAGE_SIZE)
+                .bind("offset", 0)
+                .map(new ReviewMapper())
+                .list();
+        final Set<Long> reviewIds = page.stream().map(MovieReview::getId).collect(toSet());
+        final Set<Long> authorIds = page.stream().map(review -> review.getAuthor().getId()).collect(toSet());
+        final Map<Long, Set<Long>> tagIds = tagRepository.findArticlesTagIds(reviewIds).stream()
+                .collect(groupingBy(ArticleTagsMapper.ArticleIdTag::getArticleId,
+                        mapping(ArticleTagsMapper.ArticleIdTag::getTagId, toSet())));
+        final Set<Long> favorites = reviewRepository.findFavoriteReviews(VIEWER_ID, reviewIds);
+        final Set<Long> followed = userRepository.findFollowedAuthorIds(authorIds, VIEWER_ID);
+        for (final MovieReview review : page) {
+            review.setTagIds(tagIds.get(review.getId()));
+            review.setFavorited(favorites.contains(review.getId()));
+            review.getAuthor().setFollowing(followed.contains(review.getAuthor().getId()));
+        }
+        return page;
+    }
+
+    private static List<List<Object>> rows(final List<MovieReview> page) {
+        return page.stream()
+                .map(review -> Arrays.<Object>asList(review.getId(), review.getTagIds(), review.getFavorited(),
+                        review.getAuthor().getFollowing()))
+                .collect(toList());
+    }
+
+    private static long median(final Supplier<List<MovieReview>> page) {
+        for (int i = 0; i < WARMUP; i++) {
+            page.get();
+        }
+        final long[] nanos = new long[RUNS];
+        for (int i = 0; i < RUNS; i++) {
+            final long start = System.nanoTime();
+            page.get();
+            nanos[i] = System.nanoTime() - start;
+        }
+        Arrays.sort(nanos);
+        return nanos[RUNS / 2];
+    }
+}
@@ -0,0 +1,88 @@
+package io.realworld.db;
+
+import io.realworld.api.response.MovieReview;
+import io.realworld.core.PageCursor;
+import org.jdbi.v3.core.Jdbi;
+import org.jdbi.v3.sqlobject.SqlObjectPlugin;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfEnvironmentVariable;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Supplier;
+
+import static java.util.stream.Collectors.toList;
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Page 1 and page 5000 of the review list over 200k reviews, read with OFFSET and with a cursor: both modes must
+ * return the same rows, and the median time of each is printed. Page 1 has no cursor yet, so it is the same statement
+ * in both modes.
+ */
+@EnabledIfEnvironmentVariable(named = TestDatabase.URL_VARIABLE, matches = ".+")
+public class ReviewPaginationBenchmarkTest {
+
+    private static final int PAGE_SIZE = 20;
+    private static final int DEEP_PAGE = 5_000;
+    private static final int WARMUP = 10;
+    private static final int RUNS = 50;
+    private static final Long VIEWER_ID = 42L;
+
+    private static ReviewRepository reviewRepository;
+
+    @BeforeAll
+    static void seed() throws Exception {
+        final Jdbi jdbi = TestDatabase.migrated();
+        jdbi.installPlugin(new SqlObjectPlugin());
+        TestDatabase.seed(jdbi);
+        reviewRepository = jdbi.onDemand(ReviewRepository.class);
+    }
+
+    @Test
+    void cursorPagesMatchOffsetPages() {
+        //given
+        final int deepOffset = (DEEP_PAGE - 1) * PAGE_SIZE;
+        final MovieReview previous = reviewRepository.findReviews(ReviewQuery.reviews(), VIEWER_ID, deepOffset - 1, 1)
+                .get(0);
+        final PageCursor cursor = PageCursor.decode(new PageCursor(previous.getCreatedAt(), previous.getId()).encode());
+
+        //when
+        final List<MovieReview> firstPage = reviewRepository.findReviews(ReviewQuery.reviews(), VIEWER_ID, 0, PAGE_SIZE);
+        final List<MovieReview> deepByOffset = reviewRepository.findReviews(ReviewQuery.reviews(), VIEWER_ID,
+                deepOffset, PAGE_SIZE);
+        final List<MovieReview> deepByCursor = reviewRepository.findReviews(
+                ReviewQuery.reviews().after(cursor.getCreatedAtUtc(), cursor.getId()), VIEWER_ID, 0, PAGE_SIZE);
+        final long firstNanos = median(() -> reviewRepository.findReviews(ReviewQuery.reviews(), VIEWER_ID, 0,
+                PAGE_SIZE));
+        final long deepOffsetNanos = median(() -> reviewRepository.findReviews(ReviewQuery.reviews(), VIEWER_ID,
+                deepOffset, PAGE_SIZE));
+        final long deepCursorNanos = median(() -> reviewRepository.findReviews(
+                ReviewQuery.reviews().after(cursor.getCreatedAtUtc(), cursor.getId()), VIEWER_ID, 0, PAGE_SIZE));
+
+        //then
+        System.out.printf("%d-review pages, median of %d runs: page 1 %d us; page %d offset %d us, cursor %d us%n",
+                PAGE_SIZE, RUNS, firstNanos / 1_000, DEEP_PAGE, deepOffsetNanos / 1_000, deepCursorNanos / 1_000);
+        assertThat(firstPage).hasSize(PAGE_SIZE);
+        assertThat(deepByOffset).hasSize(PAGE_SIZE);
+        assertThat(ids(deepByCursor)).isEqualTo(ids(deepByOffset));
+    }
+
+    private static List<Long> ids(final List<MovieReview> page) {
+        return page.stream().map(MovieReview::getId).collect(toList());
+    }
+
+    private static long median(final Supplier<List<MovieReview>> page) {
+        for (int i = 0; i < WARMUP; i++) {
+            page.get();
+        }
+        final long[] nanos = new long[RUNS];
+        for (int i = 0; i < RUNS; i++) {
+            final long start = System.nanoTime();
+            page.get();
+            nanos[i] = System.nanoTime() - start;
+        }
+        Arrays.sort(nanos);
+        return nanos[RUNS / 2];
+    }
+}
@@ -0,0 +1,85 @@
+package io.realworld.db;
+
+import liquibase.Contexts;
+import liquibase.Liquibase;
+import liquibase.database.Database;
+import liquibase.database.DatabaseFactory;
+import liquibase.database.jvm.JdbcConnection;
+import liquibase.resource.ClassLoaderResourceAccessor;
+import org.jdbi.v3.core.Jdbi;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+
+/**
+ * Access to a local, throw-away PostgreSQL used by the database tests.
+ *
+ * <p>
+ * The tests only run when {@code TEST_DB_URL} is set (plus {@code TEST_DB_USER} / {@code TEST_DB_PASS}, both
+ * defaulting to {@code root} like the docker-compose database). The schema is migrated and the tables are truncated
+ * and re-seeded, so never point it to a database holding data you care about.
+ */
+public final class TestDatabase {
+
+    public static final String URL_VARIABLE = "TEST_DB_URL";
+
+    private TestDatabase() {
+    }
+
+    public static Jdbi migrated() throws Exception {
+        final String url = System.getenv(URL_VARIABLE);
+        final String user = System.getenv().getOrDefault("TEST_DB_USER", "root");
+        final String password = System.getenv().getOrDefault("TEST_DB_PASS", "root");
+
+        try (Connection connection = DriverManager.getConnection(url, user, password)) {
+            final Database database = DatabaseFactory.getInstance()
+                    .findCorrectDatabaseImplementation(new JdbcConnection(connection));
+            new Liquibase("migrations.xml", new ClassLoaderResourceAccessor(), database).update(new Contexts());
+        }
+        return Jdbi.create(url, user, password);
+    }
+
+    /**
+     * Seeds a dataset big enough for the planner to prefer indexes over sequential scans where they exist:
+     * 10k users, 2k movies, 200k reviews, 500 tags, 400k review tags, 200k favorites, 100k follows and the
+     * home feeds they make up.
+     */
+    public static void seed(final Jdbi jdbi) {
+        jdbi.useHandle(handle -> {
+            handle.execute("TRUNCATE users, movies, actors, movie_actors, favorite_movies, articles, tags, articles_tags, " +
+                    "favorites, comments, followers RESTART IDENTITY CASCADE");
+            handle.execute("INSERT INTO users (USERNAME, EMAIL, PASSWORD, CREATED_AT) " +
+                    "SELECT 'user' || i, 'user' || i || '@example.com', 'x###y', now() FROM generate_series(1, 10000) i");
+            handle.execute("INSERT INTO movies (TITLE, DESCRIPTION, BODY, YEAR_RELEASED, CREATED_AT) " +
+                    "SELECT 'movie' || i, 'description', 'body', (1950 + i % 70)::text, now() - i * interval '1 hour' " +
+                    "FROM generate_series(1, 2000) i");
+            handle.execute("INSERT INTO actors (NAME) SELECT 'actor' || i FROM generate_series(1, 5000) i");
+            handle.execute("INSERT INTO movie_actors (MOVIE_ID, ACTOR_ID) " +
+                    "SELECT m, 1 + (m * 7 + k) % 5000 FROM generate_series(1, 2000) m, generate_series(1, 5) k " +
+                    "ON CONFLICT DO NOTHING");
+            handle.execute("INSERT INTO favorite_movies (USER_ID, MOVIE_ID) " +
+                    "SELECT 1 + i % 10000, 1 + (i * 13) % 2000 FROM generate_series(1, 50000) i ON CONFLICT DO NOTHING");
+            handle.execute("INSERT INTO articles (MOVIE_ID, SLUG, TITLE, DESCRIPTION, BODY, AUTHOR_ID, CREATED_AT) " +
+                    "SELECT 1 + i % 2000, 'review-' || i, 'title', 'description', 'body', 1 + i % 10000, " +
+                    "now() - i * interval '1 minute' FROM generate_series(1, 200000) i");
+            handle.execute("INSERT INTO movie_review_stats (MOVIE_ID, REVIEWS_COUNT, LAST_REVIEWED_AT) " +
+                    "SELECT MOVIE_ID, count(*), max(CREATED_AT) FROM articles GROUP BY MOVIE_ID");
+            handle.execute("INSERT INTO tags (NAME) SELECT 'tag' || i FROM generate_series(1, 500) i");
+            handle.execute("INSERT INTO articles_tags (ARTICLE_ID, TAG_ID) " +
+                    "SELECT a, 1 + (a * 3 + k) % 500 FROM generate_series(1, 200000) a, generate_series(1, 2) k " +
+                    "ON CONFLICT DO NOTHING");
+            handle.execute("INSERT INTO favorites (USER_ID, ARTICLE_ID) " +
+                    "SELECT 1 + i % 10000, 1 + (i * 17) % 200000 FROM generate_series(1, 200000) i ON CONFLICT DO NOTHING");
+            handle.execute("INSERT INTO comments (BODY, ARTICLE_ID, AUTHOR_ID, CREATED_AT) " +
+                    "SELECT 'comment', 1 + (i * 11) % 200000, 1 + i % 10000, now() FROM generate_series(1, 100000) i");
+            handle.execute("INSERT INTO followers (USER_ID, FOLLOWER_ID, CREATED_AT) " +
+                    "SELECT 1 + (i * 7) % 10000, 1 + i % 10000, now() FROM generate_series(1, 100000) i " +
+                    "WHERE 1 + (i * 7) % 10000 <> 1 + i % 10000 ON CONFLICT DO NOTHING");
+            handle.execute("INSERT INTO user_feed (USER_ID, ARTICLE_ID, AUTHOR_ID, CREATED_AT) " +
+                    "SELECT fo.FOLLOWER_ID, a.ID, a.AUTHOR_ID, a.CREATED_AT FROM followers fo " +
+                    "INNER JOIN articles a ON a.AUTHOR_ID = fo.USER_ID");
+            handle.execute("INSERT INTO feed_celebrities (USER_ID) SELECT i FROM generate_series(1, 10000, 1000) i");
+            handle.execute("ANALYZE");
+        });
+    }
+}
@@ -0,0 +1,152 @@
+package io.realworld.db.unitofwork;
+
+import com.codahale.metrics.MetricRegistry;
+import com.google.common.reflect.Reflection;
+import io.realworld.db.ReviewQuery;
+import io.realworld.db.ReviewRepository;
+import io.realworld.db.UserRepository;
+import org.jdbi.v3.core.Handle;
+import org.jdbi.v3.core.Jdbi;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class LazyJdbiHandleManagerTest {
+
+    private final Jdbi jdbi = mock(Jdbi.class);
+    private final Handle handle = mock(Handle.class);
+    private final UserRepository attached = mock(UserRepository.class);
+    private final MetricRegistry metrics = new MetricRegistry();
+    private final LazyJdbiHandleManager handleManager = new LazyJdbiHandleManager(jdbi, metrics);
+    private final UserRepository userRepository = Reflection.newProxy(UserRepository.class,
+            new LazyHandleInvocationHandler<>(handleManager, UserRepository.class));
+
+    LazyJdbiHandleManagerTest() {
+        when(jdbi.open()).thenReturn(handle);
+        when(handle.attach(UserRepository.class)).thenReturn(attached);
+        when(attached.findUserIdByUsername("jake")).thenReturn(42L);
+    }
+
+    @Test
+    void readsReleaseTheirHandleRightAway() {
+        //given
+        handleManager.enter("ProfileResource.getProfile");
+
+        //when
+        final Long first = userRepository.findUserIdByUsername("jake");
+        final Long second = userRepository.findUserIdByUsername("jake");
+
+        //then
+        assertThat(first).isEqualTo(42L);
+        assertThat(second).isEqualTo(42L);
+        verify(handle, times(2)).close();
+        handleManager.clear();
+        assertThat(metrics.histogram("ProfileResource.getProfile.handles").getSnapshot().getMax()).isEqualTo(2);
+        assertThat(metrics.timer("ProfileResource.getProfile.poolHold").getCount()).isEqualTo(1);
+    }
+
+    @Test
+    void readOnlyCallsOfReadsGoToTheReplica() {
+        //given
+        final Jdbi replica = mock(Jdbi.class);
+        final Handle replicaHandle = mock(Handle.class);
+        final ReviewRepository replicaReviews = mock(ReviewRepository.class);
+        when(replica.open()).thenReturn(replicaHandle);
+        when(replicaHandle.attach(ReviewRepository.class)).thenReturn(replicaReviews);
+        when(handle.attach(ReviewRepository.class)).thenReturn(mock(ReviewRepository.class));
+        final LazyJdbiHandleManager routing = new LazyJdbiHandleManager(jdbi, replica, metrics);
+        final ReviewRepository reviews = Reflection.newProxy(ReviewRepository.class,
+                new LazyHandleInvocationHandler<>(routing, ReviewRepository.class));
+        final ReviewQuery query = ReviewQuery.reviews();
+
+        //when
+        routing.enter("ReviewsResorce.findArticles");
+        routing.readFromReplica();
+        final boolean replicaRequest = routing.readsFromReplica();
+        reviews.findReviews(query, null, 0, 20);
+        reviews.countReviews(query);
+        reviews.findReviewIdBySlug("review-1");
+        routing.clear();
+        routing.enter("ReviewsResorce.findArticles");
+        reviews.findReviews(query, null, 0, 20);
+        routing.clear();
+
+        //then
+        assertThat(replicaRequest).isTrue();
+        verify(replicaReviews, times(1)).findReviews(query, null, 0, 20);
+        verify(replica, times(1)).open();
+        verify(jdbi, times(3)).open();
+    }
+
+    @Test
+    void requestsWithoutRepositoryCallsTakeNoHandle() {
+        //given
+        handleManager.enter("TagsResource.getTags");
+        handleManager.beginUnitOfWork();
+
+        //when
+        handleManager.commit();
+        handleManager.clear();
+
+        //then
+        verify(jdbi, never()).open();
+        assertThat(metrics.histogram("TagsResource.getTags.handles").getSnapshot().getMax()).isZero();
+    }
+
+    @Test
+    void unitOfWorkKeepsOneHandleUntilTheRequestFinishes() {
+        //given
+        handleManager.enter("ReviewsResorce.updateArticle");
+        handleManager.beginUnitOfWork();
+
+        //when
+        userRepository.findUserIdByUsername("jake");
+        when(handle.isInTransaction()).thenReturn(true);
+        userRepository.findUserIdByUsername("jake");
+        handleManager.commit();
+        when(handle.isInTransaction()).thenReturn(false);
+        handleManager.clear();
+
+        //then
+        verify(jdbi, times(1)).open();
+        final var order = inOrder(handle);
+        order.verify(handle).begin();
+        order.verify(handle).commit();
+        order.verify(handle).close();
+    }
+
+    @Test
+    void afterCommitActionsWaitForTheCommitOfTheUnitOfWork() {
+        //given
+        final List<String> actions = new ArrayList<>();
+        handleManager.enter("ReviewsResorce.updateArticle");
+        handleManager.beginUnitOfWork();
+        userRepository.findUserIdByUsername("jake");
+        when(handle.isInTransaction()).thenReturn(true);
+
+        //when
+        handleManager.run(() -> actions.add("invalidate"));
+        final List<String> beforeCommit = new ArrayList<>(actions);
+        handleManager.commit();
+        handleManager.clear();
+        handleManager.enter("ReviewsResorce.updateArticle");
+        handleManager.beginUnitOfWork();
+        handleManager.run(() -> actions.add("rolled back"));
+        handleManager.rollback();
+        handleManager.clear();
+        handleManager.run(() -> actions.add("outside"));
+
+        //then
+        assertThat(beforeCommit).isEmpty();
+        assertThat(actions).containsExactly("invalidate", "outside");
+    }
+}
@@ -0,0 +1,189 @@
+package io.realworld.load;
+
+import io.realworld.security.PasswordEncoder;
+import org.postgresql.PGConnection;
+import org.postgresql.copy.CopyManager;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDateTime;
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+
+/**
+ * Fills the database with a synthetic dataset of the given volumes, loaded with batched {@code COPY}.
+ *
+ * <p>
+ * Users are named {@code user<i>} with email {@code user<i>@example.com} and password {@value #PASSWORD}, reviews have
+ * the slug {@code review-<i>} and tags are named {@code tag<i>}. Follows, favorites and tags are skewed towards the
+ * lowest ids, so a few users, reviews and tags are much more popular than the rest, as they are in production. The
+ * generation is deterministic: the same volumes give the same data.
+ */
+public final class DatasetGenerator {
+    public static final String PASSWORD = "load-test-password";
+
+    private static final int COPY_BATCH_ROWS = 50_000;
+
+    private final Connection connection;
+    private final CopyManager copyManager;
+    private final Volumes volumes;
+    private final Random random = new Random(42);
+    private final LocalDateTime now = LocalDateTime.now().withNano(0);
+
+    public DatasetGenerator(final Connection connection, final Volumes volumes) throws SQLException {
+        this.connection = connection;
+        this.copyManager = connection.unwrap(PGConnection.class).getCopyAPI();
+        this.volumes = volumes;
+    }
+
+    public void generate(final int celebrityFollowers, final int maxFeedEntries) throws SQLException, IOException {
+        execute("TRUNCATE users, movies, actors, movie_actors, favorite_movies, articles, tags, articles_tags, " +
+                "favorites, comments, followers, movie_review_stats, user_feed, feed_celebrities RESTART IDENTITY CASCADE");
+
+        final String password = new PasswordEncoder().encode(PASSWORD);
+        copy("users (USERNAME, EMAIL, PASSWORD, BIO, CREATED_AT, UPDATED_AT)", volumes.users, (i, row) ->
+                row.append("user").append(i).append(",user").append(i).append("@example.com,")
+                        .append(password).append(",bio of user").append(i).append(',')
+                        .append(now).append(',').append(now));
+        copy("movies (TITLE, DESCRIPTION, BODY, YEAR_RELEASED, LANGUAGES, CREATED_AT, UPDATED_AT)", volumes.movies,
+                (i, row) -> row.append("movie").append(i).append(",description,body,").append(1950 + i % 70)
+                        .append(",English,").append(now.minusHours(i)).append(',').append(now.minusHours(i)));
+        copy("tags (NAME)", volumes.tags, (i, row) -> row.append("tag").append(i));
+        copy("articles (MOVIE_ID, SLUG, TITLE, DESCRIPTION, BODY, AUTHOR_ID, CREATED_AT, UPDATED_AT)", volumes.reviews,
+                (i, row) -> row.append(1 + i % volumes.movies).append(",review-").append(i).append(",title ").append(i)
+                        .append(",description,").append("body of the review ".repeat(10)).append(',')
+                        .append(skewed(volumes.users)).append(',')
+                        .append(now.minusMinutes(i)).append(',').append(now.minusMinutes(i)));
+        copyDistinct("articles_tags (ARTICLE_ID, TAG_ID)", volumes.reviews, volumes.tagsPerReview, volumes.tags);
+        copyDistinct("favorites (USER_ID, ARTICLE_ID)", volumes.users, volumes.favoritesPerUser, volumes.reviews);
+        copyFollows();
+
+        execute("UPDATE articles a SET FAVORITES_COUNT = f.COUNT " +
+                "FROM (SELECT ARTICLE_ID, count(*) AS COUNT FROM favorites GROUP BY ARTICLE_ID) f WHERE a.ID = f.ARTICLE_ID");
+        execute("INSERT INTO movie_review_stats (MOVIE_ID, REVIEWS_COUNT, LAST_REVIEWED_AT) " +
+                "SELECT MOVIE_ID, count(*), max(CREATED_AT) FROM articles GROUP BY MOVIE_ID");
+        execute("INSERT INTO feed_celebrities (USER_ID) " +
+                "SELECT USER_ID FROM followers GROUP BY USER_ID HAVING count(*) >= " + celebrityFollowers);
+        execute("INSERT INTO user_feed (USER_ID, ARTICLE_ID, AUTHOR_ID, CREATED_AT) " +
+                "SELECT FOLLOWER_ID, ID, AUTHOR_ID, CREATED_AT FROM (" +
+                "SELECT fo.FOLLOWER_ID, a.ID, a.AUTHOR_ID, a.CREATED_AT, " +
+                "row_number() OVER (PARTITION BY fo.FOLLOWER_ID ORDER BY a.CREATED_AT DESC, a.ID DESC) AS RN " +
+                "FROM followers fo INNER JOIN articles a ON a.AUTHOR_ID = fo.USER_ID " +
+                "WHERE fo.USER_ID NOT IN (SELECT USER_ID FROM feed_celebrities)) f " +
+                "WHERE RN <= " + maxFeedEntries);
+        execute("ANALYZE");
+    }
+
+    /*
+     * For every owner 1..owners, up to perOwner distinct skewed ids out of 1..targets.
+     */
+    private void copyDistinct(final String table, final int owners, final int perOwner, final int targets)
+            throws SQLException, IOException {
+        final StringBuilder rows = new StringBuilder();
+        int batched = 0;
+        for (int owner = 1; owner <= owners; owner++) {
+            for (final int target : distinctSkewed(perOwner, targets, -1)) {
+                rows.append(owner).append(',').append(target).append('\n');
+                batched = flushIfFull(table, rows, batched + 1);
+            }
+        }
+        flush(table, rows);
+    }
+
+    private void copyFollows() throws SQLException, IOException {
+        final String table = "followers (USER_ID, FOLLOWER_ID, CREATED_AT)";
+        final StringBuilder rows = new StringBuilder();
+        int batched = 0;
+        for (int follower = 1; follower <= volumes.users; follower++) {
+            for (final int followed : distinctSkewed(volumes.followsPerUser, volumes.users, follower)) {
+                rows.append(followed).append(',').append(follower).append(',').append(now).append('\n');
+                batched = flushIfFull(table, rows, batched + 1);
+            }
+        }
+        flush(table, rows);
+    }
+
+    private Set<Integer> distinctSkewed(final int count, final int bound, final int excluded) {
+        final Set<Integer> ids = new HashSet<>();
+        final int wanted = Math.min(count, bound - (excluded > 0 ? 1 : 0));
+        for (int attempt = 0; ids.size() < wanted && attempt < wanted * 10; attempt++) {
+            final int id = skewed(bound);
+            if (id != excluded) {
+                ids.add(id);
+            }
+        }
+        return ids;
+    }
+
+    /*
+     * An id in 1..bound, the lowest ids being picked far more often than the highest.
+     */
+    private int skewed(final int bound) {
+        return 1 + (int) (bound * Math.pow(random.nextDouble(), 3));
+    }
+
+    private void copy(final String table, final int count, final RowWriter writer) throws SQLException, IOException {
+        final StringBuilder rows = new StringBuilder();
+        int batched = 0;
+        for (int i = 1; i <= count; i++) {
+            writer.write(i, rows);
+            rows.append('\n');
+            batched = flushIfFull(table, rows, batched + 1);
+        }
+        flush(table, rows);
+    }
+
+    private int flushIfFull(final String table, final StringBuilder rows, final int batched)
+            throws SQLException, IOException {
+        if (batched < COPY_BATCH_ROWS) {
+            return batched;
+        }
+        flush(table, rows);
+        return 0;
+    }
+
+    private void flush(final String table, final StringBuilder rows) throws SQLException, IOException {
+        if (rows.length() > 0) {
+            copyManager.copyIn("COPY " + table + " FROM STDIN WITH (FORMAT csv)", new StringReader(rows.toString()));
+            rows.setLength(0);
+        }
+    }
+
+    private void execute(final String sql) throws SQLException {
+        try (Statement statement = connection.createStatement()) {
+            statement.execute(sql);
+        }
+    }
+
+    private interface RowWriter {
+        void write(int id, StringBuilder row);
+    }
+
+    /**
+     * Dataset sizes, read from {@code LOAD_<NAME>} environment variables such as {@code LOAD_USERS}.
+     */
+    public static final class Volumes {
+        final int users = volume("USERS", 10_000);
+        final int movies = volume("MOVIES", 2_000);
+        final int reviews = volume("REVIEWS", 200_000);
+        final int tags = volume("TAGS", 500);
+        final int tagsPerReview = volume("TAGS_PER_REVIEW", 3);
+        final int followsPerUser = volume("FOLLOWS_PER_USER", 50);
+        final int favoritesPerUser = volume("FAVORITES_PER_USER", 20);
+
+        private static int volume(final String name, final int defaultValue) {
+            final String value = System.getenv("LOAD_" + name);
+            return value == null ? defaultValue : Integer.parseInt(value);
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%d users, %d movies, %d reviews with %d of %d tags, %d follows and %d favorites per user",
+                    users, movies, reviews, tagsPerReview, tags, followsPerUser, favoritesPerUser);
+        }
+    }
+}
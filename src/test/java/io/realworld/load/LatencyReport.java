@@ -0,0 +1,99 @@
+package io.realworld.load;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Latencies of every request of a load run, per endpoint, reported as throughput and exact percentiles.
+ */
+public class LatencyReport {
+
+    private final Map<String, Samples> endpoints = new ConcurrentHashMap<>();
+
+    public void record(final String endpoint, final long nanos, final int status) {
+        endpoints.computeIfAbsent(endpoint, name -> new Samples()).add(nanos, status);
+    }
+
+    /**
+     * Requests answered with a server error or not answered at all.
+     */
+    public int errors() {
+        return endpoints.values().stream().mapToInt(Samples::errors).sum();
+    }
+
+    public String format(final long elapsedNanos) {
+        final StringBuilder report = new StringBuilder(header("endpoint"));
+        endpoints.entrySet().stream()
+                .sorted(Map.Entry.comparingByKey())
+                .forEach(endpoint -> endpoint.getValue().format(endpoint.getKey(), elapsedNanos, report));
+        return report.toString();
+    }
+
+    public static String header(final String label) {
+        return String.format("%-32s %9s %9s %9s %9s %9s %7s %7s%n",
+                label, "requests", "req/s", "p50 ms", "p99 ms", "p999 ms", "4xx", "errors");
+    }
+
+    /**
+     * One line over the requests to all endpoints, in the columns of {@link #header}.
+     */
+    public String formatTotal(final String label, final long elapsedNanos) {
+        final Samples all = new Samples();
+        endpoints.values().forEach(all::addAll);
+        final StringBuilder line = new StringBuilder();
+        all.format(label, elapsedNanos, line);
+        return line.toString();
+    }
+
+    private static class Samples {
+        private long[] nanos = new long[1024];
+        private int size;
+        private int clientErrors;
+        private int errors;
+
+        synchronized void add(final long latency, final int status) {
+            if (size == nanos.length) {
+                nanos = Arrays.copyOf(nanos, size * 2);
+            }
+            nanos[size++] = latency;
+            if (status >= 400 && status < 500) {
+                clientErrors++;
+            } else if (status >= 500 || status < 0) {
+                errors++;
+            }
+        }
+
+        synchronized void addAll(final Samples other) {
+            synchronized (other) {
+                if (size + other.size > nanos.length) {
+                    nanos = Arrays.copyOf(nanos, size + other.size);
+                }
+                System.arraycopy(other.nanos, 0, nanos, size, other.size);
+                size += other.size;
+                clientErrors += other.clientErrors;
+                errors += other.errors;
+            }
+        }
+
+        synchronized int errors() {
+            return errors;
+        }
+
+        synchronized void format(final String endpoint, final long elapsedNanos, final StringBuilder report) {
+            final long[] sorted = Arrays.copyOf(nanos, size);
+            Arrays.sort(sorted);
+            report.append(String.format("%-32s %9d %9.1f %9.2f %9.2f %9.2f %7d %7d%n", endpoint, size,
+                    size * 1e9 / elapsedNanos, millis(sorted, 0.50), millis(sorted, 0.99), millis(sorted, 0.999),
+                    clientErrors, errors));
+        }
+
+        private static double millis(final long[] sorted, final double percentile) {
+            if (sorted.length == 0) {
+                return 0;
+            }
+            final int index = (int) Math.ceil(percentile * sorted.length) - 1;
+            return sorted[Math.max(index, 0)] / 1e6;
+        }
+    }
+}
@@ -0,0 +1,275 @@
+package io.realworld.load;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.dropwizard.testing.ConfigOverride;
+import io.dropwizard.testing.DropwizardTestSupport;
+import io.dropwizard.testing.ResourceHelpers;
+import io.realworld.RealWorldApplication;
+import io.realworld.RealWorldConfiguration;
+import io.realworld.core.FeedConfiguration;
+import io.realworld.db.TestDatabase;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfEnvironmentVariable;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Function;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Starts the application against the test database filled by {@link DatasetGenerator}, drives a weighted mix of the
+ * real endpoints from concurrent clients and reports the throughput and latency percentiles of every endpoint, on
+ * the console and in {@code target/load-report.txt}.
+ *
+ * <p>
+ * Only runs when {@code LOAD_TEST_SECONDS} is set next to {@code TEST_DB_URL}. {@code LOAD_TEST_THREADS} sets the
+ * number of clients (32 by default) and the dataset volumes are read as described in
+ * {@link DatasetGenerator.Volumes}. The first tenth of the run warms the application up and is not reported.
+ *
+ * <p>
+ * With {@code LOAD_TEST_POOLS} set to connection pool implementations, e.g. {@code tomcat,hikari}, the same mix is
+ * also run against each of them at 32, 64 and 128 clients, reported side by side in
+ * {@code target/pool-contention-report.txt}.
+ */
+@EnabledIfEnvironmentVariable(named = TestDatabase.URL_VARIABLE, matches = ".+")
+@EnabledIfEnvironmentVariable(named = "LOAD_TEST_SECONDS", matches = "\\d+")
+public class LoadTest {
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+    private static final int LOGGED_IN_USERS = 200;
+    private static final int[] POOL_CONTENTION_CLIENTS = {32, 64, 128};
+
+    private final DatasetGenerator.Volumes volumes = new DatasetGenerator.Volumes();
+    private final HttpClient client = HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(5)).build();
+    private final List<Operation> mix = new ArrayList<>();
+    private final List<String> tokens = new ArrayList<>();
+    private String baseUri;
+    private int totalWeight;
+
+    @Test
+    void weightedEndpointMix() throws Exception {
+        //given
+        generateDataset();
+        final DropwizardTestSupport<RealWorldConfiguration> app = start();
+        try {
+            connect(app);
+            final long seconds = Long.parseLong(System.getenv("LOAD_TEST_SECONDS"));
+            final int threads = Integer.parseInt(System.getenv().getOrDefault("LOAD_TEST_THREADS", "32"));
+
+            //when
+            run(threads, Duration.ofSeconds(Math.max(seconds / 10, 1)), new LatencyReport());
+            final LatencyReport report = new LatencyReport();
+            final long elapsed = run(threads, Duration.ofSeconds(seconds), report);
+
+            //then
+            final String formatted = String.format("%s, %d clients, %d s%n%s", volumes, threads, seconds,
+                    report.format(elapsed));
+            System.out.print(formatted);
+            Files.writeString(Path.of("target", "load-report.txt"), formatted);
+            assertThat(report.errors()).isZero();
+        } finally {
+            app.after();
+        }
+    }
+
+    @Test
+    @EnabledIfEnvironmentVariable(named = "LOAD_TEST_POOLS", matches = ".+")
+    void poolContention() throws Exception {
+        //given
+        generateDataset();
+        final long seconds = Long.parseLong(System.getenv("LOAD_TEST_SECONDS"));
+        final StringBuilder formatted = new StringBuilder(String.format("%s, %d s per run%n", volumes, seconds))
+                .append(LatencyReport.header("pool, clients"));
+
+        //when
+        for (final String pool : System.getenv("LOAD_TEST_POOLS").split(",")) {
+            final DropwizardTestSupport<RealWorldConfiguration> app =
+                    start(ConfigOverride.config("connectionPool.implementation", pool.trim()));
+            try {
+                connect(app);
+                for (final int clients : POOL_CONTENTION_CLIENTS) {
+                    run(clients, Duration.ofSeconds(Math.max(seconds / 10, 1)), new LatencyReport());
+                    final LatencyReport report = new LatencyReport();
+                    final long elapsed = run(clients, Duration.ofSeconds(seconds), report);
+                    formatted.append(report.formatTotal(pool.trim() + ", " + clients, elapsed));
+                }
+            } finally {
+                app.after();
+            }
+        }
+
+        //then
+        System.out.print(formatted);
+        Files.writeString(Path.of("target", "pool-contention-report.txt"), formatted);
+    }
+
+    private void generateDataset() throws Exception {
+        TestDatabase.migrated().useHandle(handle -> {
+            final Connection connection = handle.getConnection();
+            final FeedConfiguration feed = FeedConfiguration.defaults();
+            new DatasetGenerator(connection, volumes).generate(feed.getCelebrityFollowers(), feed.getMaxEntries());
+        });
+    }
+
+    private DropwizardTestSupport<RealWorldConfiguration> start(final ConfigOverride... overrides) throws Exception {
+        final List<ConfigOverride> all = new ArrayList<>(List.of(
+                ConfigOverride.config("datasource.url", System.getenv(TestDatabase.URL_VARIABLE)),
+                ConfigOverride.config("datasource.user", System.getenv().getOrDefault("TEST_DB_USER", "root")),
+                ConfigOverride.config("datasource.password", System.getenv().getOrDefault("TEST_DB_PASS", "root"))));
+        all.addAll(List.of(overrides));
+        final DropwizardTestSupport<RealWorldConfiguration> app = new DropwizardTestSupport<>(RealWorldApplication.class,
+                ResourceHelpers.resourceFilePath("load-test.yml"), all.toArray(new ConfigOverride[0]));
+        app.before();
+        return app;
+    }
+
+    /*
+     * Tokens stay valid across restarts, so the users are logged in and the mix defined once per test.
+     */
+    private void connect(final DropwizardTestSupport<RealWorldConfiguration> app) throws Exception {
+        baseUri = "http://localhost:" + app.getLocalPort() + "/api";
+        if (mix.isEmpty()) {
+            logIn();
+            defineMix();
+        }
+    }
+
+    private void defineMix() {
+        operation("GET /reviews", 30, random -> get("/reviews?limit=20"));
+        operation("GET /reviews?tag", 10, random -> get("/reviews?limit=20&tag=tag" + skewed(random, volumes.tags)));
+        operation("GET /reviews/{slug}", 20, random -> get("/reviews/review-" + skewed(random, volumes.reviews)));
+        operation("GET /users/{id}/feed", 15, random -> get("/users/me/feed?limit=20"));
+        operation("GET /profiles/{username}", 10, random -> get("/profiles/user" + skewed(random, volumes.users)));
+        operation("GET /tags", 5, random -> get("/tags"));
+        operation("GET /movies", 5, random -> get("/movies?limit=20"));
+        operation("POST /reviews/{slug}/favorite", 3,
+                random -> post("/reviews/review-" + (1 + random.nextInt(volumes.reviews)) + "/favorite"));
+        operation("POST /profiles/{username}/follow", 1,
+                random -> post("/profiles/user" + (1 + random.nextInt(volumes.users)) + "/follow"));
+        mix.add(new Operation("POST /users/login", 1, false, random -> login(1 + random.nextInt(volumes.users))));
+        totalWeight += 1;
+    }
+
+    private void operation(final String endpoint, final int weight,
+                           final Function<ThreadLocalRandom, HttpRequest.Builder> request) {
+        mix.add(new Operation(endpoint, weight, true, request));
+        totalWeight += weight;
+    }
+
+    private long run(final int threads, final Duration duration, final LatencyReport report) throws Exception {
+        final ExecutorService clients = Executors.newFixedThreadPool(threads);
+        final long start = System.nanoTime();
+        final long end = start + duration.toNanos();
+        try {
+            final List<Future<?>> running = new ArrayList<>();
+            for (int i = 0; i < threads; i++) {
+                running.add(clients.submit(() -> {
+                    while (System.nanoTime() < end) {
+                        send(report);
+                    }
+                    return null;
+                }));
+            }
+            for (final Future<?> client : running) {
+                client.get();
+            }
+        } finally {
+            clients.shutdownNow();
+        }
+        return System.nanoTime() - start;
+    }
+
+    private void send(final LatencyReport report) {
+        final ThreadLocalRandom random = ThreadLocalRandom.current();
+        final Operation operation = pick(random.nextInt(totalWeight));
+        final HttpRequest.Builder request = operation.request.apply(random).timeout(Duration.ofSeconds(30));
+        if (operation.authenticated) {
+            request.header("Authorization", "Token " + tokens.get(random.nextInt(tokens.size())));
+        }
+        final long start = System.nanoTime();
+        int status;
+        try {
+            status = client.send(request.build(), HttpResponse.BodyHandlers.discarding()).statusCode();
+        } catch (final Exception e) {
+            status = -1;
+        }
+        report.record(operation.endpoint, System.nanoTime() - start, status);
+    }
+
+    private Operation pick(final int roll) {
+        int cumulated = 0;
+        for (final Operation operation : mix) {
+            cumulated += operation.weight;
+            if (roll < cumulated) {
+                return operation;
+            }
+        }
+        throw new IllegalStateException("Roll " + roll + " out of " + totalWeight);
+    }
+
+    private void logIn() throws Exception {
+        for (int user = 1; user <= Math.min(LOGGED_IN_USERS, volumes.users); user++) {
+            final HttpResponse<String> response = client.send(login(user).build(), HttpResponse.BodyHandlers.ofString());
+            assertThat(response.statusCode()).isEqualTo(200);
+            tokens.add(MAPPER.readTree(response.body()).path("user").path("token").asText());
+        }
+    }
+
+    /*
+     * The login endpoint authenticates with basic credentials instead of a token.
+     */
+    private HttpRequest.Builder login(final int user) {
+        final String credentials = "user" + user + "@example.com:" + DatasetGenerator.PASSWORD;
+        return HttpRequest.newBuilder(URI.create(baseUri + "/users/login"))
+                .header("Content-Type", "application/json")
+                .header("Authorization", "Basic " + Base64.getEncoder()
+                        .encodeToString(credentials.getBytes(StandardCharsets.UTF_8)))
+                .POST(HttpRequest.BodyPublishers.ofString("{}"));
+    }
+
+    private HttpRequest.Builder get(final String path) {
+        return HttpRequest.newBuilder(URI.create(baseUri + path)).GET();
+    }
+
+    private HttpRequest.Builder post(final String path) {
+        return HttpRequest.newBuilder(URI.create(baseUri + path))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString("{}"));
+    }
+
+    /*
+     * Same skew as the generated follows and favorites, so the popular rows are also the most requested ones.
+     */
+    private static int skewed(final ThreadLocalRandom random, final int bound) {
+        return 1 + (int) (bound * Math.pow(random.nextDouble(), 3));
+    }
+
+    private static class Operation {
+        private final String endpoint;
+        private final int weight;
+        private final boolean authenticated;
+        private final Function<ThreadLocalRandom, HttpRequest.Builder> request;
+
+        Operation(final String endpoint, final int weight, final boolean authenticated,
+                  final Function<ThreadLocalRandom, HttpRequest.Builder> request) {
+            this.endpoint = endpoint;
+            this.weight = weight;
+            this.authenticated = authenticated;
+            this.request = request;
+        }
+    }
+}
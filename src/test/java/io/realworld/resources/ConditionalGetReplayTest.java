@@ -0,0 +1,81 @@
+package io.realworld.resources;
+
+import io.dropwizard.auth.AuthValueFactoryProvider;
+import io.dropwizard.testing.junit5.DropwizardClientExtension;
+import io.dropwizard.testing.junit5.DropwizardExtensionsSupport;
+import io.realworld.core.ChangeVersions;
+import io.realworld.core.CommentService;
+import io.realworld.security.UserPrincipal;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.mockingDetails;
+
+/**
+ * Replays a polling client that revalidates its cached list with If-None-Match while a writer changes the data
+ * every few requests, and counts the list queries the version tags saved.
+ */
+@ExtendWith(DropwizardExtensionsSupport.class)
+public class ConditionalGetReplayTest {
+
+    private static final int REQUESTS = 200;
+    private static final int REQUESTS_PER_WRITE = 20;
+
+    private static final CommentService commentService = mock(CommentService.class);
+    private static final ChangeVersions changeVersions = new ChangeVersions();
+    private static final DropwizardClientExtension DROPWIZARD = new DropwizardClientExtension(
+            new CommentResource(commentService, changeVersions),
+            new AuthValueFactoryProvider.Binder<>(UserPrincipal.class));
+
+    private final HttpClient client = HttpClient.newHttpClient();
+
+    @Test
+    @DisplayName("A revalidating client only triggers a list query after a write")
+    public void unchangedListsAreNotQueriedAgain() throws Exception {
+        //given
+        given(commentService.findArticleComments("review-1")).willReturn(List.of());
+        String etag = null;
+        int notModified = 0;
+
+        //when
+        for (int i = 0; i < REQUESTS; i++) {
+            if (i > 0 && i % REQUESTS_PER_WRITE == 0) {
+                changeVersions.bump(ChangeVersions.Scope.COMMENTS);
+            }
+            final HttpResponse<String> response = get("/reviews/review-1/comments", etag);
+            if (response.statusCode() == 304) {
+                notModified++;
+            } else {
+                assertThat(response.statusCode()).isEqualTo(200);
+                etag = response.headers().firstValue("ETag").orElseThrow();
+            }
+        }
+
+        //then
+        final int queries = mockingDetails(commentService).getInvocations().size();
+        assertThat(queries).isEqualTo(REQUESTS / REQUESTS_PER_WRITE);
+        assertThat(notModified).isEqualTo(REQUESTS - REQUESTS / REQUESTS_PER_WRITE);
+    }
+
+    private HttpResponse<String> get(final String uri, final String etag) throws java.io.IOException, InterruptedException {
+        final var request = HttpRequest.newBuilder()
+                .uri(URI.create(DROPWIZARD.baseUri() + uri))
+                .timeout(Duration.ofMinutes(1))
+                .GET();
+        if (etag != null) {
+            request.header("If-None-Match", etag);
+        }
+        return client.send(request.build(), HttpResponse.BodyHandlers.ofString());
+    }
+}
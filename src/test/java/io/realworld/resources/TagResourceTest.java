@@ -2,6 +2,8 @@ package io.realworld.resources;
 
 import io.dropwizard.testing.junit5.DropwizardClientExtension;
 import io.dropwizard.testing.junit5.DropwizardExtensionsSupport;
+import io.realworld.core.TagPopularity;
+import io.realworld.db.TagCount;
 import io.realworld.db.TagRepository;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.DisplayName;
@@ -24,7 +26,8 @@ import static org.mockito.Mockito.*;
 public class TagResourceTest {
 
     private static final TagRepository repository = mock(TagRepository.class);
-    private static final DropwizardClientExtension DROPWIZARD = new DropwizardClientExtension(new TagsResource(repository));
+    private static final TagPopularity popularity = new TagPopularity(repository);
+    private static final DropwizardClientExtension DROPWIZARD = new DropwizardClientExtension(new TagsResource(popularity));
 
     @AfterEach
     public void tearDown() {
@@ -35,23 +38,67 @@ public class TagResourceTest {
     @DisplayName("Verifies if the tags REST service returns the tags in expected format")
     public void allTagsAreReturned() throws Exception {
         //given
-        given(repository.findAllTags()).willReturn(List.of("tag1", "tag2"));
+        given(repository.findTagPopularity()).willReturn(List.of(new TagCount("tag1", 0), new TagCount("tag2", 0)));
+        popularity.reload();
 
         //when
-        final HttpResponse<String> response = get("/tags");
+        final HttpResponse<String> response = get("/tags", null);
+        final HttpResponse<String> again = get("/tags", null);
 
         //then
         assertThat(response.statusCode()).isEqualTo(200);
         assertThat(response.body()).isEqualTo("{\"tags\":[\"tag1\",\"tag2\"]}");
-        verify(repository, times(1)).findAllTags();
+        assertThat(again.body()).isEqualTo(response.body());
+        verify(repository, times(1)).findTagPopularity();
     }
 
-    private HttpResponse<String> get(final String uri) throws java.io.IOException, InterruptedException {
+    @Test
+    @DisplayName("Tags are ranked by their reviews and follow added and removed tags")
+    public void tagsAreRankedByPopularity() throws Exception {
+        //given
+        given(repository.findTagPopularity()).willReturn(List.of(
+                new TagCount("drama", 3), new TagCount("documentary", 5), new TagCount("comedy", 4)));
+        popularity.reload();
+        popularity.tagsAdded(List.of("drama", "drama-queen"));
+        popularity.tagsAdded(List.of("drama"));
+        popularity.tagsRemoved(List.of("documentary"));
+
+        //when
+        final HttpResponse<String> all = get("/tags", null);
+        final HttpResponse<String> filtered = get("/tags?top=2&prefix=dr", null);
+
+        //then
+        assertThat(all.body()).isEqualTo("{\"tags\":[\"drama\",\"comedy\",\"documentary\",\"drama-queen\"]}");
+        assertThat(filtered.body()).isEqualTo("{\"tags\":[\"drama\",\"drama-queen\"]}");
+    }
+
+    @Test
+    @DisplayName("An unchanged ranking answers If-None-Match with 304 until tags change")
+    public void unchangedRankingIsNotModified() throws Exception {
+        //given
+        given(repository.findTagPopularity()).willReturn(List.of(new TagCount("tag1", 1)));
+        popularity.reload();
+        final String etag = get("/tags", null).headers().firstValue("ETag").orElseThrow();
+
+        //when
+        final HttpResponse<String> unchanged = get("/tags", etag);
+        popularity.tagsAdded(List.of("tag2"));
+        final HttpResponse<String> changed = get("/tags", etag);
+
+        //then
+        assertThat(unchanged.statusCode()).isEqualTo(304);
+        assertThat(changed.statusCode()).isEqualTo(200);
+        assertThat(changed.body()).isEqualTo("{\"tags\":[\"tag1\",\"tag2\"]}");
+    }
+
+    private HttpResponse<String> get(final String uri, final String etag) throws java.io.IOException, InterruptedException {
         final var request = HttpRequest.newBuilder()
                 .uri(URI.create(DROPWIZARD.baseUri() + uri))
                 .timeout(Duration.ofMinutes(1))
-                .GET()
-                .build();
-        return HttpClient.newHttpClient().send(request, HttpResponse.BodyHandlers.ofString());
+                .GET();
+        if (etag != null) {
+            request.header("If-None-Match", etag);
+        }
+        return HttpClient.newHttpClient().send(request.build(), HttpResponse.BodyHandlers.ofString());
     }
 }
@@ -0,0 +1,76 @@
+package io.realworld.security;
+
+import com.codahale.metrics.MetricRegistry;
+import io.realworld.api.response.User;
+import io.realworld.exceptions.ApplicationException;
+import io.realworld.exceptions.ErrorCode;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class CredentialCacheTest {
+
+    private final CredentialCache cache = new CredentialCache(CredentialCacheConfiguration.defaults(), new MetricRegistry());
+    private final AtomicInteger verifications = new AtomicInteger();
+
+    @Test
+    void verifiedCredentialsAreNotVerifiedAgain() {
+        //given
+        cache.verified("user@example.com", "secret", verification());
+
+        //when
+        final User user = cache.verified("user@example.com", "secret", verification());
+
+        //then
+        assertThat(user.getUsername()).isEqualTo("user");
+        assertThat(verifications.get()).isEqualTo(1);
+    }
+
+    @Test
+    void otherPasswordAndFailedLoginsAreVerified() {
+        //given
+        cache.verified("user@example.com", "secret", verification());
+
+        //when
+        assertThatThrownBy(() -> cache.verified("user@example.com", "wrong", () -> {
+            verifications.incrementAndGet();
+            throw new ApplicationException(ErrorCode.INVALID_CREDENTIALS);
+        })).isInstanceOf(ApplicationException.class);
+        assertThatThrownBy(() -> cache.verified("user@example.com", "wrong", () -> {
+            verifications.incrementAndGet();
+            throw new ApplicationException(ErrorCode.INVALID_CREDENTIALS);
+        })).isInstanceOf(ApplicationException.class);
+
+        //then
+        assertThat(verifications.get()).isEqualTo(3);
+    }
+
+    @Test
+    void updatedUserIsVerifiedAgain() {
+        //given
+        cache.verified("user@example.com", "secret", verification());
+
+        //when
+        cache.invalidateUser(42L);
+        cache.verified("user@example.com", "secret", verification());
+
+        //then
+        assertThat(verifications.get()).isEqualTo(2);
+    }
+
+    private Supplier<User> verification() {
+        return () -> {
+            verifications.incrementAndGet();
+            final User user = new User();
+            user.setId(42L);
+            user.setUsername("user");
+            user.setEmail("user@example.com");
+            user.setPassword("pbkdf2$...");
+            return user;
+        };
+    }
+}
@@ -1,10 +1,15 @@
 package io.realworld.security;
 
+import com.codahale.metrics.MetricRegistry;
 import io.jsonwebtoken.SignatureAlgorithm;
 import io.jsonwebtoken.security.Keys;
 import org.junit.jupiter.api.Test;
 
+import java.time.Clock;
 import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
 import java.util.Base64;
 import java.util.Optional;
 
@@ -51,9 +56,85 @@ public class JwtTokenServiceTest {
         assertThat(principal.isPresent()).isFalse();
     }
 
+    @Test
+    void repeatedTokenIsVerifiedOnce() {
+        //given
+        final MetricRegistry metrics = new MetricRegistry();
+        final JwtTokenService classUnderTest = new JwtTokenService(config(60), metrics, Clock.systemUTC());
+        final JwtToken generatedToken = classUnderTest.generateJwt(42L, "user", "admin");
+
+        //when
+        classUnderTest.authenticate(generatedToken);
+        final Optional<UserPrincipal> principal = classUnderTest.authenticate(generatedToken);
+
+        //then
+        assertThat(principal.map(UserPrincipal::getId)).contains(42L);
+        assertThat(metrics.timer(MetricRegistry.name(JwtTokenService.class, "verification")).getCount()).isEqualTo(1);
+        assertThat(metrics.meter(MetricRegistry.name(JwtTokenService.class, "cacheHits")).getCount()).isEqualTo(1);
+    }
+
+    @Test
+    void cachedTokenIsRejectedOnceExpired() {
+        //given
+        final MovableClock clock = new MovableClock();
+        final JwtTokenService classUnderTest = new JwtTokenService(config(60), new MetricRegistry(), clock);
+        final JwtToken generatedToken = classUnderTest.generateJwt("user", "admin");
+        classUnderTest.authenticate(generatedToken);
+
+        //when
+        clock.now = clock.now.plusSeconds(61);
+        final Optional<UserPrincipal> principal = classUnderTest.authenticate(generatedToken);
+
+        //then
+        assertThat(principal.isPresent()).isFalse();
+    }
+
+    @Test
+    void currentTokenIsReusedUntilItIsAboutToExpire() {
+        //given
+        final MovableClock clock = new MovableClock();
+        final JwtTokenService classUnderTest = new JwtTokenService(config(15 * 60), new MetricRegistry(), clock);
+        final JwtToken first = classUnderTest.currentJwt(42L, "user", "admin");
+
+        //when
+        clock.now = clock.now.plus(Duration.ofMinutes(5));
+        final JwtToken reused = classUnderTest.currentJwt(42L, "user", "admin");
+        clock.now = clock.now.plus(Duration.ofMinutes(6));
+        final JwtToken refreshed = classUnderTest.currentJwt(42L, "user", "admin");
+
+        //then
+        assertThat(reused.getToken()).isEqualTo(first.getToken());
+        assertThat(refreshed.getToken()).isNotEqualTo(first.getToken());
+        assertThat(classUnderTest.authenticate(refreshed).map(UserPrincipal::getId)).contains(42L);
+    }
+
     private JwtTokenService jwtService(final long expirationInSeconds) {
         final Duration tokenExpiration = Duration.ofSeconds(expirationInSeconds);
         final String secret = Base64.getEncoder().encodeToString(Keys.secretKeyFor(SignatureAlgorithm.HS256).getEncoded());
         return new JwtTokenService(new JwtConfiguration(secret, tokenExpiration));
     }
+
+    private JwtConfiguration config(final long expirationInSeconds) {
+        final String secret = Base64.getEncoder().encodeToString(Keys.secretKeyFor(SignatureAlgorithm.HS256).getEncoded());
+        return new JwtConfiguration(secret, Duration.ofSeconds(expirationInSeconds));
+    }
+
+    private static class MovableClock extends Clock {
+        private Instant now = Instant.now();
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(final ZoneId zone) {
+            return this;
+        }
+
+        @Override
+        public Instant instant() {
+            return now;
+        }
+    }
 }
@@ -0,0 +1,82 @@
+package io.realworld.security;
+
+import com.codahale.metrics.MetricRegistry;
+import io.realworld.exceptions.ApplicationException;
+import io.realworld.exceptions.ErrorCode;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class PasswordEncoderTest {
+
+    @Test
+    void legacyPasswordsAreCheckedAndMarkedForRehash() {
+        //given
+        final PasswordEncoder classUnderTest = new PasswordEncoder();
+        final String legacy = new Sha512PasswordHash().encode("secret");
+
+        //when
+        final String rehashed = classUnderTest.encode("secret");
+
+        //then
+        assertThat(classUnderTest.matches("secret", legacy)).isTrue();
+        assertThat(classUnderTest.matches("wrong", legacy)).isFalse();
+        assertThat(classUnderTest.needsRehash(legacy)).isTrue();
+        assertThat(classUnderTest.matches("secret", rehashed)).isTrue();
+        assertThat(classUnderTest.needsRehash(rehashed)).isFalse();
+    }
+
+    @Test
+    void passwordsHashedWithFarFewerIterationsAreOutdated() {
+        //given
+        final String encoded = new Pbkdf2PasswordHash("PBKDF2WithHmacSHA256", 1_000).encode("secret");
+
+        //when
+        final Pbkdf2PasswordHash stronger = new Pbkdf2PasswordHash("PBKDF2WithHmacSHA256", 10_000);
+
+        //then
+        assertThat(stronger.matches("secret", encoded)).isTrue();
+        assertThat(stronger.isOutdated(encoded)).isTrue();
+    }
+
+    @Test
+    void hashingIsShedWhenTheQueueIsFull() throws Exception {
+        //given
+        final CountDownLatch release = new CountDownLatch(1);
+        final PasswordHash slowHash = mock(PasswordHash.class);
+        when(slowHash.encode(any())).thenAnswer(invocation -> {
+            release.await();
+            return "hash";
+        });
+        final ThreadPoolExecutor executor = new ThreadPoolExecutor(1, 1, 0, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(1), new ThreadPoolExecutor.AbortPolicy());
+        final PasswordEncoder classUnderTest = new PasswordEncoder(slowHash, executor, new MetricRegistry());
+        final ExecutorService callers = Executors.newFixedThreadPool(2);
+        callers.submit(() -> classUnderTest.encode("running"));
+        callers.submit(() -> classUnderTest.encode("queued"));
+        while (executor.getQueue().isEmpty()) {
+            Thread.sleep(10);
+        }
+
+        //when
+        //then
+        assertThatThrownBy(() -> classUnderTest.encode("shed"))
+                .isInstanceOf(ApplicationException.class)
+                .extracting(e -> ((ApplicationException) e).getErrorCode())
+                .isEqualTo(ErrorCode.OVERLOADED);
+        release.countDown();
+        callers.shutdown();
+        executor.shutdown();
+    }
+}